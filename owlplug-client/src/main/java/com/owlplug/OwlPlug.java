@@ -21,7 +21,12 @@ package com.owlplug;
 import com.owlplug.controls.OwlPlugControlsResources;
 import com.owlplug.core.components.ApplicationDefaults;
 import com.owlplug.core.controllers.MainController;
+import com.owlplug.core.services.DatabaseMaintenanceService;
+import com.owlplug.core.utils.cache.CacheStatistics;
+import com.owlplug.core.utils.cache.CacheTierSizes;
+import com.owlplug.core.utils.cache.ContentAddressedStore;
 import java.beans.PropertyVetoException;
+import java.io.File;
 import java.nio.file.Paths;
 import java.time.Duration;
 import javafx.application.Application;
@@ -33,6 +38,14 @@ import javafx.stage.Stage;
 import javax.sql.DataSource;
 import jfxtras.styles.jmetro.JMetro;
 import jfxtras.styles.jmetro.Style;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.util.Timeout;
 import org.ehcache.CacheManager;
 import org.ehcache.config.builders.CacheConfigurationBuilder;
 import org.ehcache.config.builders.CacheManagerBuilder;
@@ -155,20 +168,45 @@ public class OwlPlug extends Application {
     return dataSource;
   }
 
+  /**
+   * Initialize EhCache statistics, collecting statistics of each cache tier.
+   *
+   * @return The CacheStatistics instance
+   */
+  @Bean
+  public CacheStatistics getCacheStatistics() {
+    return new CacheStatistics();
+  }
+
   /**
    * Initialize EhCache CacheManager instance {@see CacheManager}.
+   * The image-cache heap tier is sized relative to the maximum heap size, an off-heap
+   * tier can be enabled with the owlplug.cache.image.offheap-size property.
    * 
    * @return The CacheManager instance
    */
   @Bean
   public CacheManager getCacheManager() {
+    CacheTierSizes imageCacheSizes = CacheTierSizes.of(Runtime.getRuntime().maxMemory(),
+        environment.getProperty("owlplug.cache.image.heap-divisor", Long.class, 32L),
+        environment.getProperty("owlplug.cache.image.offheap-size", Long.class, 0L),
+        environment.getProperty("owlplug.cache.image.disk-size", Long.class, 700L));
+    log.debug("Image cache tiers - {}", imageCacheSizes);
+
+    ResourcePoolsBuilder imageCachePools = ResourcePoolsBuilder.newResourcePoolsBuilder()
+        .heap(imageCacheSizes.getHeapSize(), MemoryUnit.MB);
+    if (imageCacheSizes.hasOffHeap()) {
+      imageCachePools = imageCachePools.offheap(imageCacheSizes.getOffHeapSize(), MemoryUnit.MB);
+    }
+    imageCachePools = imageCachePools.disk(imageCacheSizes.getDiskSize(), MemoryUnit.MB, true);
+
     CacheManager cacheManager = CacheManagerBuilder.newCacheManagerBuilder()
+        .using(getCacheStatistics().getService())
         .with(CacheManagerBuilder.persistence(
                 Paths.get(ApplicationDefaults.getUserDataDirectory(),  "cache").toString())
         )
         .withCache("image-cache", CacheConfigurationBuilder
-            .newCacheConfigurationBuilder(String.class, byte[].class,
-                ResourcePoolsBuilder.newResourcePoolsBuilder().heap(100, MemoryUnit.MB).disk(700, MemoryUnit.MB, true))
+            .newCacheConfigurationBuilder(String.class, byte[].class, imageCachePools)
             .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofDays(10))))
         .build();
     cacheManager.init();
@@ -176,13 +214,59 @@ public class OwlPlug extends Application {
     return cacheManager;
   }
 
+  /**
+   * Initialize the local bundle store, keeping verified bundle archives for reinstalls.
+   * Its size is capped by the owlplug.bundle-store.max-size property, in MB.
+   *
+   * @return The bundle store
+   */
+  @Bean
+  public ContentAddressedStore getBundleStore() {
+    long maxSize = environment.getProperty("owlplug.bundle-store.max-size", Long.class, 2048L);
+    ContentAddressedStore bundleStore = new ContentAddressedStore(
+        new File(ApplicationDefaults.getBundleStoreDirectory()), maxSize * 1024 * 1024);
+    // Applies a lowered size cap to files stored by previous runs
+    bundleStore.trim();
+    return bundleStore;
+  }
+
+  /**
+   * Initialize the shared pooled asynchronous HTTP client. HTTP/2 is negotiated
+   * with servers supporting it.
+   *
+   * @return The started HTTP client
+   */
+  @Bean(destroyMethod = "close")
+  public CloseableHttpAsyncClient getHttpAsyncClient() {
+    PoolingAsyncClientConnectionManager connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+        .setMaxConnTotal(20)
+        .setMaxConnPerRoute(4)
+        .setDefaultConnectionConfig(ConnectionConfig.custom()
+            .setConnectTimeout(Timeout.ofSeconds(15))
+            .build())
+        .setDefaultTlsConfig(TlsConfig.custom()
+            .setVersionPolicy(HttpVersionPolicy.NEGOTIATE)
+            .build())
+        .build();
+
+    CloseableHttpAsyncClient httpClient = HttpAsyncClients.custom()
+        .setConnectionManager(connectionManager)
+        .build();
+    httpClient.start();
+
+    return httpClient;
+  }
+
   /**
    * Called by JavaFx platform on closure request. Post execution cleaning
    * operation should be operated here.
    */
   @Override
   public void stop() {
+    DatabaseMaintenanceService databaseMaintenanceService = context.getBean(DatabaseMaintenanceService.class);
     context.close();
+    // The database is compacted once all connections are released
+    databaseMaintenanceService.compactIfPending();
   }
 
 }
@@ -29,6 +29,7 @@ import java.io.InputStreamReader;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 import javafx.scene.image.Image;
 import org.slf4j.Logger;
@@ -113,6 +114,8 @@ public class ApplicationDefaults {
   public static final String STORE_BY_CREATOR_ENABLED_KEY = "STORE_BY_CREATOR_ENABLED_KEY";
   public static final String STORE_DIRECTORY_KEY = "STORE_DIRECTORY_KEY";
   public static final String STORE_SUBDIRECTORY_ENABLED = "STORE_SUBDIRECTORY_ENABLED";
+  public static final String SCREENSHOT_PREFETCH_ENABLED_KEY = "SCREENSHOT_PREFETCH_ENABLED_KEY";
+  public static final String INSTALL_BANDWIDTH_LIMIT_KEY = "INSTALL_BANDWIDTH_LIMIT_KEY";
   public static final String FIRST_LAUNCH_KEY = "FIRST_LAUNCH_KEY";
   public static final String APPLICATION_STATE_KEY = "APPLICATION_STATE_KEY";
   public static final String SHOW_DIALOG_DISABLE_PLUGIN_KEY = "SHOW_DIALOG_DISABLE_PLUGIN_KEY";
@@ -121,6 +124,9 @@ public class ApplicationDefaults {
   public static final String SYNC_FILE_STAT_KEY = "SYNC_FILE_STAT_KEY";
   public static final String TELEMETRY_ENABLED_KEY = "TELEMETRY_ENABLED_KEY";
   public static final String TELEMETRY_USER_ID_KEY = "TELEMETRY_USER_ID_KEY";
+  public static final String DATABASE_LAST_MAINTENANCE_KEY = "DATABASE_LAST_MAINTENANCE_KEY";
+  public static final String DATABASE_LAST_COMPACTION_KEY = "DATABASE_LAST_COMPACTION_KEY";
+  public static final String DATABASE_COMPACTED_SIZE_KEY = "DATABASE_COMPACTED_SIZE_KEY";
 
   /**
    * Creates a new ApplicationDefaults.
@@ -133,6 +139,10 @@ public class ApplicationDefaults {
     return runtimePlatformResolver.getCurrentPlatform();
   }
 
+  public Set<String> getPlatformsTags() {
+    return runtimePlatformResolver.getPlatformsTags();
+  }
+
   /**
    * Returns plugin icon based on plugin format.
    * 
@@ -271,6 +281,14 @@ public class ApplicationDefaults {
     return Paths.get(getUserDataDirectory(), "temp").toString();
   }
 
+  public static String getBundleStoreDirectory() {
+    return Paths.get(getUserDataDirectory(), "bundles").toString();
+  }
+
+  public static String getRegistrySnapshotDirectory() {
+    return Paths.get(getUserDataDirectory(), "registry").toString();
+  }
+
   public static String getLogDirectory() {
     return Paths.get(getUserDataDirectory(), "logs").toString();
   }
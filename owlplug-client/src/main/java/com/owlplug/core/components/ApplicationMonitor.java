@@ -19,8 +19,11 @@
 package com.owlplug.core.components;
 
 import com.owlplug.core.model.ApplicationState;
+import com.owlplug.core.tasks.AbstractTask;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -34,6 +37,10 @@ public class ApplicationMonitor {
   @Autowired
   protected ApplicationPreferences preferences;
   private boolean previousExecutionSafelyTerminated = true;
+
+  private volatile boolean taskActive = false;
+  private volatile boolean activitySinceIdle = false;
+  private volatile Instant lastTaskActivity = Instant.now();
   
   
   @PostConstruct
@@ -69,5 +76,48 @@ public class ApplicationMonitor {
   public boolean isPreviousExecutionSafelyTerminated() {
     return previousExecutionSafelyTerminated;
   }
+
+  /**
+   * Notifies the monitor that a task has been submitted for execution.
+   * Maintenance tasks don't update the last task activity.
+   * @param task - the submitted task
+   */
+  public void notifyTaskStarted(AbstractTask task) {
+    taskActive = true;
+    if (!task.isMaintenance()) {
+      activitySinceIdle = true;
+      lastTaskActivity = Instant.now();
+    }
+  }
+
+  /**
+   * Notifies the monitor that all submitted tasks are completed. The last task activity
+   * is updated unless only maintenance tasks ran.
+   */
+  public void notifyTasksCompleted() {
+    taskActive = false;
+    if (activitySinceIdle) {
+      activitySinceIdle = false;
+      lastTaskActivity = Instant.now();
+    }
+  }
+
+  /**
+   * Returns true if no task is running and no task other than maintenance completed
+   * during the given delay.
+   * @param delay - minimum idle duration
+   * @return true if the application is idle
+   */
+  public boolean isIdle(Duration delay) {
+    return !taskActive && lastTaskActivity.plus(delay).isBefore(Instant.now());
+  }
+
+  public boolean isTaskActive() {
+    return taskActive;
+  }
+
+  public Instant getLastTaskActivity() {
+    return lastTaskActivity;
+  }
   
 }
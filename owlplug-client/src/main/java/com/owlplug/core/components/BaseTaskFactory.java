@@ -22,6 +22,7 @@ import com.owlplug.core.tasks.AbstractTask;
 import com.owlplug.core.tasks.SimpleEventListener;
 import com.owlplug.core.tasks.TaskExecutionContext;
 import java.util.List;
+import javafx.concurrent.WorkerStateEvent;
 import org.springframework.beans.factory.annotation.Autowired;
 
 public class BaseTaskFactory {
@@ -37,6 +38,17 @@ public class BaseTaskFactory {
     return new TaskExecutionContext(task, taskRunner);
   }
   
+  /**
+   * Runs an action when the task completes, whether it succeeds or fails.
+   * Actions are dispatched before handlers registered with setOnSucceeded or setOnFailed.
+   * @param task - the task
+   * @param action - action to run
+   */
+  protected void addCompletionHandler(AbstractTask task, Runnable action) {
+    task.addEventHandler(WorkerStateEvent.WORKER_STATE_SUCCEEDED, e -> action.run());
+    task.addEventHandler(WorkerStateEvent.WORKER_STATE_FAILED, e -> action.run());
+  }
+
   protected void notifyListeners(List<SimpleEventListener> listeners) {
     for (SimpleEventListener listener : listeners) {
       listener.onAction();
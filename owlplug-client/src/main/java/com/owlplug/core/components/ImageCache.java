@@ -18,12 +18,24 @@
  
 package com.owlplug.core.components;
 
+import com.owlplug.core.utils.ImageUtils;
+import com.owlplug.core.utils.cache.CacheStatistics;
+import com.owlplug.core.utils.cache.CacheStatistics.TierStatistics;
+import com.owlplug.core.utils.cache.WeightedLruCache;
+import com.owlplug.core.utils.concurrent.PriorityFetchExecutor;
+import jakarta.annotation.PreDestroy;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
 import javafx.application.Platform;
-import javafx.concurrent.Task;
 import javafx.embed.swing.SwingFXUtils;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
@@ -35,13 +47,62 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+/**
+ * Two tiers image cache. Decoded images are kept in memory, bounded by their pixel
+ * size, so frequently displayed images are not decoded again. Encoded images are
+ * persisted in the Ehcache image-cache and decoded on memory misses.
+ * Images can be retrieved in full resolution or as a thumbnail, stored separately,
+ * so small views don't decode large screenshots. Local files are never persisted,
+ * only their thumbnails.
+ * Background fetches are executed on a bounded number of threads, by priority.
+ */
 @Component
 public class ImageCache {
 
   private final Logger log = LoggerFactory.getLogger(this.getClass());
 
+  /**
+   * Part of the maximum heap size used to retain decoded images.
+   */
+  private static final int DECODED_IMAGES_HEAP_DIVISOR = 16;
+  private static final int FETCH_THREADS = 4;
+  /**
+   * Maximum width and height of thumbnails, matching the largest explore tiles.
+   */
+  private static final int THUMBNAIL_SIZE = 260;
+  private static final String THUMBNAIL_KEY_PREFIX = "thumbnail:";
+
+  /**
+   * Image resolutions stored in the cache.
+   */
+  public enum Resolution {
+    FULL, THUMBNAIL
+  }
+
+  /**
+   * Priority of images currently displayed.
+   */
+  public static final int VISIBLE_PRIORITY = 0;
+  /**
+   * Priority of images likely to be displayed soon.
+   */
+  public static final int PREFETCH_PRIORITY = 10;
+
+  private static final String CACHE_NAME = "image-cache";
+
   @Autowired
   private CacheManager cacheManager;
+  @Autowired
+  private CacheStatistics cacheStatistics;
+
+  private final WeightedLruCache<String, Image> decodedImages = new WeightedLruCache<>(
+      Runtime.getRuntime().maxMemory() / DECODED_IMAGES_HEAP_DIVISOR, ImageCache::pixelBytes);
+  private final LongAdder storeHits = new LongAdder();
+  private final LongAdder storeMisses = new LongAdder();
+  private final LongAdder decodeCount = new LongAdder();
+  private final LongAdder decodeNanos = new LongAdder();
+  private final PriorityFetchExecutor<String, Image> fetchExecutor =
+      new PriorityFetchExecutor<>("owlplug-image-fetch", FETCH_THREADS);
 
   ImageCache() {
 
@@ -82,60 +143,217 @@ public class ImageCache {
     if (url == null || url.isEmpty()) {
       return null;
     }
+    Image decodedImage = decodedImages.get(url);
+    return decodedImage != null ? decodedImage : load(url, type, asyncFetch);
+  }
+
+  /**
+   * Loads an image from the persisted cache or from url, if not decoded in memory.
+   * Memory cache lookups are not counted, the request is counted by the caller.
+   */
+  private Image load(String url, String type, boolean asyncFetch) {
+    Image decodedImage = decodedImages.peek(url);
+    if (decodedImage != null) {
+      return decodedImage;
+    }
+
     Cache<String, byte[]> cache = getCache();
-    byte[] cachedElement = cache.get(url);
+    BufferedImage storedImage = readFromStore(cache, url);
 
     // Retrieve image from cache
-    if (cachedElement != null) {
-      try {
-        log.trace("Retrieving image {} from cache", url);
-        ByteArrayInputStream s = new ByteArrayInputStream(cachedElement);
-        BufferedImage bufImage = ImageIO.read(s);
-        return SwingFXUtils.toFXImage(bufImage, null);
-      } catch (IOException e) {
-        log.error("Error retrieving image from cache", e);
-      }
+    if (storedImage != null) {
+      Image image = SwingFXUtils.toFXImage(storedImage, null);
+      decodedImages.put(url, image);
+      return image;
     }
 
-    // Load image
+    // Load image, local files are already on disk and are not persisted
+    boolean persist = !isLocalFile(url);
     Image cachedImage = new Image(url, asyncFetch);
     // In case of async fetch, persist to the cache on complete
     cachedImage.progressProperty().addListener((observable, oldValue, progress) -> {
       if ((Double) progress == 1.0 && !cachedImage.isError()) {
-        persistImageIntoCache(cache, url, cachedImage, type);
+        if (persist) {
+          persistImageIntoCache(cache, url, cachedImage, type);
+        }
+        decodedImages.put(url, cachedImage);
       }
     });
     // In case of sync fetch, persist image in cache immediately
     if (!asyncFetch && !cachedImage.isError()) {
-      persistImageIntoCache(cache, url, cachedImage, type);
-
+      if (persist) {
+        persistImageIntoCache(cache, url, cachedImage, type);
+      }
+      decodedImages.put(url, cachedImage);
     }
 
     return cachedImage;
   }
 
+  /**
+   * Retrieve or persist the thumbnail of an image. The thumbnail is generated from
+   * the persisted image if any, otherwise the image is loaded from url. Full images
+   * retrieved from remote urls are persisted too.
+   *
+   * @param url Image url
+   * @return The thumbnail, or null if the image can't be loaded
+   */
+  public Image getThumbnail(String url) {
+    if (url == null || url.isEmpty()) {
+      return null;
+    }
+    Image decodedThumbnail = decodedImages.get(THUMBNAIL_KEY_PREFIX + url);
+    return decodedThumbnail != null ? decodedThumbnail : loadThumbnail(url);
+  }
+
+  /**
+   * Loads a thumbnail from the persisted cache or generates it, if not decoded in memory.
+   * Memory cache lookups are not counted, the request is counted by the caller.
+   */
+  private Image loadThumbnail(String url) {
+    String key = THUMBNAIL_KEY_PREFIX + url;
+    Image decodedThumbnail = decodedImages.peek(key);
+    if (decodedThumbnail != null) {
+      return decodedThumbnail;
+    }
+
+    Cache<String, byte[]> cache = getCache();
+    BufferedImage thumbnail = readFromStore(cache, key);
+    if (thumbnail == null) {
+      BufferedImage source = loadSource(cache, url);
+      if (source == null) {
+        return null;
+      }
+      thumbnail = ImageUtils.scaleToFit(source, THUMBNAIL_SIZE);
+      persistIntoCache(cache, key, thumbnail, "png");
+    }
+    Image image = SwingFXUtils.toFXImage(thumbnail, null);
+    decodedImages.put(key, image);
+    return image;
+  }
+
+  /**
+   * Returns true if the thumbnail of an image is persisted in the cache.
+   *
+   * @param url Image url
+   * @return true if the thumbnail is persisted
+   */
+  public boolean containsThumbnail(String url) {
+    return getCache().containsKey(THUMBNAIL_KEY_PREFIX + url);
+  }
+
+  /**
+   * Persists an image downloaded outside the cache with its thumbnail. Images
+   * are not decoded in memory, so storing images doesn't evict displayed ones.
+   *
+   * @param url  Image url
+   * @param data Encoded image
+   * @return true if the image has been decoded and persisted
+   */
+  public boolean store(String url, byte[] data) {
+    try {
+      BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+      if (image == null) {
+        return false;
+      }
+      Cache<String, byte[]> cache = getCache();
+      cache.put(url, data);
+      persistIntoCache(cache, THUMBNAIL_KEY_PREFIX + url, ImageUtils.scaleToFit(image, THUMBNAIL_SIZE), "png");
+      return true;
+    } catch (IOException e) {
+      log.error("Error storing image {}", url, e);
+      return false;
+    }
+  }
+
+  /**
+   * Returns an image only if it is already decoded in memory.
+   *
+   * @param url        Image url
+   * @param resolution Image resolution
+   * @return The decoded image, or null
+   */
+  public Image getIfPresent(String url, Resolution resolution) {
+    if (url == null || url.isEmpty()) {
+      return null;
+    }
+    return decodedImages.get(key(url, resolution));
+  }
+
+  /**
+   * Retrieve or persist an image in cache from url in background. Concurrent fetches
+   * of the same image are coalesced. A fetch which is no longer needed must be cancelled
+   * with {@link #cancelFetch(String, Resolution)}. Fetches don't count memory cache hits
+   * and misses, callers look up the image with {@link #getIfPresent(String, Resolution)} first.
+   *
+   * @param url        Image url
+   * @param resolution Image resolution
+   * @param priority   Fetch priority, lower values are fetched first
+   * @return A future completed with the image, or null if url is empty
+   */
+  public CompletableFuture<Image> fetch(String url, Resolution resolution, int priority) {
+    return fetch(url, resolution, priority, true);
+  }
+
+  private CompletableFuture<Image> fetch(String url, Resolution resolution, int priority, boolean counted) {
+    if (url == null || url.isEmpty()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    Image decodedImage = decodedImages.peek(key(url, resolution));
+    if (decodedImage != null) {
+      return CompletableFuture.completedFuture(decodedImage);
+    }
+    Callable<Image> loader = () -> switch (resolution) {
+      case FULL -> load(url, "png", false);
+      case THUMBNAIL -> loadThumbnail(url);
+    };
+    return counted ? fetchExecutor.fetch(key(url, resolution), priority, loader)
+        : fetchExecutor.fetchDetached(key(url, resolution), priority, loader);
+  }
+
+  /**
+   * Changes the priority of a pending image fetch.
+   *
+   * @param url        Image url
+   * @param resolution Image resolution
+   * @param priority   Fetch priority
+   */
+  public void setFetchPriority(String url, Resolution resolution, int priority) {
+    fetchExecutor.setPriority(key(url, resolution), priority);
+  }
+
+  /**
+   * Cancels an image fetch requested with {@link #fetch(String, Resolution, int)}, if it's
+   * still pending and not requested elsewhere.
+   *
+   * @param url        Image url
+   * @param resolution Image resolution
+   */
+  public void cancelFetch(String url, Resolution resolution) {
+    fetchExecutor.release(key(url, resolution));
+  }
+
   /**
    * Load asynchronously an Image from cache on the given ImageView. If image
    * don't exist in cache, it will be created retrieving the image from url.
+   * The request doesn't need to be cancelled, and the image isn't loaded if
+   * other requesters of the same image cancel the fetch.
    * 
    * @param url       Image url
    * @param imageView Target image view
    */
   public void loadAsync(String url, ImageView imageView) {
 
-    Task<Image> task = new Task<>() {
-      public Image call() {
-        return ImageCache.this.get(url, "png", false);
-      }
-    };
-
-    task.setOnSucceeded(e -> {
-      Image image = task.getValue();
+    Image decodedImage = getIfPresent(url, Resolution.FULL);
+    if (decodedImage != null) {
+      Platform.runLater(() -> imageView.setImage(decodedImage));
+      return;
+    }
+    fetch(url, Resolution.FULL, VISIBLE_PRIORITY, false).thenAccept(image -> {
       if (image != null && !image.isError()) {
-        Platform.runLater(() -> imageView.setImage(task.getValue()));
+        Platform.runLater(() -> imageView.setImage(image));
       }
     });
-    new Thread(task).start();
 
   }
 
@@ -146,6 +364,14 @@ public class ImageCache {
    * @return true if cache contains key
    */
   public boolean contains(String key) {
+    if (isLocalFile(key)) {
+      // Local files are not persisted but are always available
+      try {
+        return Files.exists(Path.of(URI.create(key)));
+      } catch (IllegalArgumentException e) {
+        return false;
+      }
+    }
     return getCache().containsKey(key);
 
   }
@@ -154,19 +380,164 @@ public class ImageCache {
    * Clear image cache contents.
    */
   public void clear() {
+    logStatistics();
+    decodedImages.clear();
     getCache().clear();
 
   }
 
+  /**
+   * Returns the ratio of requests served from decoded images in memory.
+   * @return hit ratio between 0 and 1
+   */
+  public double getMemoryHitRatio() {
+    return decodedImages.getHitRatio();
+  }
+
+  /**
+   * Returns the ratio of memory misses served from the persisted image cache.
+   * @return hit ratio between 0 and 1
+   */
+  public double getStoreHitRatio() {
+    long hits = storeHits.sum();
+    long total = hits + storeMisses.sum();
+    return total == 0 ? 0 : (double) hits / total;
+  }
+
+  /**
+   * Returns the average time spent decoding persisted images.
+   * @return average decode time in milliseconds
+   */
+  public double getAverageDecodeMillis() {
+    long count = decodeCount.sum();
+    return count == 0 ? 0 : decodeNanos.sum() / 1_000_000d / count;
+  }
+
+  /**
+   * Returns the memory retained by decoded images.
+   * @return size in bytes
+   */
+  public long getDecodedImagesSize() {
+    return decodedImages.getWeight();
+  }
+
+  public int getDecodedImagesCount() {
+    return decodedImages.size();
+  }
+
+  /**
+   * Returns statistics of each tier of the persisted image cache, including entry
+   * counts, occupied bytes, hits and misses.
+   * @return statistics by tier name (OnHeap, OffHeap, Disk)
+   */
+  public Map<String, TierStatistics> getStoreTierStatistics() {
+    return cacheStatistics.getTierStatistics(CACHE_NAME);
+  }
+
+  @PreDestroy
+  private void destroy() {
+    fetchExecutor.shutdown();
+    logStatistics();
+  }
+
+  private void logStatistics() {
+    log.debug("Image cache - memory hit ratio: {}, store hit ratio: {}, decoded: {} images, "
+        + "avg decode: {} ms, memory: {}/{} bytes, evictions: {}, fetched: {}, coalesced: {}, cancelled: {}",
+        String.format("%.2f", getMemoryHitRatio()), String.format("%.2f", getStoreHitRatio()),
+        decodeCount.sum(), String.format("%.2f", getAverageDecodeMillis()), decodedImages.getWeight(),
+        decodedImages.getMaxWeight(), decodedImages.getEvictions(), fetchExecutor.getExecutedFetches(),
+        fetchExecutor.getCoalescedFetches(), fetchExecutor.getCancelledFetches());
+    getStoreTierStatistics().forEach((tier, statistics) ->
+        log.debug("Image cache {} tier - entries: {}, occupied: {} bytes, hit ratio: {}", tier,
+            statistics.getMappings(), statistics.getOccupiedBytes(),
+            String.format("%.2f", statistics.getHitRatio())));
+  }
+
   private Cache<String, byte[]> getCache() {
-    return cacheManager.getCache("image-cache", String.class, byte[].class);
+    return cacheManager.getCache(CACHE_NAME, String.class, byte[].class);
+
+  }
+
+  private static String key(String url, Resolution resolution) {
+    return resolution == Resolution.THUMBNAIL ? THUMBNAIL_KEY_PREFIX + url : url;
+  }
+
+  private static boolean isLocalFile(String url) {
+    return url.startsWith("file:");
+  }
+
+  /**
+   * Reads and decodes an image from the persisted cache.
+   *
+   * @return the decoded image, or null if the image is not persisted
+   */
+  private BufferedImage readFromStore(Cache<String, byte[]> cache, String key) {
+    byte[] cachedElement = cache.get(key);
+    if (cachedElement == null) {
+      storeMisses.increment();
+      return null;
+    }
+    storeHits.increment();
+    try {
+      log.trace("Retrieving image {} from cache", key);
+      long start = System.nanoTime();
+      BufferedImage image = ImageIO.read(new ByteArrayInputStream(cachedElement));
+      decodeNanos.add(System.nanoTime() - start);
+      decodeCount.increment();
+      return image;
+    } catch (IOException e) {
+      log.error("Error retrieving image from cache", e);
+      return null;
+    }
+  }
 
+  /**
+   * Loads the full image used to generate a thumbnail. Local files are read from disk,
+   * remote images are read from the cache or downloaded and persisted.
+   *
+   * @return the image, or null if it can't be loaded
+   */
+  private BufferedImage loadSource(Cache<String, byte[]> cache, String url) {
+    if (isLocalFile(url)) {
+      try {
+        return ImageIO.read(URI.create(url).toURL());
+      } catch (IOException | IllegalArgumentException e) {
+        log.error("Error reading local image {}", url, e);
+        return null;
+      }
+    }
+    BufferedImage storedImage = readFromStore(cache, url);
+    if (storedImage != null) {
+      return storedImage;
+    }
+    Image image = new Image(url, false);
+    if (image.isError()) {
+      log.debug("Image {} can't be loaded", url, image.getException());
+      return null;
+    }
+    BufferedImage source = SwingFXUtils.fromFXImage(image, null);
+    persistIntoCache(cache, url, source, "png");
+    return source;
+  }
+
+  /**
+   * Returns the memory used by the pixels of a decoded image, stored as 32 bits pixels.
+   */
+  private static long pixelBytes(Image image) {
+    return (long) image.getWidth() * (long) image.getHeight() * 4;
   }
 
   private void persistImageIntoCache(Cache<String, byte[]> cache, String key, Image image, String type) {
+    try {
+      persistIntoCache(cache, key, SwingFXUtils.fromFXImage(image, null), type);
+    } catch (IllegalArgumentException | IllegalStateException e) {
+      log.error("Error caching image", e);
+    }
+  }
+
+  private void persistIntoCache(Cache<String, byte[]> cache, String key, BufferedImage buffImage, String type) {
     try {
       log.trace("Persisting image {} into cache", key);
-      BufferedImage buffImage = SwingFXUtils.fromFXImage(image, null);
       ByteArrayOutputStream s = new ByteArrayOutputStream();
       ImageIO.write(buffImage, type, s);
       byte[] res = s.toByteArray();
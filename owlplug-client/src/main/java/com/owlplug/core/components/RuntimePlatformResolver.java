@@ -79,6 +79,18 @@ public class RuntimePlatformResolver {
     return currentPlatform;
   }
 
+  /**
+   * Returns tags, aliases and operating system codes of all known platforms.
+   * @return platform tags
+   */
+  public Set<String> getPlatformsTags() {
+    Set<String> tags = new HashSet<>();
+    for (RuntimePlatform platform : platforms) {
+      tags.addAll(platform.getCompatiblePlatformsTags());
+    }
+    return tags;
+  }
+
   private String resolveArchitecture() {
     String arch = System.getProperty("os.arch");
     if (arch == null) {
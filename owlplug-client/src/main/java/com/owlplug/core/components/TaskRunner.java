@@ -48,6 +48,8 @@ public class TaskRunner {
 
   @Autowired
   private TaskBarController taskBarController;
+  @Autowired
+  private ApplicationMonitor applicationMonitor;
 
   private final SimpleAsyncTaskExecutor executor;
   private final LinkedBlockingDeque<AbstractTask> taskQueue;
@@ -97,6 +99,7 @@ public class TaskRunner {
       // Get the next pending task
       AbstractTask polledTask = taskQueue.pollFirst();
       setCurrentTask(polledTask);
+      applicationMonitor.notifyTaskStarted(currentTask);
       addInTaskHistory(currentTask);
       log.debug("Task submitted to executor - {} ", currentTask.getClass().getName());
 
@@ -129,6 +132,8 @@ public class TaskRunner {
         return null;
       });
 
+    } else if (taskQueue.isEmpty() && currentTask == null) {
+      applicationMonitor.notifyTasksCompleted();
     }
   }
 
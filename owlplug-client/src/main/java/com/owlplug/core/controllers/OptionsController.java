@@ -83,6 +83,8 @@ public class OptionsController extends BaseController {
   @FXML
   private CheckBox storeDirectoryCheckBox;
   @FXML
+  private CheckBox screenshotPrefetchCheckBox;
+  @FXML
   private TextField storeDirectoryTextField;
   @FXML
   private Label storeDirectorySeparator;
@@ -177,6 +179,10 @@ public class OptionsController extends BaseController {
       this.getPreferences().putBoolean(ApplicationDefaults.SYNC_FILE_STAT_KEY, newValue);
     });
 
+    screenshotPrefetchCheckBox.selectedProperty().addListener((observable, oldValue, newValue) -> {
+      this.getPreferences().putBoolean(ApplicationDefaults.SCREENSHOT_PREFETCH_ENABLED_KEY, newValue);
+    });
+
     storeSubDirectoryCheckBox.selectedProperty().addListener((observable, oldValue, newValue) -> {
       this.getPreferences().putBoolean(ApplicationDefaults.STORE_SUBDIRECTORY_ENABLED, newValue);
       warningSubDirectory.setVisible(!newValue);
@@ -278,6 +284,8 @@ public class OptionsController extends BaseController {
     pluginNativeCheckbox.setSelected(this.getPreferences().getBoolean(ApplicationDefaults.NATIVE_HOST_ENABLED_KEY, false));
     syncPluginsCheckBox.setSelected(this.getPreferences().getBoolean(ApplicationDefaults.SYNC_PLUGINS_STARTUP_KEY, false));
     syncFileStatCheckbox.setSelected(this.getPreferences().getBoolean(ApplicationDefaults.SYNC_FILE_STAT_KEY, true));
+    screenshotPrefetchCheckBox.setSelected(
+        this.getPreferences().getBoolean(ApplicationDefaults.SCREENSHOT_PREFETCH_ENABLED_KEY, false));
     storeSubDirectoryCheckBox.setSelected(this.getPreferences().getBoolean(ApplicationDefaults.STORE_SUBDIRECTORY_ENABLED, true));
     warningSubDirectory.setVisible(!this.getPreferences().getBoolean(ApplicationDefaults.STORE_SUBDIRECTORY_ENABLED, true));
     storeDirectoryCheckBox.setSelected(this.getPreferences().getBoolean(ApplicationDefaults.STORE_DIRECTORY_ENABLED_KEY, false));
@@ -0,0 +1,214 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.core.services;
+
+import com.owlplug.core.components.ApplicationDefaults;
+import com.owlplug.core.components.ApplicationMonitor;
+import com.owlplug.core.components.TaskRunner;
+import com.owlplug.core.tasks.DatabaseMaintenanceTask;
+import com.owlplug.core.utils.FileUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javafx.application.Platform;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps the embedded database healthy. Full scans and syncs delete and re-insert
+ * most rows, which makes the store file grow over time.
+ * Statistics are rebuilt while the application is idle and the store is compacted
+ * on shutdown when it grew significantly. Maintenance never runs while a task is active.
+ * Compaction closes the database, it runs once the application context is closed and
+ * all connections are released, see {@link #compactIfPending()}.
+ */
+@Service
+public class DatabaseMaintenanceService extends BaseService {
+
+  private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+  private static final Duration CHECK_INTERVAL = Duration.ofMinutes(5);
+  private static final Duration IDLE_DELAY = Duration.ofMinutes(2);
+  private static final Duration MAINTENANCE_INTERVAL = Duration.ofHours(6);
+  private static final Duration COMPACTION_INTERVAL = Duration.ofDays(7);
+  private static final double COMPACTION_GROWTH_RATIO = 1.5;
+
+  @Autowired
+  private DataSource dataSource;
+  @Autowired
+  private ApplicationMonitor applicationMonitor;
+  @Autowired
+  private TaskRunner taskRunner;
+
+  private ScheduledExecutorService scheduler;
+  private volatile boolean maintenancePending = false;
+  private volatile boolean compactionPending = false;
+  private volatile Instant lastMaintenance;
+
+  @PostConstruct
+  private void initialize() {
+    lastMaintenance = Instant.ofEpochMilli(
+        this.getPreferences().getLong(ApplicationDefaults.DATABASE_LAST_MAINTENANCE_KEY, 0));
+
+    scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "owlplug-database-maintenance");
+      thread.setDaemon(true);
+      return thread;
+    });
+    scheduler.scheduleWithFixedDelay(this::checkIdleMaintenance,
+        CHECK_INTERVAL.toMinutes(), CHECK_INTERVAL.toMinutes(), TimeUnit.MINUTES);
+  }
+
+  @PreDestroy
+  private void destroy() {
+    scheduler.shutdownNow();
+
+    if (applicationMonitor.isTaskActive()) {
+      log.info("Database compaction skipped, a task was interrupted during shutdown");
+      return;
+    }
+    compactionPending = isCompactionDue();
+  }
+
+  /**
+   * Compacts the database store if compaction was found due when the service was
+   * destroyed. Must be called after the application context is closed, when the entity
+   * manager factory and the datasource no longer hold connections.
+   */
+  public void compactIfPending() {
+    if (compactionPending) {
+      compactionPending = false;
+      compact();
+    }
+  }
+
+  /**
+   * Submits a maintenance task if the database has been updated since
+   * the last maintenance and no task ran recently.
+   */
+  private void checkIdleMaintenance() {
+    if (maintenancePending || !isMaintenanceDue() || !applicationMonitor.isIdle(IDLE_DELAY)) {
+      return;
+    }
+    maintenancePending = true;
+
+    Platform.runLater(() -> {
+      // A task may have been submitted in the meantime
+      if (applicationMonitor.isTaskActive()) {
+        maintenancePending = false;
+        return;
+      }
+      DatabaseMaintenanceTask task = new DatabaseMaintenanceTask(dataSource);
+      task.setOnSucceeded(e -> {
+        lastMaintenance = Instant.now();
+        this.getPreferences().putLong(ApplicationDefaults.DATABASE_LAST_MAINTENANCE_KEY,
+            lastMaintenance.toEpochMilli());
+        maintenancePending = false;
+      });
+      task.setOnFailed(e -> {
+        log.error("Database maintenance failed", task.getException());
+        maintenancePending = false;
+      });
+      taskRunner.submitTask(task);
+    });
+  }
+
+  private boolean isMaintenanceDue() {
+    // Maintenance tasks aren't counted as task activity, so they don't make maintenance due again
+    return applicationMonitor.getLastTaskActivity().isAfter(lastMaintenance)
+        && lastMaintenance.plus(MAINTENANCE_INTERVAL).isBefore(Instant.now());
+  }
+
+  private boolean isCompactionDue() {
+    long size = getDatabaseFileSize();
+    if (size <= 0) {
+      return false;
+    }
+    Instant lastCompaction = Instant.ofEpochMilli(
+        this.getPreferences().getLong(ApplicationDefaults.DATABASE_LAST_COMPACTION_KEY, 0));
+    long compactedSize = this.getPreferences().getLong(ApplicationDefaults.DATABASE_COMPACTED_SIZE_KEY, 0);
+
+    return lastCompaction.plus(COMPACTION_INTERVAL).isBefore(Instant.now())
+        || size > compactedSize * COMPACTION_GROWTH_RATIO;
+  }
+
+  /**
+   * Fully compacts the database store. The database is closed by the compaction,
+   * so this must only be called once the application context is closed. A dedicated
+   * connection is opened as the datasource is already released.
+   */
+  private void compact() {
+    long sizeBefore = getDatabaseFileSize();
+    log.info("Compacting database");
+
+    try (Connection connection = DriverManager.getConnection(
+             this.getApplicationDefaults().getEnvProperty("spring.datasource.url"),
+             this.getApplicationDefaults().getEnvProperty("spring.datasource.username"),
+             this.getApplicationDefaults().getEnvProperty("spring.datasource.password"));
+         Statement statement = connection.createStatement()) {
+      statement.execute("SHUTDOWN COMPACT");
+    } catch (SQLException e) {
+      log.error("Database compaction failed", e);
+      return;
+    }
+
+    long sizeAfter = getDatabaseFileSize();
+    this.getPreferences().putLong(ApplicationDefaults.DATABASE_LAST_COMPACTION_KEY, Instant.now().toEpochMilli());
+    this.getPreferences().putLong(ApplicationDefaults.DATABASE_COMPACTED_SIZE_KEY, sizeAfter);
+    log.info("Database compacted from {} to {}, {} reclaimed",
+        FileUtils.humanReadableByteCount(sizeBefore, false),
+        FileUtils.humanReadableByteCount(sizeAfter, false),
+        FileUtils.humanReadableByteCount(Math.max(0, sizeBefore - sizeAfter), false));
+  }
+
+  /**
+   * Returns the database store file size in bytes.
+   * @return store size, or 0 if the store file can't be resolved
+   */
+  public long getDatabaseFileSize() {
+    File file = getDatabaseFile();
+    return file != null && file.exists() ? file.length() : 0;
+  }
+
+  private File getDatabaseFile() {
+    String url = this.getApplicationDefaults().getEnvProperty("spring.datasource.url");
+    String prefix = "jdbc:h2:file:";
+    if (url == null || !url.startsWith(prefix)) {
+      return null;
+    }
+    String path = url.substring(prefix.length()).split(";")[0];
+    if (path.startsWith("~")) {
+      path = System.getProperty("user.home") + path.substring(1);
+    }
+    return new File(path + ".mv.db");
+  }
+
+}
@@ -26,9 +26,11 @@ import com.owlplug.core.components.ImageCache;
 import com.owlplug.core.model.OperatingSystem;
 import com.owlplug.explore.repositories.RemotePackageRepository;
 import com.owlplug.explore.repositories.RemoteSourceRepository;
+import com.owlplug.explore.services.ExploreService;
 import com.owlplug.plugin.repositories.FileStatRepository;
 import com.owlplug.plugin.repositories.PluginRepository;
 import com.owlplug.plugin.model.PluginFormat;
+import com.owlplug.plugin.services.PluginService;
 import jakarta.annotation.PostConstruct;
 import java.util.prefs.BackingStoreException;
 import org.slf4j.Logger;
@@ -55,6 +57,10 @@ public class OptionsService extends BaseService {
   private FileStatRepository fileStatRepository;
   @Autowired
   private ImageCache imageCache;
+  @Autowired
+  private PluginService pluginService;
+  @Autowired
+  private ExploreService exploreService;
 
   @PostConstruct
   private void initialize() {
@@ -118,6 +124,8 @@ public class OptionsService extends BaseService {
    */
   public void clearCache() {
     imageCache.clear();
+    pluginService.invalidateInventory();
+    exploreService.invalidateCatalog();
   }
 
 }
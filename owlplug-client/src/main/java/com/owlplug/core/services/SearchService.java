@@ -0,0 +1,128 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.core.services;
+
+import com.owlplug.core.utils.search.TrigramIndex;
+import com.owlplug.plugin.components.PluginTaskFactory;
+import com.owlplug.plugin.model.PluginSummary;
+import com.owlplug.plugin.services.PluginService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Typo-tolerant plugin search. Plugins are indexed by name, descriptive name,
+ * manufacturer and category. The index is incrementally updated after each plugin
+ * scan: only added, updated and removed plugins are reindexed.
+ * Registry packages are searched with their own index, see
+ * {@link com.owlplug.explore.model.search.PackageSearchIndex}.
+ */
+@Service
+public class SearchService extends BaseService {
+
+  private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+  private static final float[] PLUGIN_WEIGHTS = {1f, 0.9f, 0.6f, 0.5f};
+
+  @Autowired
+  private PluginService pluginService;
+  @Autowired
+  private PluginTaskFactory pluginTaskFactory;
+
+  private final TrigramIndex<Long> pluginIndex = new TrigramIndex<>();
+  // Indexed texts by plugin id, used to only reindex modified plugins
+  private final Map<Long, List<String>> indexedTexts = new ConcurrentHashMap<>();
+  private ExecutorService executor;
+
+  @PostConstruct
+  private void initialize() {
+    executor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "owlplug-search-index");
+      thread.setDaemon(true);
+      return thread;
+    });
+    pluginTaskFactory.addScanPluginsListener(this::refreshPlugins);
+    refreshPlugins();
+  }
+
+  @PreDestroy
+  private void destroy() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Schedules an update of plugin documents from the current plugin inventory.
+   */
+  public void refreshPlugins() {
+    executor.execute(() -> {
+      Map<Long, List<String>> documents = new HashMap<>();
+      for (PluginSummary plugin : pluginService.getPluginSummaries()) {
+        documents.put(plugin.getId(), Arrays.asList(plugin.getName(),
+            plugin.getDescriptiveName(), plugin.getManufacturerName(), plugin.getCategory()));
+      }
+      updateDocuments(documents);
+    });
+  }
+
+  private void updateDocuments(Map<Long, List<String>> documents) {
+    int updated = 0;
+    int removed = 0;
+    for (Map.Entry<Long, List<String>> document : documents.entrySet()) {
+      if (!document.getValue().equals(indexedTexts.get(document.getKey()))) {
+        pluginIndex.put(document.getKey(), document.getValue(), PLUGIN_WEIGHTS);
+        indexedTexts.put(document.getKey(), document.getValue());
+        updated++;
+      }
+    }
+    for (Long key : new ArrayList<>(indexedTexts.keySet())) {
+      if (!documents.containsKey(key)) {
+        pluginIndex.remove(key);
+        indexedTexts.remove(key);
+        removed++;
+      }
+    }
+    log.debug("Plugin search index updated - {} plugins updated, {} removed", updated, removed);
+  }
+
+  /**
+   * Returns ids of plugins matching the query, best matches first.
+   * @param query - text to search
+   * @param limit - maximum number of results
+   * @return ranked plugin ids
+   */
+  public List<Long> searchPlugins(String query, int limit) {
+    List<Long> ids = new ArrayList<>();
+    for (TrigramIndex.SearchResult<Long> result : pluginIndex.search(query, limit)) {
+      ids.add(result.getKey());
+    }
+    return ids;
+  }
+
+}
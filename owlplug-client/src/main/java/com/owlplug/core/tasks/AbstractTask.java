@@ -106,6 +106,15 @@ public abstract class AbstractTask extends Task<TaskResult> {
     return taskCompleted;
   }
 
+  /**
+   * Returns true if the task only maintains application data. Maintenance tasks are
+   * not counted as application activity, see {@link com.owlplug.core.components.ApplicationMonitor}.
+   * @return true for maintenance tasks
+   */
+  public boolean isMaintenance() {
+    return false;
+  }
+
   @Override
   protected void updateMessage(String message) {
     log.trace("Task" + name + " status update [" + message + "]");
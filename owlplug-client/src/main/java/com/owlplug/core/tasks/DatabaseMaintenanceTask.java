@@ -0,0 +1,67 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package com.owlplug.core.tasks;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Online database maintenance. Rebuilds table statistics used by the query planner
+ * and writes a checkpoint so the store can reuse space freed by previous bulk deletes.
+ * Submitted through the TaskRunner so it never runs concurrently with another task.
+ */
+public class DatabaseMaintenanceTask extends AbstractTask {
+
+  private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+  private final DataSource dataSource;
+
+  public DatabaseMaintenanceTask(DataSource dataSource) {
+    super("Database maintenance");
+    this.dataSource = dataSource;
+  }
+
+  @Override
+  protected TaskResult start() throws Exception {
+
+    this.updateMessage("Optimizing database...");
+    this.updateProgress(0, 2);
+
+    try (Connection connection = dataSource.getConnection();
+         Statement statement = connection.createStatement()) {
+      statement.execute("ANALYZE");
+      this.updateProgress(1, 2);
+      statement.execute("CHECKPOINT SYNC");
+    }
+
+    log.debug("Database statistics rebuilt");
+    this.updateProgress(2, 2);
+    this.updateMessage("Database optimized");
+    return completed();
+  }
+
+  @Override
+  public boolean isMaintenance() {
+    return true;
+  }
+
+}
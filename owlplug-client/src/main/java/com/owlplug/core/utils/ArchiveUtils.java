@@ -25,10 +25,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Predicate;
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveException;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.compressors.CompressorException;
 import org.apache.commons.compress.compressors.CompressorInputStream;
 import org.apache.commons.compress.compressors.CompressorStreamFactory;
@@ -58,11 +61,34 @@ public class ArchiveUtils {
 
   }
 
-  private static boolean isCompressed(File file) throws IOException {
-    log.debug("Verify file compression: {}", file.getAbsolutePath());
-    try (InputStream inputStream = new FileInputStream(file);
-          InputStream bufferedIn = new BufferedInputStream(inputStream)) {
-      String comp = CompressorStreamFactory.detect(bufferedIn);
+  /**
+   * Extracts an archive read from a stream, entries are written as soon as they are read.
+   * The stream is closed once the archive is extracted.
+   * @param source - archive stream
+   * @param dest - destination directory
+   * @throws IOException if the archive can't be read or extracted
+   */
+  public static void extract(InputStream source, File dest) throws IOException {
+    extract(source, dest, entryName -> true);
+  }
+
+  /**
+   * Extracts the entries of an archive read from a stream accepted by a filter.
+   * The stream is closed once the archive is extracted.
+   * @param source - archive stream
+   * @param dest - destination directory
+   * @param filter - receives each entry name, in archive order, and tells if it's extracted
+   * @throws IOException if the archive can't be read or extracted
+   */
+  public static void extract(InputStream source, File dest, Predicate<String> filter) throws IOException {
+    try (InputStream bi = new BufferedInputStream(source)) {
+      uncompress(bi, dest, filter);
+    }
+  }
+
+  private static boolean isCompressed(InputStream inputStream) {
+    try {
+      String comp = CompressorStreamFactory.detect(inputStream);
       log.debug("Compression signature found: {}", comp);
       return true;
     } catch (CompressorException e) {
@@ -73,43 +99,58 @@ public class ArchiveUtils {
   }
 
   private static void uncompress(File sourceFile, File destinationDirectory) throws IOException {
+    try (InputStream fi = new FileInputStream(sourceFile);
+         InputStream bi = new BufferedInputStream(fi)) {
+      uncompress(bi, destinationDirectory, entryName -> true);
+    }
+  }
 
-    if (isCompressed(sourceFile)) {
-      try (InputStream fi = new FileInputStream(sourceFile);
-           InputStream bi = new BufferedInputStream(fi);
-           CompressorInputStream gzi = new CompressorStreamFactory().createCompressorInputStream(bi);
+  /**
+   * Extracts an archive from a stream supporting mark, the compression signature is
+   * detected without consuming the stream.
+   */
+  private static void uncompress(InputStream bi, File destinationDirectory, Predicate<String> filter)
+      throws IOException {
+
+    if (isCompressed(bi)) {
+      try (CompressorInputStream gzi = new CompressorStreamFactory().createCompressorInputStream(bi);
            InputStream bgzi = new BufferedInputStream(gzi);
            ArchiveInputStream o = new ArchiveStreamFactory().createArchiveInputStream(bgzi)) {
 
-        uncompress(o, destinationDirectory);
+        uncompress(o, destinationDirectory, filter);
       } catch (CompressorException e) {
-        throw new IOException("Error while uncompressing the archive stream: " + sourceFile.getAbsolutePath(), e);
+        throw new IOException("Error while uncompressing the archive stream", e);
       } catch (ArchiveException e) {
-        throw new IOException("Error while extracting the archive stream: " + sourceFile.getAbsolutePath(), e);
+        throw new IOException("Error while extracting the archive stream", e);
       }
 
     } else {
-      try (InputStream fi = new FileInputStream(sourceFile);
-           InputStream bi = new BufferedInputStream(fi);
-           ArchiveInputStream o = new ArchiveStreamFactory().createArchiveInputStream(bi)) {
+      try (ArchiveInputStream o = new ArchiveStreamFactory().createArchiveInputStream(bi)) {
 
-        uncompress(o, destinationDirectory);
+        uncompress(o, destinationDirectory, filter);
       } catch (ArchiveException e) {
-        throw new IOException("Error while extracting the archive stream: " + sourceFile.getAbsolutePath(), e);
+        throw new IOException("Error while extracting the archive stream", e);
       }
     }
   }
 
-  private static void uncompress(ArchiveInputStream o, File destinationDirectory) throws IOException {
+  private static void uncompress(ArchiveInputStream o, File destinationDirectory, Predicate<String> filter)
+      throws IOException {
 
+    Path destination = destinationDirectory.toPath().toAbsolutePath().normalize();
     ArchiveEntry entry = null;
     while ((entry = o.getNextEntry()) != null) {
+      if (!filter.test(entry.getName())) {
+        continue;
+      }
       if (!o.canReadEntryData(entry)) {
         log.debug("Stream entry cannot be read: {}", entry.getName());
         continue;
       }
 
-      File f = new File(destinationDirectory, entry.getName());
+      // Archives may be extracted before their hash is verified, entries must stay in the destination
+      Path path = resolveEntry(destination, destination, entry.getName());
+      File f = path.toFile();
       if (entry.isDirectory()) {
         if (!f.isDirectory() && !f.mkdirs()) {
           throw new IOException("failed to create directory " + f);
@@ -119,11 +160,29 @@ public class ArchiveUtils {
         if (!parent.isDirectory() && !parent.mkdirs()) {
           throw new IOException("failed to create directory " + parent);
         }
-        try (OutputStream output = Files.newOutputStream(f.toPath())) {
+        // Links are written as regular files, their targets are still checked like entries.
+        // Zip streams don't carry link attributes, only tar links can be detected here.
+        if (entry instanceof TarArchiveEntry tarEntry && tarEntry.isSymbolicLink()) {
+          resolveEntry(destination, path.getParent(), tarEntry.getLinkName());
+        } else if (entry instanceof TarArchiveEntry tarEntry && tarEntry.isLink()) {
+          resolveEntry(destination, destination, tarEntry.getLinkName());
+        }
+        try (OutputStream output = Files.newOutputStream(path)) {
           IOUtils.copy(o, output);
         }
       }
     }
   }
 
+  /**
+   * Resolves an entry or link target path, rejecting paths outside the destination directory.
+   */
+  private static Path resolveEntry(Path destination, Path base, String name) throws IOException {
+    Path path = base.resolve(name).normalize();
+    if (!path.startsWith(destination)) {
+      throw new IOException("Archive entry " + name + " is outside of the extraction directory");
+    }
+    return path;
+  }
+
 }
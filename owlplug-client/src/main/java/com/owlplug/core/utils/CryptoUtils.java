@@ -22,6 +22,7 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -47,6 +48,36 @@ public class CryptoUtils {
 
   }
 
+  /**
+   * Returns the SHA-256 digest of a string encoded in UTF-8.
+   * @param value - string to digest
+   * @return hexadecimal digest
+   */
+  public static String getSha256Digest(String value) {
+    return bytesToHex(createSha256Digest().digest(value.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  /**
+   * Creates a SHA-256 digest, to hash data while it is streamed.
+   * @return a new digest
+   */
+  public static MessageDigest createSha256Digest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Completes a digest and returns its hexadecimal value.
+   * @param digest - digest to complete
+   * @return hexadecimal digest
+   */
+  public static String getDigestHex(MessageDigest digest) {
+    return bytesToHex(digest.digest());
+  }
+
   private static String bytesToHex(byte[] hash) {
     StringBuilder hexString = new StringBuilder(2 * hash.length);
     for (byte b : hash) {
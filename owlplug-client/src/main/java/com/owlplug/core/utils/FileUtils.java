@@ -25,6 +25,7 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,6 +40,41 @@ public class FileUtils {
     return path.replace("\\", "/");
   }
 
+  /**
+   * Normalizes a path to the form used by indexed path columns. Separators are
+   * converted to forward slashes and the path is lower-cased so lookups stay
+   * case-insensitive.
+   * @param path - path to normalize
+   * @return the normalized path, null if path is null
+   */
+  public static String normalizePath(String path) {
+    if (path == null) {
+      return null;
+    }
+    return convertPath(path).toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Returns the smallest string greater than every string starting with the given prefix.
+   * A prefix lookup can then be expressed as the range {@code prefix <= path < upperBound}
+   * which is resolved by an index range scan instead of a LIKE table scan.
+   * @param prefix - non empty prefix
+   * @return exclusive upper bound of the prefix range
+   */
+  public static String prefixUpperBound(String prefix) {
+    if (prefix == null || prefix.isEmpty()) {
+      throw new IllegalArgumentException("Prefix must not be empty");
+    }
+    int end = prefix.length() - 1;
+    while (end >= 0 && prefix.charAt(end) == Character.MAX_VALUE) {
+      end--;
+    }
+    if (end < 0) {
+      throw new IllegalArgumentException("Prefix has no upper bound");
+    }
+    return prefix.substring(0, end) + (char) (prefix.charAt(end) + 1);
+  }
+
   public static String sanitizeFileName(String fileName) {
 
     return fileName.replaceAll("[^-_.A-Za-z0-9 ]", "").trim().replaceAll("\\s+"," ");
@@ -0,0 +1,69 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owlplug.core.utils;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+public class ImageUtils {
+
+  private ImageUtils() {
+
+  }
+
+  /**
+   * Downscales an image so its largest side fits the given size, keeping its aspect
+   * ratio. Large images are halved repeatedly before the final resize to keep
+   * bilinear filtering from skipping pixels. Images already fitting are returned as is.
+   * 
+   * @param image   - source image
+   * @param maxSize - maximum width and height of the scaled image
+   * @return the scaled image
+   */
+  public static BufferedImage scaleToFit(BufferedImage image, int maxSize) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    if (width <= maxSize && height <= maxSize) {
+      return image;
+    }
+    double ratio = Math.min((double) maxSize / width, (double) maxSize / height);
+    int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+    int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+
+    BufferedImage scaled = image;
+    do {
+      width = Math.max(targetWidth, width / 2);
+      height = Math.max(targetHeight, height / 2);
+      scaled = resize(scaled, width, height);
+    } while (width != targetWidth || height != targetHeight);
+
+    return scaled;
+  }
+
+  private static BufferedImage resize(BufferedImage image, int width, int height) {
+    BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D graphics = resized.createGraphics();
+    graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+    graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+    graphics.drawImage(image, 0, 0, width, height, null);
+    graphics.dispose();
+    return resized;
+  }
+
+}
@@ -0,0 +1,136 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.core.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.function.Predicate;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
+
+/**
+ * Extracts an archive while it is written to this stream. Bytes go through a pipe to an
+ * extraction thread, so an archive can be extracted while it is downloaded without being
+ * read back from disk. Bytes following the last archive entry are drained and ignored.
+ */
+public class StreamingArchiveExtractor extends OutputStream {
+
+  private static final int PIPE_SIZE = 1024 * 1024;
+
+  private final PipedOutputStream pipe;
+  private final Thread thread;
+  private volatile Exception failure;
+
+  /**
+   * Creates an extractor and starts the extraction thread.
+   * @param destination - directory where entries are extracted
+   * @throws IOException if the pipe can't be created
+   */
+  public StreamingArchiveExtractor(File destination) throws IOException {
+    this(destination, entryName -> true);
+  }
+
+  /**
+   * Creates an extractor and starts the extraction thread.
+   * @param destination - directory where entries are extracted
+   * @param filter - receives each entry name, from the extraction thread, and tells if it's extracted
+   * @throws IOException if the pipe can't be created
+   */
+  public StreamingArchiveExtractor(File destination, Predicate<String> filter) throws IOException {
+    PipedInputStream input = new PipedInputStream(PIPE_SIZE);
+    pipe = new PipedOutputStream(input);
+    thread = new Thread(() -> {
+      try {
+        ArchiveUtils.extract(CloseShieldInputStream.wrap(input), destination, filter);
+        IOUtils.consume(input);
+      } catch (Exception e) {
+        failure = e;
+      } finally {
+        // Closing the pipe after recording the failure makes pending writes report it
+        IOUtils.closeQuietly(input);
+      }
+    }, "owlplug-archive-extract");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    try {
+      pipe.write(b);
+    } catch (IOException e) {
+      throw failureOr(e);
+    }
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    try {
+      pipe.write(b, off, len);
+    } catch (IOException e) {
+      throw failureOr(e);
+    }
+  }
+
+  /**
+   * Ends the archive stream and waits for the extraction to complete.
+   * @throws IOException if the archive can't be extracted
+   */
+  public void finish() throws IOException {
+    close();
+    if (failure != null) {
+      throw new IOException("Archive extraction failed", failure);
+    }
+  }
+
+  /**
+   * Ends the archive stream and waits for the extraction thread to stop. An incomplete
+   * archive makes the extraction fail, without reporting it.
+   */
+  @Override
+  public void close() throws IOException {
+    pipe.close();
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Archive extraction interrupted", e);
+    }
+  }
+
+  /**
+   * Returns true if the extraction failed. The archive content is invalid, writing it
+   * again would fail the same way.
+   * @return true if the extraction failed
+   */
+  public boolean hasFailed() {
+    return failure != null;
+  }
+
+  private IOException failureOr(IOException e) {
+    if (failure != null) {
+      return new IOException("Archive extraction failed", failure);
+    }
+    return e;
+  }
+
+}
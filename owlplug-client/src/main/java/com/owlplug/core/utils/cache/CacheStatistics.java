@@ -0,0 +1,95 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.core.utils.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.ehcache.impl.internal.statistics.DefaultStatisticsService;
+import org.ehcache.spi.service.Service;
+
+/**
+ * Collects statistics of Ehcache caches and exposes them as plain counts. Ehcache only
+ * provides tier statistics through an internal service implementation, which is kept
+ * in this class so the rest of the application doesn't depend on it.
+ */
+public class CacheStatistics {
+
+  private final DefaultStatisticsService statisticsService = new DefaultStatisticsService();
+
+  /**
+   * Returns the Ehcache service collecting statistics, to register in the cache manager.
+   * @return the statistics service
+   */
+  public Service getService() {
+    return statisticsService;
+  }
+
+  /**
+   * Returns statistics of each tier of a cache.
+   * @param cacheName - name of the cache in the cache manager
+   * @return statistics by tier name (OnHeap, OffHeap, Disk)
+   */
+  public Map<String, TierStatistics> getTierStatistics(String cacheName) {
+    Map<String, TierStatistics> tiers = new LinkedHashMap<>();
+    statisticsService.getCacheStatistics(cacheName).getTierStatistics().forEach((tier, statistics) ->
+        tiers.put(tier, new TierStatistics(statistics.getMappings(), statistics.getOccupiedByteSize(),
+            statistics.getHits(), statistics.getMisses())));
+    return tiers;
+  }
+
+  /**
+   * Counts of a cache tier, at the time statistics were read.
+   */
+  public static class TierStatistics {
+
+    private final long mappings;
+    private final long occupiedBytes;
+    private final long hits;
+    private final long misses;
+
+    public TierStatistics(long mappings, long occupiedBytes, long hits, long misses) {
+      this.mappings = mappings;
+      this.occupiedBytes = occupiedBytes;
+      this.hits = hits;
+      this.misses = misses;
+    }
+
+    public long getMappings() {
+      return mappings;
+    }
+
+    public long getOccupiedBytes() {
+      return occupiedBytes;
+    }
+
+    public long getHits() {
+      return hits;
+    }
+
+    public long getMisses() {
+      return misses;
+    }
+
+    public double getHitRatio() {
+      long total = hits + misses;
+      return total == 0 ? 0 : (double) hits / total;
+    }
+  }
+
+}
@@ -0,0 +1,81 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owlplug.core.utils.cache;
+
+/**
+ * Sizes of Ehcache resource tiers, in megabytes. The heap tier is sized relative to
+ * the maximum JVM heap so cached entries don't put pressure on small heaps, and
+ * the off-heap tier is only enabled when it fits between the heap and disk tiers.
+ */
+public class CacheTierSizes {
+
+  static final long MIN_HEAP_SIZE = 8;
+  static final long MAX_HEAP_SIZE = 256;
+  private static final long MEGABYTE = 1024 * 1024;
+
+  private final long heapSize;
+  private final long offHeapSize;
+  private final long diskSize;
+
+  private CacheTierSizes(long heapSize, long offHeapSize, long diskSize) {
+    this.heapSize = heapSize;
+    this.offHeapSize = offHeapSize;
+    this.diskSize = diskSize;
+  }
+
+  /**
+   * Computes tier sizes.
+   * @param maxHeapBytes - maximum JVM heap size, in bytes
+   * @param heapDivisor - part of the maximum heap used by the heap tier
+   * @param offHeapSize - requested off-heap tier size, 0 to disable the tier
+   * @param diskSize - disk tier size
+   * @return tier sizes
+   */
+  public static CacheTierSizes of(long maxHeapBytes, long heapDivisor, long offHeapSize, long diskSize) {
+    long heapSize = maxHeapBytes / Math.max(1, heapDivisor) / MEGABYTE;
+    heapSize = Math.max(MIN_HEAP_SIZE, Math.min(MAX_HEAP_SIZE, heapSize));
+    heapSize = Math.min(heapSize, Math.max(1, diskSize - 1));
+    // Ehcache requires each tier to be strictly larger than the tier above it
+    if (offHeapSize <= heapSize || offHeapSize >= diskSize) {
+      offHeapSize = 0;
+    }
+    return new CacheTierSizes(heapSize, offHeapSize, diskSize);
+  }
+
+  public long getHeapSize() {
+    return heapSize;
+  }
+
+  public long getOffHeapSize() {
+    return offHeapSize;
+  }
+
+  public boolean hasOffHeap() {
+    return offHeapSize > 0;
+  }
+
+  public long getDiskSize() {
+    return diskSize;
+  }
+
+  @Override
+  public String toString() {
+    return "heap: " + heapSize + " MB, off-heap: " + offHeapSize + " MB, disk: " + diskSize + " MB";
+  }
+
+}
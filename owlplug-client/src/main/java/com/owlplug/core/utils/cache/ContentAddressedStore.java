@@ -0,0 +1,180 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.core.utils.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores files on disk under their SHA-256 digest. The total size of stored files is
+ * capped, least recently used files are evicted first. Recency is tracked with file
+ * modification dates, so it survives restarts.
+ * The store doesn't hash files itself: callers verify the content when they read it and
+ * remove entries which don't match their key.
+ */
+public class ContentAddressedStore {
+
+  private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+  private static final Pattern SHA256_PATTERN = Pattern.compile("[0-9a-f]{64}");
+  private static final String ENTRY_EXTENSION = ".blob";
+  private static final String TEMP_EXTENSION = ".tmp";
+
+  private final File directory;
+  private final long maxSize;
+
+  private long hits = 0;
+  private long misses = 0;
+
+  /**
+   * Creates a new store.
+   * @param directory - directory where files are stored
+   * @param maxSize - maximum total size of stored files, in bytes
+   */
+  public ContentAddressedStore(File directory, long maxSize) {
+    this.directory = directory;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Returns true if the key is a valid SHA-256 digest.
+   * @param sha256 - hexadecimal digest, in any case
+   * @return true if files can be stored with this key
+   */
+  public static boolean isValidKey(String sha256) {
+    return sha256 != null && SHA256_PATTERN.matcher(sha256.toLowerCase(Locale.ROOT)).matches();
+  }
+
+  /**
+   * Returns the stored file of a digest and marks it as recently used.
+   * @param sha256 - hexadecimal digest, in any case
+   * @return the stored file, or null if no file is stored for this digest
+   */
+  public synchronized File get(String sha256) {
+    if (!isValidKey(sha256)) {
+      return null;
+    }
+    File entry = entryFile(sha256);
+    if (!entry.isFile()) {
+      misses++;
+      return null;
+    }
+    hits++;
+    entry.setLastModified(System.currentTimeMillis());
+    return entry;
+  }
+
+  /**
+   * Moves a file into the store, then evicts least recently used files exceeding the size cap.
+   * The file must have been verified against the digest.
+   * @param sha256 - hexadecimal digest of the file, in any case
+   * @param file - file to store, moved into the store
+   * @return the stored file, or null if the file can't be stored
+   * @throws IOException if the file can't be moved into the store
+   */
+  public synchronized File put(String sha256, File file) throws IOException {
+    if (!isValidKey(sha256) || file.length() > maxSize) {
+      return null;
+    }
+    Files.createDirectories(directory.toPath());
+    File entry = entryFile(sha256);
+    Path temp = directory.toPath().resolve(entry.getName() + TEMP_EXTENSION);
+    // Stored entries are always complete, the file is renamed once fully written
+    Files.move(file.toPath(), temp, StandardCopyOption.REPLACE_EXISTING);
+    Files.move(temp, entry.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    entry.setLastModified(System.currentTimeMillis());
+    trim();
+    return entry.isFile() ? entry : null;
+  }
+
+  /**
+   * Removes the stored file of a digest, for instance if its content doesn't match the digest.
+   * @param sha256 - hexadecimal digest, in any case
+   */
+  public synchronized void remove(String sha256) {
+    if (!isValidKey(sha256)) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(entryFile(sha256).toPath());
+    } catch (IOException e) {
+      log.error("Stored file {} can't be removed", sha256, e);
+    }
+  }
+
+  /**
+   * Evicts least recently used files until the total size is under the size cap.
+   */
+  public synchronized void trim() {
+    File[] entries = directory.listFiles((dir, name) -> name.endsWith(ENTRY_EXTENSION));
+    if (entries == null) {
+      return;
+    }
+    long size = 0;
+    for (File entry : entries) {
+      size += entry.length();
+    }
+    Arrays.sort(entries, Comparator.comparingLong(File::lastModified));
+    for (File entry : entries) {
+      if (size <= maxSize) {
+        break;
+      }
+      long length = entry.length();
+      if (entry.delete()) {
+        size -= length;
+        log.debug("Stored file {} evicted", entry.getName());
+      }
+    }
+  }
+
+  /**
+   * Returns the total size of stored files.
+   * @return size in bytes
+   */
+  public synchronized long getSize() {
+    File[] entries = directory.listFiles((dir, name) -> name.endsWith(ENTRY_EXTENSION));
+    return entries == null ? 0 : Arrays.stream(entries).mapToLong(File::length).sum();
+  }
+
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  private File entryFile(String sha256) {
+    return new File(directory, sha256.toLowerCase(Locale.ROOT) + ENTRY_EXTENSION);
+  }
+
+}
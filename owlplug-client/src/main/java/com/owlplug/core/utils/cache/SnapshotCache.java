@@ -0,0 +1,126 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.core.utils.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A small in-memory read cache holding snapshots computed from the database. Snapshots
+ * are shared by all callers, so they must be immutable values such as projections or
+ * unmodifiable copies, never managed entities. Entries are never refreshed in place,
+ * the whole cache is invalidated when underlying data changes. Values loaded while an
+ * invalidation occurs are discarded so a stale snapshot can't be stored after an invalidation.
+ * Least recently used entries are evicted when the cache exceeds its maximum size.
+ *
+ * @param <K> key type
+ * @param <V> snapshot type
+ */
+public class SnapshotCache<K, V> {
+
+  private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+  private final String name;
+  private final Map<K, V> entries;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private long generation = 0;
+
+  /**
+   * Creates a new SnapshotCache.
+   * @param name - cache name used in logs
+   * @param maxEntries - maximum number of retained snapshots
+   */
+  public SnapshotCache(String name, int maxEntries) {
+    this.name = name;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  /**
+   * Returns the snapshot associated to the key. The loader is called outside
+   * any lock on cache miss.
+   * @param key - snapshot key
+   * @param loader - snapshot loader, should return an immutable value
+   * @return the cached or loaded snapshot
+   */
+  public V get(K key, Supplier<V> loader) {
+    long loadGeneration;
+    synchronized (this) {
+      V value = entries.get(key);
+      if (value != null) {
+        hits.increment();
+        return value;
+      }
+      loadGeneration = generation;
+    }
+    misses.increment();
+    V value = loader.get();
+    synchronized (this) {
+      if (value != null && loadGeneration == generation) {
+        entries.put(key, value);
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Discards all snapshots.
+   */
+  public synchronized void invalidate() {
+    generation++;
+    entries.clear();
+    log.debug("{} cache invalidated - hits: {}, misses: {}", name, getHits(), getMisses());
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * Returns the ratio of requests served from the cache.
+   * @return hit ratio between 0 and 1
+   */
+  public double getHitRatio() {
+    long hitCount = getHits();
+    long total = hitCount + getMisses();
+    return total == 0 ? 0 : (double) hitCount / total;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+}
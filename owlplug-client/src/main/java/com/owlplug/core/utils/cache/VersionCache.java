@@ -0,0 +1,96 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owlplug.core.utils.cache;
+
+import com.vdurmont.semver4j.Semver;
+import com.vdurmont.semver4j.Semver.SemverType;
+import com.vdurmont.semver4j.SemverException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parses version strings as loose semantic versions and keeps parsed versions,
+ * as registries and plugin libraries share a small set of distinct versions.
+ * Versions that can't be parsed are cached as empty so they are parsed only once.
+ */
+public class VersionCache {
+
+  private final int maxEntries;
+  private final Map<String, Optional<Semver>> versions = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a new VersionCache.
+   * @param maxEntries - number of parsed versions above which the cache is cleared
+   */
+  public VersionCache(int maxEntries) {
+    this.maxEntries = maxEntries;
+  }
+
+  /**
+   * Returns the parsed version.
+   * @param version - version string, an optional leading "v" is ignored
+   * @return the parsed version, empty if version is null or not a valid version
+   */
+  public Optional<Semver> parse(String version) {
+    if (version == null || version.isBlank()) {
+      return Optional.empty();
+    }
+    Optional<Semver> parsed = versions.get(version);
+    if (parsed == null) {
+      if (versions.size() >= maxEntries) {
+        versions.clear();
+      }
+      parsed = doParse(version);
+      versions.put(version, parsed);
+    }
+    return parsed;
+  }
+
+  /**
+   * Returns true if the candidate version is strictly greater than the current version.
+   * Returns false if one of the versions can't be parsed.
+   * @param candidate - candidate version
+   * @param current - current version
+   * @return true if candidate is newer than current
+   */
+  public boolean isNewer(String candidate, String current) {
+    Optional<Semver> candidateVersion = parse(candidate);
+    Optional<Semver> currentVersion = parse(current);
+    return candidateVersion.isPresent() && currentVersion.isPresent()
+        && candidateVersion.get().isGreaterThan(currentVersion.get());
+  }
+
+  public int size() {
+    return versions.size();
+  }
+
+  private static Optional<Semver> doParse(String version) {
+    String trimmed = version.trim();
+    if (trimmed.length() > 1 && (trimmed.charAt(0) == 'v' || trimmed.charAt(0) == 'V')
+        && Character.isDigit(trimmed.charAt(1))) {
+      trimmed = trimmed.substring(1);
+    }
+    try {
+      return Optional.of(new Semver(trimmed, SemverType.LOOSE));
+    } catch (SemverException e) {
+      return Optional.empty();
+    }
+  }
+
+}
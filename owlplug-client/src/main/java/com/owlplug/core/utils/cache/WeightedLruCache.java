@@ -0,0 +1,148 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owlplug.core.utils.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * In-memory LRU cache bounded by the total weight of its values instead of the
+ * number of entries. Least recently used entries are evicted until the total weight
+ * fits the budget. A value heavier than the whole budget is never retained.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class WeightedLruCache<K, V> {
+
+  private final long maxWeight;
+  private final ToLongFunction<V> weigher;
+  private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private long weight = 0;
+  private long evictions = 0;
+
+  /**
+   * Creates a new WeightedLruCache.
+   * @param maxWeight - maximum total weight of retained values
+   * @param weigher - computes the weight of a value, must be stable for a given value
+   */
+  public WeightedLruCache(long maxWeight, ToLongFunction<V> weigher) {
+    this.maxWeight = maxWeight;
+    this.weigher = weigher;
+  }
+
+  /**
+   * Returns the value associated to the key and marks it as recently used.
+   * @param key - value key
+   * @return the value, or null if absent
+   */
+  public synchronized V get(K key) {
+    V value = entries.get(key);
+    if (value != null) {
+      hits.increment();
+    } else {
+      misses.increment();
+    }
+    return value;
+  }
+
+  /**
+   * Returns the value associated to the key and marks it as recently used, without
+   * counting a hit or a miss. Used to check the cache again during a request already
+   * counted with {@link #get(Object)}.
+   * @param key - value key
+   * @return the value, or null if absent
+   */
+  public synchronized V peek(K key) {
+    return entries.get(key);
+  }
+
+  /**
+   * Stores a value and evicts least recently used values exceeding the budget.
+   * @param key - value key
+   * @param value - value to store
+   */
+  public synchronized void put(K key, V value) {
+    long valueWeight = weigher.applyAsLong(value);
+    V previous = entries.remove(key);
+    if (previous != null) {
+      weight -= weigher.applyAsLong(previous);
+    }
+    if (valueWeight > maxWeight) {
+      return;
+    }
+    entries.put(key, value);
+    weight += valueWeight;
+
+    Iterator<Map.Entry<K, V>> iterator = entries.entrySet().iterator();
+    while (weight > maxWeight && iterator.hasNext()) {
+      Map.Entry<K, V> eldest = iterator.next();
+      weight -= weigher.applyAsLong(eldest.getValue());
+      iterator.remove();
+      evictions++;
+    }
+  }
+
+  /**
+   * Removes all values.
+   */
+  public synchronized void clear() {
+    entries.clear();
+    weight = 0;
+  }
+
+  public long getMaxWeight() {
+    return maxWeight;
+  }
+
+  public synchronized long getWeight() {
+    return weight;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * Returns the ratio of requests served from the cache.
+   * @return hit ratio between 0 and 1
+   */
+  public double getHitRatio() {
+    long hitCount = getHits();
+    long total = hitCount + getMisses();
+    return total == 0 ? 0 : (double) hitCount / total;
+  }
+
+}
@@ -0,0 +1,138 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.core.utils.concurrent;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs queries triggered by user input, such as search filters. Queries are debounced
+ * and executed one at a time: a query submitted while another one is pending replaces it,
+ * and results of superseded queries are discarded so only the newest result is delivered.
+ * Running queries are not interrupted, as JDBC connections don't support it reliably.
+ *
+ * @param <T> query result type
+ */
+public class LatestWinsExecutor<T> {
+
+  private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+  private final String name;
+  private final Duration debounce;
+  private final Consumer<Runnable> resultDispatcher;
+  private final ScheduledExecutorService executor;
+
+  private final AtomicLong generation = new AtomicLong();
+  private ScheduledFuture<?> pending;
+
+  private final AtomicLong executedQueries = new AtomicLong();
+  private final AtomicLong discardedResults = new AtomicLong();
+  private volatile long lastLatencyNanos = 0;
+  private final AtomicLong totalLatencyNanos = new AtomicLong();
+
+  /**
+   * Creates a new executor.
+   * @param name - executor name, used for the thread name and logs
+   * @param debounce - delay without new submission before a query is executed
+   * @param resultDispatcher - runs result callbacks, for example on the JavaFX thread
+   */
+  public LatestWinsExecutor(String name, Duration debounce, Consumer<Runnable> resultDispatcher) {
+    this.name = name;
+    this.debounce = debounce;
+    this.resultDispatcher = resultDispatcher;
+    this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Submits a query, superseding all previously submitted queries.
+   * @param query - query to execute
+   * @param onResult - result callback, only called if no newer query is submitted meanwhile
+   */
+  public synchronized void submit(Callable<T> query, Consumer<T> onResult) {
+    long queryGeneration = generation.incrementAndGet();
+    if (pending != null) {
+      pending.cancel(false);
+    }
+    pending = executor.schedule(() -> execute(queryGeneration, query, onResult),
+        debounce.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  private void execute(long queryGeneration, Callable<T> query, Consumer<T> onResult) {
+    if (queryGeneration != generation.get()) {
+      return;
+    }
+    long start = System.nanoTime();
+    T result;
+    try {
+      result = query.call();
+    } catch (Exception e) {
+      log.error("Query {} failed", name, e);
+      return;
+    }
+    lastLatencyNanos = System.nanoTime() - start;
+    totalLatencyNanos.addAndGet(lastLatencyNanos);
+    executedQueries.incrementAndGet();
+    log.debug("Query {} executed in {} ms", name, lastLatencyNanos / 1_000_000);
+
+    resultDispatcher.accept(() -> {
+      if (queryGeneration == generation.get()) {
+        onResult.accept(result);
+      } else {
+        discardedResults.incrementAndGet();
+      }
+    });
+  }
+
+  /**
+   * Stops the executor. Pending queries are not executed.
+   */
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  public long getExecutedQueries() {
+    return executedQueries.get();
+  }
+
+  public long getDiscardedResults() {
+    return discardedResults.get();
+  }
+
+  public Duration getLastLatency() {
+    return Duration.ofNanos(lastLatencyNanos);
+  }
+
+  public Duration getAverageLatency() {
+    long count = executedQueries.get();
+    return count == 0 ? Duration.ZERO : Duration.ofNanos(totalLatencyNanos.get() / count);
+  }
+
+}
@@ -0,0 +1,217 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owlplug.core.utils.concurrent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fetches resources, such as remote images, on a bounded number of threads.
+ * Pending fetches are executed by ascending priority, then in submission order.
+ * Concurrent fetches of the same key are coalesced into a single execution, and a
+ * pending fetch is cancelled once all its requesters released it.
+ * Running fetches are not interrupted.
+ *
+ * @param <K> fetched resource key
+ * @param <V> fetched resource type
+ */
+public class PriorityFetchExecutor<K, V> {
+
+  private final ThreadPoolExecutor executor;
+  private final Map<K, FetchTask> fetches = new HashMap<>();
+  private final AtomicLong sequence = new AtomicLong();
+  private final AtomicLong executedFetches = new AtomicLong();
+  private final AtomicLong coalescedFetches = new AtomicLong();
+  private final AtomicLong cancelledFetches = new AtomicLong();
+
+  /**
+   * Creates a new executor.
+   * @param name - executor name, used for thread names
+   * @param threads - maximum number of concurrent fetches
+   */
+  public PriorityFetchExecutor(String name, int threads) {
+    AtomicInteger threadCount = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+        new PriorityBlockingQueue<>(), runnable -> {
+          Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  /**
+   * Requests a resource. If a fetch of the same key is already pending or running,
+   * the request is attached to it and its priority is raised if needed.
+   * Each request must be released with {@link #release(Object)} if the result
+   * is no longer needed before completion.
+   * @param key - resource key
+   * @param priority - fetch priority, lower values are executed first
+   * @param loader - loads the resource
+   * @return a future completed with the resource, completed exceptionally if the fetch fails
+   *     or is cancelled
+   */
+  public synchronized CompletableFuture<V> fetch(K key, int priority, Callable<V> loader) {
+    return request(key, priority, loader, true);
+  }
+
+  /**
+   * Requests a resource without holding the fetch. The request is not counted: it must
+   * not be released, and it doesn't prevent other requesters from cancelling the fetch,
+   * in which case the returned future is completed exceptionally.
+   * @param key - resource key
+   * @param priority - fetch priority, lower values are executed first
+   * @param loader - loads the resource
+   * @return a future completed with the resource, completed exceptionally if the fetch fails
+   *     or is cancelled
+   */
+  public synchronized CompletableFuture<V> fetchDetached(K key, int priority, Callable<V> loader) {
+    return request(key, priority, loader, false);
+  }
+
+  private CompletableFuture<V> request(K key, int priority, Callable<V> loader, boolean counted) {
+    FetchTask task = fetches.get(key);
+    if (task != null) {
+      if (counted) {
+        task.requesters++;
+      }
+      coalescedFetches.incrementAndGet();
+      if (priority < task.priority) {
+        reschedule(task, priority);
+      }
+    } else {
+      task = new FetchTask(key, priority, loader, counted ? 1 : 0);
+      fetches.put(key, task);
+      executor.execute(task);
+    }
+    // Requesters receive a copy so cancelling it doesn't affect other requesters
+    return task.future.copy();
+  }
+
+  /**
+   * Changes the priority of a pending fetch.
+   * @param key - resource key
+   * @param priority - new fetch priority
+   */
+  public synchronized void setPriority(K key, int priority) {
+    FetchTask task = fetches.get(key);
+    if (task != null && task.priority != priority) {
+      reschedule(task, priority);
+    }
+  }
+
+  /**
+   * Releases a request. The fetch is cancelled if it is still pending and
+   * no other requester is waiting for it.
+   * @param key - resource key
+   */
+  public synchronized void release(K key) {
+    FetchTask task = fetches.get(key);
+    if (task == null) {
+      return;
+    }
+    task.requesters--;
+    if (task.requesters <= 0 && executor.remove(task)) {
+      fetches.remove(key);
+      task.future.cancel(false);
+      cancelledFetches.incrementAndGet();
+    }
+  }
+
+  /**
+   * Returns true if a fetch of the key is pending or running.
+   * @param key - resource key
+   * @return true if the key is being fetched
+   */
+  public synchronized boolean isFetching(K key) {
+    return fetches.containsKey(key);
+  }
+
+  /**
+   * Stops the executor. Pending fetches are not executed.
+   */
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  public long getExecutedFetches() {
+    return executedFetches.get();
+  }
+
+  public long getCoalescedFetches() {
+    return coalescedFetches.get();
+  }
+
+  public long getCancelledFetches() {
+    return cancelledFetches.get();
+  }
+
+  private void reschedule(FetchTask task, int priority) {
+    // A task which can't be removed from the queue is already running
+    if (executor.remove(task)) {
+      task.priority = priority;
+      task.sequence = sequence.incrementAndGet();
+      executor.execute(task);
+    }
+  }
+
+  private class FetchTask implements Runnable, Comparable<FetchTask> {
+
+    private final K key;
+    private final Callable<V> loader;
+    private final CompletableFuture<V> future = new CompletableFuture<>();
+    private int priority;
+    private long sequence;
+    private int requesters;
+
+    FetchTask(K key, int priority, Callable<V> loader, int requesters) {
+      this.key = key;
+      this.priority = priority;
+      this.loader = loader;
+      this.requesters = requesters;
+      this.sequence = PriorityFetchExecutor.this.sequence.incrementAndGet();
+    }
+
+    @Override
+    public void run() {
+      try {
+        future.complete(loader.call());
+      } catch (Exception e) {
+        future.completeExceptionally(e);
+      } finally {
+        executedFetches.incrementAndGet();
+        synchronized (PriorityFetchExecutor.this) {
+          fetches.remove(key, this);
+        }
+      }
+    }
+
+    @Override
+    public int compareTo(FetchTask other) {
+      int comparison = Integer.compare(priority, other.priority);
+      return comparison != 0 ? comparison : Long.compare(sequence, other.sequence);
+    }
+  }
+
+}
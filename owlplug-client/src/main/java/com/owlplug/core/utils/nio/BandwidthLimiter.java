@@ -0,0 +1,79 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owlplug.core.utils.nio;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the throughput of transfers sharing this limiter. Each transferred chunk
+ * reserves a time slot proportional to its size, callers sleep until their slot
+ * begins so the average throughput never exceeds the configured rate.
+ */
+public class BandwidthLimiter {
+
+  private final long bytesPerSecond;
+  private long nextSlotNanos = 0;
+
+  /**
+   * Creates a new limiter.
+   * @param bytesPerSecond - maximum throughput, 0 or less for an unlimited throughput
+   */
+  public BandwidthLimiter(long bytesPerSecond) {
+    this.bytesPerSecond = bytesPerSecond;
+  }
+
+  /**
+   * Creates a limiter which never waits.
+   * @return an unlimited limiter
+   */
+  public static BandwidthLimiter unlimited() {
+    return new BandwidthLimiter(0);
+  }
+
+  /**
+   * Waits until the given amount of bytes can be transferred.
+   * @param bytes - transferred bytes
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  public void acquire(long bytes) throws InterruptedException {
+    if (bytesPerSecond <= 0 || bytes <= 0) {
+      return;
+    }
+    long waitNanos;
+    synchronized (this) {
+      long now = System.nanoTime();
+      if (nextSlotNanos - now < 0) {
+        nextSlotNanos = now;
+      }
+      waitNanos = nextSlotNanos - now;
+      nextSlotNanos += TimeUnit.SECONDS.toNanos(bytes) / bytesPerSecond;
+    }
+    if (waitNanos > 0) {
+      TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+  }
+
+  public long getBytesPerSecond() {
+    return bytesPerSecond;
+  }
+
+  public boolean isUnlimited() {
+    return bytesPerSecond <= 0;
+  }
+
+}
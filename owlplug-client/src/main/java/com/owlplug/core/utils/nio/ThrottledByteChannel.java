@@ -0,0 +1,62 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owlplug.core.utils.nio;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Readable channel whose throughput is bounded by a {@link BandwidthLimiter}.
+ */
+public class ThrottledByteChannel implements ReadableByteChannel {
+
+  private final ReadableByteChannel rbc;
+  private final BandwidthLimiter limiter;
+
+  public ThrottledByteChannel(ReadableByteChannel rbc, BandwidthLimiter limiter) {
+    this.rbc = rbc;
+    this.limiter = limiter;
+  }
+
+  @Override
+  public int read(ByteBuffer bb) throws IOException {
+    int n = rbc.read(bb);
+    if (n > 0) {
+      try {
+        limiter.acquire(n);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Transfer interrupted");
+      }
+    }
+    return n;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return rbc.isOpen();
+  }
+
+  @Override
+  public void close() throws IOException {
+    rbc.close();
+  }
+
+}
@@ -0,0 +1,579 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.core.utils.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Typo-tolerant full-text index based on trigrams. Each document is made of weighted
+ * text fields. Queries are split in trigrams, and documents sharing enough trigrams
+ * with the query are ranked by similarity, so misspelled queries still find results.
+ * Documents can be added, updated and removed incrementally.
+ *
+ * @param <K> document key type
+ */
+public class TrigramIndex<K> {
+
+  /**
+   * Minimum similarity for a field to match a query.
+   */
+  private static final float MIN_SIMILARITY = 0.3f;
+  /**
+   * Score bonus of fields containing the whole query, ranking exact matches first.
+   */
+  private static final float SUBSTRING_BONUS = 1f;
+  /**
+   * Approximate cost of a binary search in a posting list, relative to a sequential read.
+   */
+  private static final int BINARY_SEARCH_COST = 16;
+  /**
+   * Flag of shared trigram counters marking fields which may contain the whole query.
+   */
+  private static final int SUBSTRING_CANDIDATE = 1 << 30;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private final Map<K, int[]> fieldsByKey = new HashMap<>();
+  private final List<Field<K>> fields = new ArrayList<>();
+  private final Map<String, IntList> postings = new HashMap<>();
+  // Field attributes by field id, read without loading fields while scoring candidates
+  private final IntList trigramCounts = new IntList();
+  private final IntList documentIds = new IntList();
+  private final FloatList weights = new FloatList();
+  private int minFieldTrigrams = Integer.MAX_VALUE;
+  private int removedFields = 0;
+  // Per-thread search counters, reset after each search instead of reallocated
+  private final ThreadLocal<SearchBuffers> buffers = ThreadLocal.withInitial(SearchBuffers::new);
+
+  /**
+   * Adds or replaces a document.
+   *
+   * @param key - document key
+   * @param texts - document field texts, null values are ignored
+   * @param weights - weight of each field in the document score
+   */
+  public void put(K key, List<String> texts, float[] weights) {
+    lock.writeLock().lock();
+    try {
+      removeFields(key);
+      List<Integer> fieldIds = new ArrayList<>();
+      int document = fields.size();
+      for (int i = 0; i < texts.size(); i++) {
+        String text = normalize(texts.get(i));
+        if (text.isEmpty()) {
+          continue;
+        }
+        Set<String> trigrams = trigrams(text);
+        int fieldId = fields.size();
+        fields.add(new Field<>(key, document, text, weights[i], trigrams.size()));
+        trigramCounts.add(trigrams.size());
+        minFieldTrigrams = Math.min(minFieldTrigrams, trigrams.size());
+        documentIds.add(document);
+        this.weights.add(weights[i]);
+        for (String trigram : trigrams) {
+          postings.computeIfAbsent(trigram, t -> new IntList()).add(fieldId);
+        }
+        fieldIds.add(fieldId);
+      }
+      fieldsByKey.put(key, fieldIds.stream().mapToInt(Integer::intValue).toArray());
+      compactIfNeeded();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes a document.
+   * @param key - document key
+   */
+  public void remove(K key) {
+    lock.writeLock().lock();
+    try {
+      removeFields(key);
+      fieldsByKey.remove(key);
+      compactIfNeeded();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public boolean contains(K key) {
+    lock.readLock().lock();
+    try {
+      return fieldsByKey.containsKey(key);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public Set<K> keySet() {
+    lock.readLock().lock();
+    try {
+      return new LinkedHashSet<>(fieldsByKey.keySet());
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return fieldsByKey.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns documents matching the query, best matches first.
+   *
+   * @param query - text to search
+   * @param limit - maximum number of results
+   * @return ranked matching documents
+   */
+  public List<SearchResult<K>> search(String query, int limit) {
+    String normalizedQuery = normalize(query);
+    if (normalizedQuery.isEmpty() || limit <= 0) {
+      return List.of();
+    }
+    Set<String> queryTrigrams = trigrams(normalizedQuery);
+
+    lock.readLock().lock();
+    try {
+      SearchBuffers searchBuffers = buffers.get();
+      searchBuffers.ensureCapacity(fields.size());
+      int[] sharedTrigrams = searchBuffers.sharedTrigrams;
+      float[] documentScores = searchBuffers.documentScores;
+      IntList candidates = searchBuffers.candidates;
+      IntList documents = searchBuffers.documents;
+      candidates.size = 0;
+      documents.size = 0;
+
+      List<IntList> lists = new ArrayList<>();
+      for (String trigram : queryTrigrams) {
+        IntList fieldIds = postings.get(trigram);
+        if (fieldIds != null) {
+          lists.add(fieldIds);
+        }
+      }
+      IntList substringFields = substringCandidates(queryTrigrams);
+      // Without trigrams inside words, any field sharing a trigram may contain the query
+      int minShared = substringFields == null ? 1 : minSharedTrigrams(queryTrigrams.size());
+      // A field sharing at least minShared trigrams appears in one of the shortest
+      // lists, the longest lists are only used to count trigrams of these candidates
+      lists.sort(Comparator.comparingInt(list -> list.size));
+      int candidateLists = Math.max(0, lists.size() - minShared + 1);
+      for (int l = 0; l < candidateLists; l++) {
+        IntList fieldIds = lists.get(l);
+        for (int i = 0; i < fieldIds.size; i++) {
+          int fieldId = fieldIds.values[i];
+          if (sharedTrigrams[fieldId]++ == 0) {
+            candidates.add(fieldId);
+          }
+        }
+      }
+      for (int l = candidateLists; l < lists.size(); l++) {
+        IntList fieldIds = lists.get(l);
+        if ((long) candidates.size * BINARY_SEARCH_COST < fieldIds.size) {
+          for (int i = 0; i < candidates.size; i++) {
+            if (Arrays.binarySearch(fieldIds.values, 0, fieldIds.size, candidates.values[i]) >= 0) {
+              sharedTrigrams[candidates.values[i]]++;
+            }
+          }
+        } else {
+          for (int i = 0; i < fieldIds.size; i++) {
+            if (sharedTrigrams[fieldIds.values[i]] > 0) {
+              sharedTrigrams[fieldIds.values[i]]++;
+            }
+          }
+        }
+      }
+      // Fields containing the query are scored even if they share too few trigrams
+      if (substringFields != null) {
+        for (int i = 0; i < substringFields.size; i++) {
+          int fieldId = substringFields.values[i];
+          if (sharedTrigrams[fieldId] == 0) {
+            for (IntList fieldIds : lists) {
+              if (Arrays.binarySearch(fieldIds.values, 0, fieldIds.size, fieldId) >= 0) {
+                sharedTrigrams[fieldId]++;
+              }
+            }
+            candidates.add(fieldId);
+          }
+          sharedTrigrams[fieldId] |= SUBSTRING_CANDIDATE;
+        }
+      }
+
+      // Scores candidates, keeping the best field score of each document
+      int[] fieldTrigramCounts = trigramCounts.values;
+      int[] fieldDocuments = documentIds.values;
+      float[] fieldWeights = weights.values;
+      for (int i = 0; i < candidates.size; i++) {
+        int fieldId = candidates.values[i];
+        int shared = sharedTrigrams[fieldId] & ~SUBSTRING_CANDIDATE;
+        boolean substringCandidate = substringFields == null || shared != sharedTrigrams[fieldId];
+        sharedTrigrams[fieldId] = 0;
+        if (shared < minShared && !substringCandidate) {
+          continue;
+        }
+        float similarity = 2f * shared / (queryTrigrams.size() + fieldTrigramCounts[fieldId]);
+        if (similarity < MIN_SIMILARITY && !substringCandidate) {
+          continue;
+        }
+        boolean substring = false;
+        if (substringCandidate) {
+          Field<K> field = fields.get(fieldId);
+          substring = field != null && field.text.contains(normalizedQuery);
+        }
+        if (similarity < MIN_SIMILARITY && !substring) {
+          continue;
+        }
+        float score = (similarity + (substring ? SUBSTRING_BONUS : 0)) * fieldWeights[fieldId];
+        // Removed fields have no weight
+        if (score <= 0) {
+          continue;
+        }
+        int document = fieldDocuments[fieldId];
+        if (documentScores[document] == 0) {
+          documents.add(document);
+        }
+        documentScores[document] = Math.max(documentScores[document], score);
+      }
+
+      // Bounded heap of the best documents, worst document at the root
+      int[] best = new int[Math.min(limit, documents.size)];
+      System.arraycopy(documents.values, 0, best, 0, best.length);
+      for (int i = best.length / 2 - 1; i >= 0; i--) {
+        siftDown(best, i, best.length, documentScores);
+      }
+      for (int i = best.length; i < documents.size; i++) {
+        int document = documents.values[i];
+        if (isWorse(best[0], document, documentScores)) {
+          best[0] = document;
+          siftDown(best, 0, best.length, documentScores);
+        }
+      }
+
+      // Removing the worst document first fills results from the end
+      SearchResult<K>[] results = newResultArray(best.length);
+      for (int size = best.length; size > 0; size--) {
+        int document = best[0];
+        results[size - 1] = new SearchResult<>(fields.get(document).key, documentScores[document]);
+        best[0] = best[size - 1];
+        siftDown(best, 0, size - 1, documentScores);
+      }
+      for (int i = 0; i < documents.size; i++) {
+        documentScores[documents.values[i]] = 0;
+      }
+      return Arrays.asList(results);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the minimum number of trigrams a field must share with the query to reach
+   * the minimum similarity. A field sharing s trigrams has at least s trigrams, and
+   * no less than the smallest field of the index.
+   * @param queryTrigrams - number of query trigrams
+   * @return minimum number of shared trigrams, more than queryTrigrams if no field can match
+   */
+  private int minSharedTrigrams(int queryTrigrams) {
+    int shared = 1;
+    while (shared <= queryTrigrams
+        && 2f * shared / ((float) queryTrigrams + Math.max(shared, minFieldTrigrams)) < MIN_SIMILARITY) {
+      shared++;
+    }
+    return shared;
+  }
+
+  /**
+   * Returns fields which may contain the whole query. These fields contain all query
+   * trigrams without spaces, so posting lists of these trigrams are intersected.
+   * @param queryTrigrams - query trigrams
+   * @return sorted field ids, or null if the query has no trigram without spaces
+   */
+  private IntList substringCandidates(Set<String> queryTrigrams) {
+    List<IntList> lists = new ArrayList<>();
+    for (String trigram : queryTrigrams) {
+      if (trigram.indexOf(' ') < 0) {
+        IntList fieldIds = postings.get(trigram);
+        if (fieldIds == null) {
+          return new IntList();
+        }
+        lists.add(fieldIds);
+      }
+    }
+    if (lists.isEmpty()) {
+      return null;
+    }
+    lists.sort(Comparator.comparingInt(list -> list.size));
+    IntList intersection = new IntList();
+    IntList shortest = lists.get(0);
+    for (int i = 0; i < shortest.size; i++) {
+      int fieldId = shortest.values[i];
+      boolean inAll = true;
+      for (int l = 1; l < lists.size() && inAll; l++) {
+        inAll = Arrays.binarySearch(lists.get(l).values, 0, lists.get(l).size, fieldId) >= 0;
+      }
+      if (inAll) {
+        intersection.add(fieldId);
+      }
+    }
+    return intersection;
+  }
+
+  /**
+   * Ranks documents by score, ties by indexing order.
+   * @return true if the first document ranks after the second one
+   */
+  private static boolean isWorse(int document, int other, float[] documentScores) {
+    int comparison = Float.compare(documentScores[document], documentScores[other]);
+    return comparison != 0 ? comparison < 0 : document > other;
+  }
+
+  private static void siftDown(int[] heap, int index, int size, float[] documentScores) {
+    int document = heap[index];
+    int child;
+    while ((child = 2 * index + 1) < size) {
+      if (child + 1 < size && isWorse(heap[child + 1], heap[child], documentScores)) {
+        child++;
+      }
+      if (!isWorse(heap[child], document, documentScores)) {
+        break;
+      }
+      heap[index] = heap[child];
+      index = child;
+    }
+    heap[index] = document;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <K> SearchResult<K>[] newResultArray(int size) {
+    return (SearchResult<K>[]) new SearchResult[size];
+  }
+
+  private void removeFields(K key) {
+    int[] fieldIds = fieldsByKey.get(key);
+    if (fieldIds != null) {
+      for (int fieldId : fieldIds) {
+        fields.set(fieldId, null);
+        weights.values[fieldId] = 0;
+        removedFields++;
+      }
+    }
+  }
+
+  /**
+   * Rebuilds postings without removed fields once they make up half of the index.
+   */
+  private void compactIfNeeded() {
+    if (removedFields > 1024 && removedFields > fields.size() / 2) {
+      compact();
+    }
+  }
+
+  private void compact() {
+    List<Field<K>> liveFields = new ArrayList<>();
+    Map<K, List<Integer>> liveIds = new HashMap<>();
+    postings.clear();
+    for (Field<K> field : fields) {
+      if (field == null) {
+        continue;
+      }
+      int fieldId = liveFields.size();
+      List<Integer> documentFieldIds = liveIds.computeIfAbsent(field.key, k -> new ArrayList<>());
+      documentFieldIds.add(fieldId);
+      liveFields.add(new Field<>(field.key, documentFieldIds.get(0), field.text, field.weight, field.trigramCount));
+      for (String trigram : trigrams(field.text)) {
+        postings.computeIfAbsent(trigram, t -> new IntList()).add(fieldId);
+      }
+    }
+    fields.clear();
+    fields.addAll(liveFields);
+    trigramCounts.size = 0;
+    documentIds.size = 0;
+    weights.size = 0;
+    minFieldTrigrams = Integer.MAX_VALUE;
+    for (Field<K> field : liveFields) {
+      trigramCounts.add(field.trigramCount);
+      minFieldTrigrams = Math.min(minFieldTrigrams, field.trigramCount);
+      documentIds.add(field.document);
+      weights.add(field.weight);
+    }
+    fieldsByKey.clear();
+    liveIds.forEach((key, ids) -> fieldsByKey.put(key, ids.stream().mapToInt(Integer::intValue).toArray()));
+    removedFields = 0;
+  }
+
+  /**
+   * Lower-cases text and replaces sequences of non letter or digit characters by a single space.
+   * @param text - text to normalize
+   * @return normalized text
+   */
+  static String normalize(String text) {
+    if (text == null) {
+      return "";
+    }
+    StringBuilder builder = new StringBuilder(text.length());
+    boolean space = false;
+    for (char c : text.toLowerCase(Locale.ROOT).toCharArray()) {
+      if (Character.isLetterOrDigit(c)) {
+        if (space && !builder.isEmpty()) {
+          builder.append(' ');
+        }
+        builder.append(c);
+        space = false;
+      } else {
+        space = true;
+      }
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Returns distinct trigrams of a normalized text. Each word is padded so short
+   * words and word boundaries produce trigrams.
+   * @param text - normalized text
+   * @return set of trigrams
+   */
+  static Set<String> trigrams(String text) {
+    Set<String> trigrams = new LinkedHashSet<>();
+    for (String word : text.split(" ")) {
+      String padded = "  " + word + " ";
+      for (int i = 0; i + 3 <= padded.length(); i++) {
+        trigrams.add(padded.substring(i, i + 3));
+      }
+    }
+    return trigrams;
+  }
+
+  /**
+   * A matching document and its score.
+   *
+   * @param <K> document key type
+   */
+  public static class SearchResult<K> {
+
+    private final K key;
+    private final float score;
+
+    SearchResult(K key, float score) {
+      this.key = key;
+      this.score = score;
+    }
+
+    public K getKey() {
+      return key;
+    }
+
+    public float getScore() {
+      return score;
+    }
+
+    @Override
+    public String toString() {
+      return key + " (" + score + ")";
+    }
+  }
+
+  private static class Field<K> {
+
+    private final K key;
+    /**
+     * Id of the first field of the document, identifying the document during searches.
+     */
+    private final int document;
+    private final String text;
+    private final float weight;
+    private final int trigramCount;
+
+    Field(K key, int document, String text, float weight, int trigramCount) {
+      this.key = Objects.requireNonNull(key);
+      this.document = document;
+      this.text = text;
+      this.weight = weight;
+      this.trigramCount = trigramCount;
+    }
+  }
+
+  /**
+   * Search counters indexed by field id. Counters are reset by the search using them,
+   * so only touched entries are cleared.
+   */
+  private static class SearchBuffers {
+
+    private int[] sharedTrigrams = new int[0];
+    private float[] documentScores = new float[0];
+    private final IntList candidates = new IntList();
+    private final IntList documents = new IntList();
+
+    void ensureCapacity(int fieldCount) {
+      if (sharedTrigrams.length < fieldCount) {
+        int capacity = Math.max(fieldCount, sharedTrigrams.length * 2);
+        sharedTrigrams = new int[capacity];
+        documentScores = new float[capacity];
+      }
+    }
+  }
+
+  /**
+   * Growable array of primitive floats.
+   */
+  private static class FloatList {
+
+    private float[] values = new float[4];
+    private int size = 0;
+
+    void add(float value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+  }
+
+  /**
+   * Growable array of primitive ints.
+   */
+  private static class IntList {
+
+    private int[] values = new int[4];
+    private int size = 0;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+  }
+
+}
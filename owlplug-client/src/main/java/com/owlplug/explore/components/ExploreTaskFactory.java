@@ -19,18 +19,24 @@
 package com.owlplug.explore.components;
 
 import com.owlplug.core.components.ApplicationDefaults;
+import com.owlplug.core.components.ApplicationPreferences;
 import com.owlplug.core.components.BaseTaskFactory;
 import com.owlplug.core.tasks.SimpleEventListener;
 import com.owlplug.core.tasks.TaskExecutionContext;
 import com.owlplug.core.utils.FileUtils;
+import com.owlplug.core.utils.cache.ContentAddressedStore;
 import com.owlplug.explore.model.PackageBundle;
 import com.owlplug.explore.repositories.RemotePackageRepository;
 import com.owlplug.explore.repositories.RemoteSourceRepository;
+import com.owlplug.explore.services.ExploreService;
+import com.owlplug.explore.services.ScreenshotPrefetchService;
 import com.owlplug.explore.tasks.BundleInstallTask;
 import com.owlplug.explore.tasks.SourceSyncTask;
 import com.owlplug.plugin.components.PluginTaskFactory;
 import java.io.File;
 import java.util.ArrayList;
+import javafx.concurrent.WorkerStateEvent;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -40,11 +46,21 @@ public class ExploreTaskFactory extends BaseTaskFactory {
   @Autowired
   private ApplicationDefaults applicationDefaults;
   @Autowired
+  private ApplicationPreferences prefs;
+  @Autowired
   private PluginTaskFactory pluginTaskFactory;
   @Autowired
   private RemoteSourceRepository remoteSourceRepository;
   @Autowired
   private RemotePackageRepository remotePackageRepository;
+  @Autowired
+  private ExploreService exploreService;
+  @Autowired
+  private CloseableHttpAsyncClient httpClient;
+  @Autowired
+  private ScreenshotPrefetchService screenshotPrefetchService;
+  @Autowired
+  private ContentAddressedStore bundleStore;
 
   private ArrayList<SimpleEventListener> syncSourcesListeners = new ArrayList<>();
 
@@ -56,7 +72,13 @@ public class ExploreTaskFactory extends BaseTaskFactory {
    */
   public TaskExecutionContext createSourceSyncTask() {
 
-    SourceSyncTask task = new SourceSyncTask(remoteSourceRepository, remotePackageRepository);
+    SourceSyncTask task = new SourceSyncTask(remoteSourceRepository, remotePackageRepository, httpClient,
+        new File(ApplicationDefaults.getRegistrySnapshotDirectory()));
+    exploreService.beginSync();
+    task.addEventHandler(WorkerStateEvent.WORKER_STATE_CANCELLED, e -> exploreService.endSync());
+    addCompletionHandler(task, exploreService::endSync);
+    // Syncs can partially update packages even if they fail
+    addCompletionHandler(task, exploreService::invalidatePackages);
     task.setOnSucceeded(e -> {
       notifyListeners(syncSourcesListeners);
     });
@@ -66,13 +88,20 @@ public class ExploreTaskFactory extends BaseTaskFactory {
 
   /**
    * Creates a task to download and installs a package in a directory.
+   * Background screenshot prefetch is stopped to leave bandwidth to the install.
+   * The download throughput is limited by the install bandwidth preference, in KB/s.
+   * Bundles already fetched are installed from the local bundle store.
    * @param bundle - package bundle to retrieve
    * @param targetDirectory - target install directory
    * @return task execution context
    */
   public TaskExecutionContext createBundleInstallTask(PackageBundle bundle, File targetDirectory) {
+    screenshotPrefetchService.stop();
     String path = FileUtils.convertPath(targetDirectory.getAbsolutePath());
-    return create(new BundleInstallTask(bundle, targetDirectory, applicationDefaults))
+    BundleInstallTask task = new BundleInstallTask(bundle, targetDirectory, applicationDefaults);
+    task.setBandwidthLimit(prefs.getLong(ApplicationDefaults.INSTALL_BANDWIDTH_LIMIT_KEY, 0) * 1024);
+    task.setBundleStore(bundleStore);
+    return create(task)
         .setOnSucceeded(e -> pluginTaskFactory.createPluginScanTask(path).scheduleNow());
   }
 
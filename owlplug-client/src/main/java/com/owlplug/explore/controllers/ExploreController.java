@@ -18,7 +18,7 @@
  
 package com.owlplug.explore.controllers;
 
-import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.owlplug.controls.Dialog;
 import com.owlplug.controls.DialogLayout;
 import com.owlplug.controls.MasonryPane;
@@ -26,10 +26,12 @@ import com.owlplug.controls.Popup;
 import com.owlplug.controls.Rippler;
 import com.owlplug.core.components.ApplicationDefaults;
 import com.owlplug.core.components.ImageCache;
+import com.owlplug.core.components.ImageCache.Resolution;
 import com.owlplug.core.components.LazyViewRegistry;
 import com.owlplug.core.controllers.BaseController;
 import com.owlplug.core.controllers.MainController;
 import com.owlplug.core.utils.FileUtils;
+import com.owlplug.core.utils.concurrent.LatestWinsExecutor;
 import com.owlplug.explore.components.ExploreTaskFactory;
 import com.owlplug.explore.controllers.dialogs.InstallStepDialogController;
 import com.owlplug.explore.model.PackageBundle;
@@ -38,19 +40,25 @@ import com.owlplug.explore.model.search.ExploreFilterCriteria;
 import com.owlplug.explore.model.search.ExploreFilterCriteriaType;
 import com.owlplug.explore.services.ExploreService;
 import com.owlplug.explore.ui.ExploreChipView;
+import com.owlplug.explore.ui.PackageBlocView;
 import com.owlplug.explore.ui.PackageBlocViewBuilder;
 import com.owlplug.plugin.model.PluginFormat;
 import java.io.File;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import javafx.application.Platform;
 import javafx.collections.ListChangeListener;
 import javafx.concurrent.Task;
 import javafx.fxml.FXML;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
 import javafx.geometry.Insets;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
@@ -76,6 +84,7 @@ public class ExploreController extends BaseController {
   private final Logger log = LoggerFactory.getLogger(this.getClass());
 
   private static final int PARTITION_SIZE = 20;
+  private static final Duration SEARCH_DEBOUNCE = Duration.ofMillis(150);
 
   @Autowired
   private ExploreService exploreService;
@@ -122,17 +131,37 @@ public class ExploreController extends BaseController {
   private PackageBlocViewBuilder packageBlocViewBuilder = null;
 
   /**
-   * Loaded packages from remote sources are displayed by partitions (like pagination).
-   * When the user scrolls the entire partition, the next one is appended in the
-   * UI.
+   * Ids of packages matching the current search are displayed by partitions (like pagination).
+   * When the user scrolls the entire partition, the next one is loaded from the
+   * database and appended in the UI.
    */
-  private Iterable<List<RemotePackage>> loadedPackagePartitions;
-  private Iterable<RemotePackage> loadedRemotePackages = new ArrayList<>();
+  private List<List<Long>> loadedPackagePartitions = List.of();
+  private List<Long> loadedPackageIds = List.of();
+  /**
+   * Set when packages may have been updated, displayed packages are then rebuilt even
+   * if the next search returns the same ids.
+   */
+  private boolean packagesOutdated = false;
+
+  /**
+   * Runs package searches, only the result of the latest search is displayed.
+   */
+  private final LatestWinsExecutor<List<Long>> searchExecutor =
+      new LatestWinsExecutor<>("owlplug-explore-search", SEARCH_DEBOUNCE, Platform::runLater);
+
+  /**
+   * Displayed package blocs, and image fetch state of blocs. Only blocs in the PENDING
+   * state hold a fetch request, which must be released if the image is no longer needed.
+   * States are updated by fetch threads on completion.
+   */
+  private final List<PackageBlocView> displayedBlocs = new ArrayList<>();
+  private final Map<PackageBlocView, ImageState> imageStates = new ConcurrentHashMap<>();
 
   /**
    * Counter of loaded partitions on UI.
    */
   private int displayedPartitions = 0;
+  private boolean partitionLoading = false;
 
   /**
    * FXML initialize.
@@ -221,17 +250,23 @@ public class ExploreController extends BaseController {
     });
 
     scrollPane.vvalueProperty().addListener((observable, oldValue, newValue) -> {
+      updatePackageImages();
       if (newValue.doubleValue() == 1) {
         displayNewPackagePartition();
       }
     });
+    scrollPane.viewportBoundsProperty().addListener((observable, oldValue, newValue) -> updatePackageImages());
+    masonryPane.heightProperty().addListener((observable, oldValue, newValue) -> updatePackageImages());
 
     lazyLoadLink.setOnAction(e -> {
       displayNewPackagePartition();
     });
     lazyLoadBar.setVisible(false);
 
-    exploreTaskFactory.addSyncSourcesListener(() -> refreshView());
+    exploreTaskFactory.addSyncSourcesListener(() -> {
+      exploreChipView.setPluginCreators(exploreService.getDistinctCreators());
+      refreshView();
+    });
     refreshView();
 
     masonryPane.setHSpacing(5);
@@ -266,23 +301,16 @@ public class ExploreController extends BaseController {
       criteriaList.add(new ExploreFilterCriteria(formats, ExploreFilterCriteriaType.FORMAT_LIST));
     }
 
-    Task<Iterable<RemotePackage>> task = new Task<>() {
-      @Override
-      protected Iterable<RemotePackage> call() throws Exception {
-        return exploreService.getRemotePackages(criteriaList);
-      }
-    };
-    task.setOnSucceeded(e -> {
-      displayPackages(task.getValue());
-    });
-    new Thread(task).start();
+    searchExecutor.submit(() -> exploreService.findRemotePackageIds(criteriaList), this::displayPackages);
 
   }
 
   /**
-   * Refresh Store View.
+   * Refresh Store View. Displayed packages are reloaded, as they may have been
+   * updated by a sync or a source change.
    */
   public synchronized void refreshView() {
+    packagesOutdated = true;
     performPackageSearch();
 
   }
@@ -290,72 +318,149 @@ public class ExploreController extends BaseController {
   /**
    * Display remote source package list.
    * 
-   * @param remotePackages - Remote package list
+   * @param packageIds - Ids of packages to display
    */
-  public synchronized void displayPackages(Iterable<RemotePackage> remotePackages) {
+  public synchronized void displayPackages(List<Long> packageIds) {
 
-    if (shouldRefreshPackages(remotePackages)) {
+    // Displayed packages are kept if the search result is unchanged and packages weren't updated
+    if (packagesOutdated || !packageIds.equals(loadedPackageIds)) {
+      packagesOutdated = false;
+      cancelPackageImages();
       this.masonryPane.getChildren().clear();
       this.masonryPane.requestLayout();
 
-      loadedRemotePackages = remotePackages;
-      loadedPackagePartitions = Iterables.partition(loadedRemotePackages, PARTITION_SIZE);
+      loadedPackageIds = packageIds;
+      loadedPackagePartitions = Lists.partition(loadedPackageIds, PARTITION_SIZE);
       displayedPartitions = 0;
+      partitionLoading = false;
       displayNewPackagePartition();
     }
   }
 
   private void displayNewPackagePartition() {
 
-    if (Iterables.size(loadedPackagePartitions) > displayedPartitions) {
-      for (RemotePackage remotePackage : Iterables.get(loadedPackagePartitions, displayedPartitions)) {
-        Rippler rippler = new Rippler(packageBlocViewBuilder.build(remotePackage));
-        rippler.setOnMouseClicked(e -> {
-          if (e.getButton().equals(MouseButton.PRIMARY)) {
-            selectPackage(remotePackage);
-          }
-        });
-        masonryPane.getChildren().add(rippler);
-      }
-      displayedPartitions += 1;
+    if (!partitionLoading && loadedPackagePartitions.size() > displayedPartitions) {
+      partitionLoading = true;
+      final List<List<Long>> partitions = loadedPackagePartitions;
+      final List<Long> partition = partitions.get(displayedPartitions);
+
+      Task<List<RemotePackage>> task = new Task<>() {
+        @Override
+        protected List<RemotePackage> call() throws Exception {
+          return exploreService.getRemotePackages(partition);
+        }
+      };
+      task.setOnSucceeded(e -> {
+        // Discards partitions of a previous search
+        if (partitions == loadedPackagePartitions) {
+          displayPackagePartition(task.getValue());
+        }
+      });
+      task.setOnFailed(e -> {
+        log.error("Packages partition can't be loaded", task.getException());
+        if (partitions == loadedPackagePartitions) {
+          partitionLoading = false;
+        }
+      });
+      new Thread(task).start();
+    }
+    
+    resultCounter.setText(this.masonryPane.getChildren().size() + " / " + this.loadedPackageIds.size());
 
-      if (Iterables.size(loadedPackagePartitions) == displayedPartitions) {
-        lazyLoadBar.setVisible(false);
-      } else {
-        lazyLoadBar.setVisible(true);
+  }
 
-      }
+  private void displayPackagePartition(List<RemotePackage> remotePackages) {
 
-      Platform.runLater(() -> {
-        masonryPane.requestLayout();
-        scrollPane.requestLayout();
+    for (RemotePackage remotePackage : remotePackages) {
+      PackageBlocView packageBlocView = packageBlocViewBuilder.build(remotePackage);
+      displayedBlocs.add(packageBlocView);
+      Rippler rippler = new Rippler(packageBlocView);
+      rippler.setOnMouseClicked(e -> {
+        if (e.getButton().equals(MouseButton.PRIMARY)) {
+          selectPackage(remotePackage);
+        }
       });
+      masonryPane.getChildren().add(rippler);
     }
-    
-    resultCounter.setText(this.masonryPane.getChildren().size() + " / " + Iterables.size(this.loadedRemotePackages));
+    displayedPartitions += 1;
+    partitionLoading = false;
+
+    if (loadedPackagePartitions.size() == displayedPartitions) {
+      lazyLoadBar.setVisible(false);
+    } else {
+      lazyLoadBar.setVisible(true);
+
+    }
+
+    Platform.runLater(() -> {
+      masonryPane.requestLayout();
+      scrollPane.requestLayout();
+      updatePackageImages();
+    });
+
+    resultCounter.setText(this.masonryPane.getChildren().size() + " / " + this.loadedPackageIds.size());
 
   }
 
   /**
-   * Returns true if the given package list is different from the previously
-   * loaded package list.
-   * 
-   * @param newPackages - the new package list
-   * @return
+   * Fetches thumbnails of displayed package blocs. Thumbnails of blocs in the viewport are fetched
+   * first, then images of blocs in the next screen. Fetches of blocs scrolled away from
+   * the viewport are cancelled.
    */
-  private boolean shouldRefreshPackages(Iterable<RemotePackage> newPackages) {
-
-    if (Iterables.size(newPackages) != Iterables.size(loadedRemotePackages)) {
-      return true;
+  private void updatePackageImages() {
+    Bounds viewport = scrollPane.localToScene(scrollPane.getLayoutBounds());
+    Bounds prefetchArea = new BoundingBox(viewport.getMinX(), viewport.getMinY() - viewport.getHeight(),
+        viewport.getWidth(), viewport.getHeight() * 3);
+
+    for (PackageBlocView bloc : displayedBlocs) {
+      if (bloc.isImageLoaded() || bloc.getScreenshotUrl() == null) {
+        continue;
+      }
+      Bounds blocBounds = bloc.localToScene(bloc.getLayoutBounds());
+      if (blocBounds.intersects(viewport)) {
+        requestPackageImage(bloc, ImageCache.VISIBLE_PRIORITY);
+      } else if (blocBounds.intersects(prefetchArea)) {
+        requestPackageImage(bloc, ImageCache.PREFETCH_PRIORITY);
+      } else {
+        // Failed images are fetched again when scrolled back
+        releasePackageImage(bloc);
+      }
     }
+  }
 
-    for (int i = 0; i < Iterables.size(newPackages); i++) {
-      if (!Iterables.get(newPackages, i).getId().equals(Iterables.get(loadedRemotePackages, i).getId())) {
-        return true;
+  private void requestPackageImage(PackageBlocView bloc, int priority) {
+    ImageState state = imageStates.putIfAbsent(bloc, ImageState.PENDING);
+    if (state == ImageState.PENDING) {
+      imageCache.setFetchPriority(bloc.getScreenshotUrl(), Resolution.THUMBNAIL, priority);
+      return;
+    } else if (state != null) {
+      return;
+    }
+    imageCache.fetch(bloc.getScreenshotUrl(), Resolution.THUMBNAIL, priority).whenComplete((image, exception) -> {
+      // Completion runs before another fetch of the same image can start, the bloc stops
+      // holding the request so it never releases a fetch requested by another bloc.
+      // Cancelled fetches were already released and removed from states.
+      if (exception == null && image != null && !image.isError()) {
+        if (imageStates.replace(bloc, ImageState.PENDING, ImageState.LOADED)) {
+          Platform.runLater(() -> bloc.setImage(image));
+        }
+      } else {
+        imageStates.replace(bloc, ImageState.PENDING, ImageState.FAILED);
       }
+    });
+  }
+
+  private void releasePackageImage(PackageBlocView bloc) {
+    if (imageStates.remove(bloc) == ImageState.PENDING) {
+      imageCache.cancelFetch(bloc.getScreenshotUrl(), Resolution.THUMBNAIL);
     }
+  }
 
-    return false;
+  private void cancelPackageImages() {
+    for (PackageBlocView bloc : imageStates.keySet()) {
+      releasePackageImage(bloc);
+    }
+    displayedBlocs.clear();
   }
 
   /**
@@ -364,8 +469,11 @@ public class ExploreController extends BaseController {
    * @param remotePackage - package
    */
   public void selectPackage(RemotePackage remotePackage) {
-    packageInfoController.setPackage(remotePackage);
-    packageInfoController.show();
+    // Displayed packages don't hold tags, the full package graph is loaded on demand
+    exploreService.getRemotePackage(remotePackage.getId()).ifPresent(p -> {
+      packageInfoController.setPackage(p);
+      packageInfoController.show();
+    });
   }
 
   public void addSearchChip(String chip) {
@@ -403,6 +511,14 @@ public class ExploreController extends BaseController {
     return false;
   }
 
+  /**
+   * Returns the package search executor, exposing search latency.
+   * @return package search executor
+   */
+  public LatestWinsExecutor<List<Long>> getSearchExecutor() {
+    return searchExecutor;
+  }
+
   /**
    * Requests masonry and scroll pane layout.
    */
@@ -411,4 +527,8 @@ public class ExploreController extends BaseController {
     scrollPane.requestLayout();
   }
 
+  private enum ImageState {
+    PENDING, LOADED, FAILED
+  }
+
 }
@@ -31,6 +31,8 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Index;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
 import java.util.HashSet;
@@ -38,7 +40,10 @@ import java.util.Set;
 
 @Entity
 @Table(indexes = { @Index(name = "IDX_PACKAGE_ID", columnList = "id"),
-    @Index(name = "IDX_PACKAGE_NAME", columnList = "name") })
+    @Index(name = "IDX_PACKAGE_NAME", columnList = "name"),
+    @Index(name = "IDX_PACKAGE_SOURCE_SLUG", columnList = "remoteSource_id, slug") })
+@NamedEntityGraph(name = "RemotePackage.details",
+    attributeNodes = { @NamedAttributeNode("bundles"), @NamedAttributeNode("tags") })
 public class RemotePackage {
 
   @Id
@@ -66,10 +71,11 @@ public class RemotePackage {
   @ManyToOne
   private RemoteSource remoteSource;
 
-  @OneToMany(mappedBy = "remotePackage", orphanRemoval = true, cascade = { CascadeType.PERSIST, CascadeType.REMOVE })
-  private Set<PackageBundle> bundles = new HashSet<>();
-  @OneToMany(mappedBy = "remotePackage", orphanRemoval = true, fetch = FetchType.EAGER, cascade = { CascadeType.PERSIST,
+  @OneToMany(mappedBy = "remotePackage", orphanRemoval = true, cascade = { CascadeType.PERSIST, CascadeType.MERGE,
       CascadeType.REMOVE })
+  private Set<PackageBundle> bundles = new HashSet<>();
+  @OneToMany(mappedBy = "remotePackage", orphanRemoval = true, fetch = FetchType.LAZY, cascade = { CascadeType.PERSIST,
+      CascadeType.MERGE, CascadeType.REMOVE })
   private Set<PackageTag> tags = new HashSet<>();
 
   public Long getId() {
@@ -40,6 +40,10 @@ public class RemoteSource {
   @Enumerated(EnumType.STRING)
   private SourceType type;
 
+  // HTTP validators of the last successfully synced registry
+  private String etag;
+  private String lastModified;
+
   @OneToMany(mappedBy = "remoteSource", orphanRemoval = true)
   private List<RemotePackage> packages;
 
@@ -55,6 +59,10 @@ public class RemoteSource {
     return id;
   }
 
+  public void setId(Long id) {
+    this.id = id;
+  }
+
   public String getName() {
     return name;
   }
@@ -90,4 +98,20 @@ public class RemoteSource {
   public void setType(SourceType type) {
     this.type = type;
   }
+
+  public String getEtag() {
+    return etag;
+  }
+
+  public void setEtag(String etag) {
+    this.etag = etag;
+  }
+
+  public String getLastModified() {
+    return lastModified;
+  }
+
+  public void setLastModified(String lastModified) {
+    this.lastModified = lastModified;
+  }
 }
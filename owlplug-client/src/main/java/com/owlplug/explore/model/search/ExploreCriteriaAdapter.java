@@ -18,52 +18,60 @@
  
 package com.owlplug.explore.model.search;
 
-import com.owlplug.explore.model.RemotePackage;
-import com.owlplug.explore.repositories.RemotePackageRepository;
 import com.owlplug.plugin.model.PluginType;
+import java.util.BitSet;
 import java.util.List;
-import org.springframework.data.jpa.domain.Specification;
 
 public class ExploreCriteriaAdapter {
 
-  public static Specification<RemotePackage> toSpecification(List<ExploreFilterCriteria> criteriaList) {
+  /**
+   * Evaluates criteria against an in-memory package index.
+   * @param criteriaList - criteria list
+   * @param index - package index
+   * @return packages matching all criteria
+   */
+  public static BitSet toBitSet(List<ExploreFilterCriteria> criteriaList, PackageSearchIndex index) {
 
-    Specification<RemotePackage> spec = Specification.unrestricted();
+    BitSet matches = index.all();
     for (ExploreFilterCriteria criteria : criteriaList) {
-      spec = spec.and(toSpecification(criteria));
+      matches.and(toBitSet(criteria, index));
+      if (matches.isEmpty()) {
+        break;
+      }
     }
-    return spec;
+    return matches;
 
   }
 
-  public static Specification<RemotePackage> toSpecification(ExploreFilterCriteria criteria) {
+  @SuppressWarnings("unchecked")
+  public static BitSet toBitSet(ExploreFilterCriteria criteria, PackageSearchIndex index) {
 
     if (criteria.getFilterType().equals(ExploreFilterCriteriaType.NAME)) {
-      return RemotePackageRepository.nameContains(String.valueOf(criteria.getValue()));
+      return index.nameMatches(String.valueOf(criteria.getValue()));
     }
     if (criteria.getFilterType().equals(ExploreFilterCriteriaType.CREATOR)) {
-      return RemotePackageRepository.hasCreator(String.valueOf(criteria.getValue()));
+      return index.hasCreator(String.valueOf(criteria.getValue()));
     }
     if (criteria.getFilterType().equals(ExploreFilterCriteriaType.TAG)) {
-      return RemotePackageRepository.hasTag(String.valueOf(criteria.getValue()));
+      return index.hasTag(String.valueOf(criteria.getValue()));
     }
     if (criteria.getFilterType().equals(ExploreFilterCriteriaType.TYPE)) {
-      return RemotePackageRepository.isTyped((PluginType) criteria.getValue());
+      return index.isTyped((PluginType) criteria.getValue());
     }
     if (criteria.getFilterType().equals(ExploreFilterCriteriaType.PLATFORM)) {
-      return RemotePackageRepository.hasPlatformTag(String.valueOf(criteria.getValue()));
+      return index.hasPlatformTag(List.of(String.valueOf(criteria.getValue())));
     }
     if (criteria.getFilterType().equals(ExploreFilterCriteriaType.PLATFORM_LIST)) {
-      return RemotePackageRepository.hasPlatformTag((List<String>) criteria.getValue());
+      return index.hasPlatformTag((List<String>) criteria.getValue());
     }
     if (criteria.getFilterType().equals(ExploreFilterCriteriaType.FORMAT)) {
-      return RemotePackageRepository.hasFormat(String.valueOf(criteria.getValue()));
+      return index.hasFormat(List.of(String.valueOf(criteria.getValue())));
     }
     if (criteria.getFilterType().equals(ExploreFilterCriteriaType.FORMAT_LIST)) {
-      return RemotePackageRepository.hasFormat((List<String>) criteria.getValue());
+      return index.hasFormat((List<String>) criteria.getValue());
     }
 
-    return Specification.unrestricted();
+    return index.all();
 
   }
 
@@ -0,0 +1,253 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.explore.model.search;
+
+import com.owlplug.plugin.model.PluginType;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary catalog of packages searchable attributes. Strings are stored once in a
+ * string table and referenced by index. The catalog is written after each source sync so
+ * the explore index can be built at startup without querying the database. The file is read
+ * in a single pass, then entries are copied to the index.
+ *
+ * <p>The catalog only serves search and filtering. It is not memory-mapped and stores no
+ * bundles, targets and formats are flattened per package. Package tiles and details are
+ * loaded from the database, which remains the reference for packages.
+ *
+ * <p>Layout, big-endian:
+ * <pre>
+ * header   magic, version, package count, string count, reference count
+ * strings  string count + 1 offsets in string data
+ * packages id (long), name, creator, type, tags start, targets start, formats start, end
+ * refs     string indexes of tags, targets and formats lists
+ * data     UTF-8 string data
+ * </pre>
+ * Null strings are stored as -1.
+ */
+public class PackageCatalog {
+
+  public static final String FILE_NAME = "catalog.bin";
+
+  private static final int MAGIC = 0x4F504354;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 5 * Integer.BYTES;
+  private static final int RECORD_SIZE = Long.BYTES + 7 * Integer.BYTES;
+
+  private final ByteBuffer buffer;
+  private final int packageCount;
+  private final int stringCount;
+  private final long stringOffsetsStart;
+  private final long packagesStart;
+  private final long refsStart;
+  private final long dataStart;
+
+  private PackageCatalog(ByteBuffer buffer) throws IOException {
+    this.buffer = buffer;
+    if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+      throw new IOException("Invalid package catalog format");
+    }
+    packageCount = buffer.getInt(8);
+    stringCount = buffer.getInt(12);
+    int refCount = buffer.getInt(16);
+    stringOffsetsStart = HEADER_SIZE;
+    packagesStart = stringOffsetsStart + (long) (stringCount + 1) * Integer.BYTES;
+    refsStart = packagesStart + (long) packageCount * RECORD_SIZE;
+    dataStart = refsStart + (long) refCount * Integer.BYTES;
+    if (packageCount < 0 || stringCount < 0 || refCount < 0 || dataStart > buffer.capacity()) {
+      throw new IOException("Package catalog is truncated");
+    }
+    int dataSize = buffer.getInt(offset(stringOffsetsStart + (long) stringCount * Integer.BYTES));
+    if (dataStart + dataSize != buffer.capacity()) {
+      throw new IOException("Package catalog is truncated");
+    }
+  }
+
+  /**
+   * Reads a catalog file.
+   * @param path - catalog file
+   * @return the catalog
+   * @throws IOException if the file can't be read or is not a valid catalog
+   */
+  public static PackageCatalog read(Path path) throws IOException {
+    return new PackageCatalog(ByteBuffer.wrap(Files.readAllBytes(path)));
+  }
+
+  /**
+   * Writes a catalog file. The file is replaced atomically.
+   * @param path - catalog file
+   * @param entries - packages to write
+   * @throws IOException if the file can't be written
+   */
+  public static void write(Path path, List<PackageIndexEntry> entries) throws IOException {
+    Map<String, Integer> strings = new LinkedHashMap<>();
+    List<Integer> refs = new ArrayList<>();
+    ByteArrayOutputStream records = new ByteArrayOutputStream(entries.size() * RECORD_SIZE);
+    DataOutputStream recordOut = new DataOutputStream(records);
+
+    for (PackageIndexEntry entry : entries) {
+      recordOut.writeLong(entry.getId());
+      recordOut.writeInt(stringIndex(strings, entry.getName()));
+      recordOut.writeInt(stringIndex(strings, entry.getCreator()));
+      recordOut.writeInt(stringIndex(strings, entry.getType() != null ? entry.getType().name() : null));
+      for (List<String> values : List.of(entry.getTags(), entry.getTargets(), entry.getFormats())) {
+        recordOut.writeInt(refs.size());
+        for (String value : values) {
+          refs.add(stringIndex(strings, value));
+        }
+      }
+      recordOut.writeInt(refs.size());
+    }
+
+    Files.createDirectories(path.toAbsolutePath().getParent());
+    Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+    try {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+        List<byte[]> data = new ArrayList<>(strings.size());
+        for (String string : strings.keySet()) {
+          data.add(string.getBytes(StandardCharsets.UTF_8));
+        }
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(entries.size());
+        out.writeInt(strings.size());
+        out.writeInt(refs.size());
+        int offset = 0;
+        for (byte[] bytes : data) {
+          out.writeInt(offset);
+          offset += bytes.length;
+        }
+        out.writeInt(offset);
+        records.writeTo(out);
+        for (int ref : refs) {
+          out.writeInt(ref);
+        }
+        for (byte[] bytes : data) {
+          out.write(bytes);
+        }
+      }
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  private static int stringIndex(Map<String, Integer> strings, String value) {
+    if (value == null) {
+      return -1;
+    }
+    return strings.computeIfAbsent(value, v -> strings.size());
+  }
+
+  public int size() {
+    return packageCount;
+  }
+
+  public long getId(int position) {
+    return buffer.getLong(offset(record(position)));
+  }
+
+  public String getName(int position) {
+    return string(buffer.getInt(offset(record(position) + 8)));
+  }
+
+  public String getCreator(int position) {
+    return string(buffer.getInt(offset(record(position) + 12)));
+  }
+
+  public PluginType getType(int position) {
+    String type = string(buffer.getInt(offset(record(position) + 16)));
+    return type != null ? PluginType.valueOf(type) : null;
+  }
+
+  public List<String> getTags(int position) {
+    return strings(record(position) + 20);
+  }
+
+  public List<String> getTargets(int position) {
+    return strings(record(position) + 24);
+  }
+
+  public List<String> getFormats(int position) {
+    return strings(record(position) + 28);
+  }
+
+  /**
+   * Reads all packages of the catalog.
+   * @return package entries, in catalog order
+   */
+  public List<PackageIndexEntry> getEntries() {
+    List<PackageIndexEntry> entries = new ArrayList<>(packageCount);
+    for (int i = 0; i < packageCount; i++) {
+      PackageIndexEntry entry = new PackageIndexEntry(getId(i), getName(i), getCreator(i), getType(i));
+      entry.getTags().addAll(getTags(i));
+      entry.getTargets().addAll(getTargets(i));
+      entry.getFormats().addAll(getFormats(i));
+      entries.add(entry);
+    }
+    return entries;
+  }
+
+  private long record(int position) {
+    return packagesStart + (long) position * RECORD_SIZE;
+  }
+
+  /**
+   * Reads strings of a list stored between the given record field and the next one.
+   */
+  private List<String> strings(long field) {
+    int start = buffer.getInt(offset(field));
+    int end = buffer.getInt(offset(field + Integer.BYTES));
+    List<String> values = new ArrayList<>(end - start);
+    for (int i = start; i < end; i++) {
+      values.add(string(buffer.getInt(offset(refsStart + (long) i * Integer.BYTES))));
+    }
+    return values;
+  }
+
+  private String string(int index) {
+    if (index < 0 || index >= stringCount) {
+      return null;
+    }
+    long offsetPosition = stringOffsetsStart + (long) index * Integer.BYTES;
+    int start = buffer.getInt(offset(offsetPosition));
+    int end = buffer.getInt(offset(offsetPosition + Integer.BYTES));
+    return new String(buffer.array(), offset(dataStart + start), end - start, StandardCharsets.UTF_8);
+  }
+
+  private int offset(long position) {
+    if (position < 0 || position > buffer.capacity()) {
+      throw new IndexOutOfBoundsException("Package catalog offset out of bounds: " + position);
+    }
+    return (int) position;
+  }
+
+}
@@ -0,0 +1,73 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.explore.model.search;
+
+import com.owlplug.plugin.model.PluginType;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Searchable attributes of a remote package, loaded without the package entity graph.
+ */
+public class PackageIndexEntry {
+
+  private final Long id;
+  private final String name;
+  private final String creator;
+  private final PluginType type;
+  private final List<String> tags = new ArrayList<>();
+  private final List<String> targets = new ArrayList<>();
+  private final List<String> formats = new ArrayList<>();
+
+  public PackageIndexEntry(Long id, String name, String creator, PluginType type) {
+    this.id = id;
+    this.name = name;
+    this.creator = creator;
+    this.type = type;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getCreator() {
+    return creator;
+  }
+
+  public PluginType getType() {
+    return type;
+  }
+
+  public List<String> getTags() {
+    return tags;
+  }
+
+  public List<String> getTargets() {
+    return targets;
+  }
+
+  public List<String> getFormats() {
+    return formats;
+  }
+
+}
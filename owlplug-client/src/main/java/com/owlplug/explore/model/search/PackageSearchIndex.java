@@ -0,0 +1,245 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.explore.model.search;
+
+import com.owlplug.core.utils.search.TrigramIndex;
+import com.owlplug.plugin.model.PluginType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable in-memory index of remote packages. Each package is identified by its
+ * position in the index and every indexed attribute is mapped to the set of packages
+ * holding it. Criteria are evaluated by intersecting these sets, without querying
+ * the database. Only package ids are kept, matching packages are loaded page by page.
+ * Names and creators are also indexed by trigrams, for typo-tolerant and ranked
+ * name searches.
+ */
+public class PackageSearchIndex {
+
+  private static final float[] TEXT_WEIGHTS = {1f, 0.6f};
+
+  private final long[] ids;
+  private final String[] lowerCaseNames;
+  private final Map<String, BitSet> nameTokens = new HashMap<>();
+  private final Map<String, BitSet> creators = new HashMap<>();
+  private final Map<String, BitSet> tags = new HashMap<>();
+  private final Map<PluginType, BitSet> types = new HashMap<>();
+  private final Map<String, BitSet> platformTags = new HashMap<>();
+  private final Map<String, BitSet> formats = new HashMap<>();
+  private final TrigramIndex<Integer> textIndex = new TrigramIndex<>();
+
+  /**
+   * Creates an index from package attributes.
+   * @param entries - packages to index
+   */
+  public PackageSearchIndex(List<PackageIndexEntry> entries) {
+    this.ids = new long[entries.size()];
+    this.lowerCaseNames = new String[entries.size()];
+
+    for (int i = 0; i < entries.size(); i++) {
+      PackageIndexEntry entry = entries.get(i);
+      ids[i] = entry.getId();
+      lowerCaseNames[i] = entry.getName() != null ? entry.getName().toLowerCase(Locale.ROOT) : "";
+      for (String token : tokenize(lowerCaseNames[i])) {
+        add(nameTokens, token, i);
+      }
+      textIndex.put(i, Arrays.asList(entry.getName(), entry.getCreator()), TEXT_WEIGHTS);
+      if (entry.getCreator() != null) {
+        add(creators, entry.getCreator(), i);
+      }
+      if (entry.getType() != null) {
+        add(types, entry.getType(), i);
+      }
+      for (String tag : entry.getTags()) {
+        if (tag != null) {
+          add(tags, tag.toLowerCase(Locale.ROOT), i);
+        }
+      }
+      for (String target : entry.getTargets()) {
+        add(platformTags, target, i);
+      }
+      for (String format : entry.getFormats()) {
+        add(formats, format, i);
+      }
+    }
+  }
+
+  public int size() {
+    return ids.length;
+  }
+
+  /**
+   * Returns ids of packages matching the given set, in index order.
+   * @param matches - matching packages
+   * @return list of package ids
+   */
+  public List<Long> getIds(BitSet matches) {
+    List<Long> result = new ArrayList<>(matches.cardinality());
+    for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+      result.add(ids[i]);
+    }
+    return result;
+  }
+
+  /**
+   * Returns ids of packages matching the given set, packages best matching the query
+   * first, then other packages in index order.
+   * @param matches - matching packages
+   * @param query - text used to rank packages by name and creator
+   * @return list of package ids
+   */
+  public List<Long> getIds(BitSet matches, String query) {
+    List<Long> result = new ArrayList<>(matches.cardinality());
+    BitSet unranked = (BitSet) matches.clone();
+    for (TrigramIndex.SearchResult<Integer> searchResult : textIndex.search(query, ids.length)) {
+      if (unranked.get(searchResult.getKey())) {
+        result.add(ids[searchResult.getKey()]);
+        unranked.clear(searchResult.getKey());
+      }
+    }
+    result.addAll(getIds(unranked));
+    return result;
+  }
+
+  /**
+   * Returns all indexed packages.
+   * @return set of all packages
+   */
+  public BitSet all() {
+    BitSet all = new BitSet(ids.length);
+    all.set(0, ids.length);
+    return all;
+  }
+
+  /**
+   * Returns packages with a name containing the given text, ignoring case.
+   * Name tokens are used to select candidates before checking full names.
+   * @param text - text to find
+   * @return matching packages
+   */
+  public BitSet nameContains(String text) {
+    String query = text.toLowerCase(Locale.ROOT);
+    List<String> queryTokens = tokenize(query);
+
+    BitSet candidates = queryTokens.isEmpty() ? all() : null;
+    for (String queryToken : queryTokens) {
+      BitSet tokenMatches = new BitSet(ids.length);
+      for (Map.Entry<String, BitSet> entry : nameTokens.entrySet()) {
+        if (entry.getKey().contains(queryToken)) {
+          tokenMatches.or(entry.getValue());
+        }
+      }
+      if (candidates == null) {
+        candidates = tokenMatches;
+      } else {
+        candidates.and(tokenMatches);
+      }
+    }
+
+    BitSet matches = new BitSet(ids.length);
+    for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+      if (lowerCaseNames[i].contains(query)) {
+        matches.set(i);
+      }
+    }
+    return matches;
+  }
+
+  /**
+   * Returns packages with a name containing the given text, or with a name or creator
+   * similar to it, tolerating typos.
+   * @param text - text to find
+   * @return matching packages
+   */
+  public BitSet nameMatches(String text) {
+    BitSet matches = nameContains(text);
+    for (TrigramIndex.SearchResult<Integer> searchResult : textIndex.search(text, ids.length)) {
+      matches.set(searchResult.getKey());
+    }
+    return matches;
+  }
+
+  public BitSet hasCreator(String creator) {
+    return lookup(creators, creator);
+  }
+
+  public BitSet hasTag(String tag) {
+    return lookup(tags, tag.toLowerCase(Locale.ROOT));
+  }
+
+  public BitSet isTyped(PluginType type) {
+    return lookup(types, type);
+  }
+
+  public BitSet hasPlatformTag(Collection<String> platformTagList) {
+    return lookupAny(platformTags, platformTagList);
+  }
+
+  public BitSet hasFormat(Collection<String> formatList) {
+    return lookupAny(formats, formatList);
+  }
+
+  private <K> BitSet lookup(Map<K, BitSet> postings, K key) {
+    BitSet bitSet = postings.get(key);
+    return bitSet != null ? (BitSet) bitSet.clone() : new BitSet(ids.length);
+  }
+
+  private BitSet lookupAny(Map<String, BitSet> postings, Collection<String> keys) {
+    BitSet result = new BitSet(ids.length);
+    for (String key : keys) {
+      BitSet bitSet = postings.get(key);
+      if (bitSet != null) {
+        result.or(bitSet);
+      }
+    }
+    return result;
+  }
+
+  private static <K> void add(Map<K, BitSet> postings, K key, int position) {
+    postings.computeIfAbsent(key, k -> new BitSet()).set(position);
+  }
+
+  /**
+   * Splits a lower-cased text in letter or digit sequences.
+   * @param text - text to split
+   * @return list of tokens
+   */
+  static List<String> tokenize(String text) {
+    List<String> tokens = new ArrayList<>();
+    int start = -1;
+    for (int i = 0; i <= text.length(); i++) {
+      boolean tokenChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+      if (tokenChar && start < 0) {
+        start = i;
+      } else if (!tokenChar && start >= 0) {
+        tokens.add(text.substring(start, i));
+        start = -1;
+      }
+    }
+    return tokens;
+  }
+
+}
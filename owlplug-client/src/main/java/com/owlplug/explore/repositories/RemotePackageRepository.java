@@ -19,155 +19,127 @@
 package com.owlplug.explore.repositories;
 
 import com.owlplug.explore.model.RemotePackage;
-import com.owlplug.plugin.model.PluginType;
-import jakarta.persistence.criteria.Fetch;
-import jakarta.persistence.criteria.Join;
-import jakarta.persistence.criteria.JoinType;
+import com.owlplug.explore.model.RemoteSource;
+import com.owlplug.explore.model.search.PackageIndexEntry;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
-import org.springframework.data.jpa.domain.Specification;
+import java.util.function.Function;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface RemotePackageRepository extends JpaRepository<RemotePackage, Long>,
                                                      JpaSpecificationExecutor<RemotePackage> {
 
   /**
-   * Store enabled filtering JPA Specification.
-   * 
-   * @return The JPA specification
+   * Loads a package with its bundles and tags for detail display.
+   * @param id package id
+   * @return the package
    */
-  static Specification<RemotePackage> sourceEnabled() {
-    return (remotePackage, cq, cb) -> cb.equal(remotePackage.get("remoteSource").get("enabled"), true);
-  }
+  @EntityGraph("RemotePackage.details")
+  Optional<RemotePackage> findWithDetailsById(Long id);
 
   /**
-   * Name filtering JPA Specification.
-   * 
-   * @param name - The package name
-   * @return The JPA specification
+   * Loads packages of a source with their bundles and tags, by slug.
+   * @param remoteSource the source
+   * @param slugs package slugs
+   * @return packages of the source having one of the slugs
    */
-  static Specification<RemotePackage> nameContains(String name) {
-    return (remotePackage, cq, cb) -> cb.like(cb.lower(remotePackage.get("name")), "%" + name.toLowerCase() + "%");
-  }
-  
+  @EntityGraph("RemotePackage.details")
+  List<RemotePackage> findByRemoteSourceAndSlugIn(RemoteSource remoteSource, Collection<String> slugs);
+
   /**
-   * Creator name filtering JPA Specification.
-   * @param creator - The creator name
-   * @return The JPA Specification
+   * Loads packages of a source without slug with their bundles and tags, by name.
+   * @param remoteSource the source
+   * @param names package names
+   * @return packages of the source without slug having one of the names
    */
-  static Specification<RemotePackage> hasCreator(String creator) {
-    return (remotePackage, cq, cb) -> cb.equal(remotePackage.get("creator"), creator);
-  }
-
+  @EntityGraph("RemotePackage.details")
+  List<RemotePackage> findByRemoteSourceAndSlugIsNullAndNameIn(RemoteSource remoteSource, Collection<String> names);
 
   /**
-   * Bundle format filtering JPA Specification to filter packages matching the given format.
-   *
-   * @param format - The platformTag to find
-   * @return The JPA Specification
+   * Returns ids of all packages of a source.
+   * @param remoteSource the source
+   * @return package ids
    */
-  @SuppressWarnings("unchecked")
-  static Specification<RemotePackage> hasFormat(String format) {
-    return (remotePackage, cq, cb) -> {
-      Join<Object, Object> bundles = (Join<Object, Object>) remotePackage.fetch("bundles", JoinType.INNER);
-      return bundles.join("formats").in(format);
-    };
-  }
+  @Query("SELECT p.id FROM RemotePackage p WHERE p.remoteSource = :remoteSource")
+  List<Long> findIdsByRemoteSource(@Param("remoteSource") RemoteSource remoteSource);
 
   /**
-   * Platform filtering JPA Specification Filter packages matching the given
-   * platformTag or packages without platform assignment.
-   *
-   * @param formatList - The compatible platformTagList to find
-   * @return The JPA Specification
+   * Loads a page of packages with their bundles.
+   * @param ids package ids
+   * @return packages, in no particular order
    */
-  @SuppressWarnings("unchecked")
-  static Specification<RemotePackage> hasFormat(List<String> formatList) {
-    return (remotePackage, cq, cb) -> {
-      Join<Object, Object> bundles = (Join<Object, Object>) remotePackage.fetch("bundles", JoinType.INNER);
-      return bundles.join("formats").in(formatList);
-
-    };
-  }
+  @EntityGraph(attributePaths = "bundles")
+  List<RemotePackage> findByIdIn(Collection<Long> ids);
 
   /**
-   * Platform filtering JPA Specification Filter packages matching the given platformTag.
-   * 
-   * @param platformTag - The platformTag to find
-   * @return The JPA Specification
+   * Loads searchable attributes of packages from enabled sources, without tags and bundles.
+   * @return index entries ordered by package id
    */
-  @SuppressWarnings("unchecked")
-  static Specification<RemotePackage> hasPlatformTag(String platformTag) {
-    return (remotePackage, cq, cb) -> {
-      Join<Object, Object> bundles = (Join<Object, Object>) remotePackage.fetch("bundles", JoinType.INNER);
-      return bundles.join("targets").in(platformTag);
-    };
-  }
+  @Query("SELECT new com.owlplug.explore.model.search.PackageIndexEntry(p.id, p.name, p.creator, p.type) "
+      + "FROM RemotePackage p WHERE p.remoteSource.enabled = true ORDER BY p.id")
+  List<PackageIndexEntry> findIndexEntriesFromEnabledSources();
 
   /**
-   * Platform filtering JPA Specification Filter packages matching the given
-   * platformTag or packages without platform assignment.
-   * 
-   * @param platformTagList - The compatible platformTagList to find
-   * @return The JPA Specification
+   * Loads searchable attributes of packages from enabled sources, including tags,
+   * bundle targets and formats.
+   * @return index entries ordered by package id
    */
-  @SuppressWarnings("unchecked")
-  static Specification<RemotePackage> hasPlatformTag(List<String> platformTagList) {
-    return (remotePackage, cq, cb) -> {
-      Join<Object, Object> bundles = (Join<Object, Object>) remotePackage.fetch("bundles", JoinType.INNER);
-      return bundles.join("targets").in(platformTagList);
-
-    };
+  default List<PackageIndexEntry> loadIndexEntriesFromEnabledSources() {
+    List<PackageIndexEntry> entries = findIndexEntriesFromEnabledSources();
+    Map<Long, PackageIndexEntry> entriesById = new HashMap<>();
+    for (PackageIndexEntry entry : entries) {
+      entriesById.put(entry.getId(), entry);
+    }
+    addIndexAttributes(entriesById, findTagsFromEnabledSources(), PackageIndexEntry::getTags);
+    addIndexAttributes(entriesById, findBundleTargetsFromEnabledSources(), PackageIndexEntry::getTargets);
+    addIndexAttributes(entriesById, findBundleFormatsFromEnabledSources(), PackageIndexEntry::getFormats);
+    return entries;
   }
 
-  /**
-   * Eagerly fetch bundles and targets relationships.
-   *
-   * @return The JPA Specification
-   */
-  @SuppressWarnings("unchecked")
-  static Specification<RemotePackage> fetchBundlesAndTargets() {
-    return (root, query, cb) -> {
-      Fetch<Object, Object> bundlesFetch = root.fetch("bundles", JoinType.INNER);
-      bundlesFetch.fetch("targets", JoinType.LEFT);
-
-      // Always true predicate for WHERE clause
-      return cb.conjunction();
-    };
+  private static void addIndexAttributes(Map<Long, PackageIndexEntry> entriesById, List<Object[]> rows,
+      Function<PackageIndexEntry, List<String>> attribute) {
+    for (Object[] row : rows) {
+      PackageIndexEntry entry = entriesById.get((Long) row[0]);
+      if (entry != null && row[1] != null) {
+        attribute.apply(entry).add((String) row[1]);
+      }
+    }
   }
 
-  /**
-   * Package tag filtering specification. Filter packages matching the given tags
-   * 
-   * @param tag - The tag to find
-   * @return The JPA Specification
-   */
-  @SuppressWarnings("unchecked")
-  static Specification<RemotePackage> hasTag(String tag) {
-    return (remotePackage, cq, cb) -> {
-      Join<Object, Object> groupPath = (Join<Object, Object>) remotePackage.fetch("tags", JoinType.INNER);
-      return cb.equal(cb.lower(groupPath.get("name")), tag.toLowerCase());
+  @Query("SELECT t.remotePackage.id, t.name FROM PackageTag t WHERE t.remotePackage.remoteSource.enabled = true")
+  List<Object[]> findTagsFromEnabledSources();
 
-    };
-  }
+  @Query("SELECT b.remotePackage.id, t FROM PackageBundle b JOIN b.targets t "
+      + "WHERE b.remotePackage.remoteSource.enabled = true")
+  List<Object[]> findBundleTargetsFromEnabledSources();
 
+  @Query("SELECT b.remotePackage.id, f FROM PackageBundle b JOIN b.formats f "
+      + "WHERE b.remotePackage.remoteSource.enabled = true")
+  List<Object[]> findBundleFormatsFromEnabledSources();
+  
   /**
-   * Package type filtering specification. Filter packages matching the given type
-   * 
-   * @param type - The type to find
-   * @return The JPA Specification
+   * Returns id, name, slug, creator, version and screenshot url of all packages.
+   * @return package rows ordered by id
    */
-  static Specification<RemotePackage> isTyped(PluginType type) {
-    return (remotePackage, cq, cb) -> {
-      return cb.equal(remotePackage.get("type"), type);
+  @Query("SELECT p.id, p.name, p.slug, p.creator, p.version, p.screenshotUrl FROM RemotePackage p ORDER BY p.id")
+  List<Object[]> findPackageMatchRows();
 
-    };
-  }
+  /**
+   * Returns id and screenshot url of packages from enabled sources having a screenshot.
+   * @return package rows ordered by id
+   */
+  @Query("SELECT p.id, p.screenshotUrl FROM RemotePackage p "
+      + "WHERE p.remoteSource.enabled = true AND p.screenshotUrl IS NOT NULL ORDER BY p.id")
+  List<Object[]> findScreenshotsFromEnabledSources();
 
-  public Iterable<RemotePackage> findByNameContainingIgnoreCase(String name);
-  
   @Query("SELECT DISTINCT p.creator FROM RemotePackage p")
   public List<String> findDistinctCreators();
   
@@ -21,8 +21,11 @@ package com.owlplug.explore.services;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.owlplug.core.components.ApplicationDefaults;
 import com.owlplug.core.model.RuntimePlatform;
 import com.owlplug.core.services.BaseService;
+import com.owlplug.core.utils.cache.SnapshotCache;
 import com.owlplug.explore.components.ExploreTaskFactory;
 import com.owlplug.explore.model.PackageBundle;
 import com.owlplug.explore.model.RemotePackage;
@@ -34,24 +37,36 @@ import com.owlplug.explore.model.mappers.registry.RegistryMapper;
 import com.owlplug.explore.model.mappers.registry.RegistryModelAdapter;
 import com.owlplug.explore.model.search.ExploreCriteriaAdapter;
 import com.owlplug.explore.model.search.ExploreFilterCriteria;
+import com.owlplug.explore.model.search.ExploreFilterCriteriaType;
+import com.owlplug.explore.model.search.PackageCatalog;
+import com.owlplug.explore.model.search.PackageIndexEntry;
+import com.owlplug.explore.model.search.PackageSearchIndex;
 import com.owlplug.explore.repositories.RemotePackageRepository;
 import com.owlplug.explore.repositories.RemoteSourceRepository;
 import com.owlplug.plugin.model.PluginFormat;
 import com.owlplug.plugin.services.PluginService;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
-import org.apache.hc.client5.http.classic.methods.HttpGet;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.core5.http.HttpEntity;
-import org.apache.hc.core5.http.io.entity.EntityUtils;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import jakarta.annotation.PostConstruct;
 
@@ -67,6 +82,19 @@ public class ExploreService extends BaseService {
   private ExploreTaskFactory exploreTaskFactory;
   @Autowired
   private PluginService pluginService;
+  @Autowired
+  private CloseableHttpAsyncClient httpClient;
+
+  /**
+   * Package search index and unmodifiable creator list for repeated explore lookups.
+   * Package entities are never cached. Invalidated when a source sync completes and
+   * when sources are updated.
+   */
+  private final SnapshotCache<String, PackageSearchIndex> searchIndexCache =
+      new SnapshotCache<>("Package search index", 1);
+  private final SnapshotCache<String, List<String>> creatorCache =
+      new SnapshotCache<>("Package creators", 1);
+  private final AtomicInteger runningSyncs = new AtomicInteger();
 
   @PostConstruct
   private void init() {
@@ -112,22 +140,144 @@ public class ExploreService extends BaseService {
   }
 
   /**
-   * Retrieves packages from store with name matching the given criteria and
-   * compatible with the current platform.
+   * Retrieves ids of packages matching the given criteria. Packages best matching name
+   * criteria come first, other packages are ordered by id.
+   * Packages are then loaded page by page using {@link #getRemotePackages(List)}.
    *
    * @param criteriaList criteria list
-   * @return list of remote packages
+   * @return list of remote package ids
    */
-  public Iterable<RemotePackage> getRemotePackages(List<ExploreFilterCriteria> criteriaList) {
-    Specification<RemotePackage> spec = RemotePackageRepository.sourceEnabled()
-        .and(RemotePackageRepository.fetchBundlesAndTargets());
-    spec = spec.and(ExploreCriteriaAdapter.toSpecification(criteriaList));
+  public List<Long> findRemotePackageIds(List<ExploreFilterCriteria> criteriaList) {
+    PackageSearchIndex index = getSearchIndex();
+    BitSet matches = ExploreCriteriaAdapter.toBitSet(criteriaList, index);
+    String query = criteriaList.stream()
+        .filter(criteria -> criteria.getFilterType().equals(ExploreFilterCriteriaType.NAME))
+        .map(criteria -> String.valueOf(criteria.getValue()))
+        .collect(Collectors.joining(" "));
+    return index.getIds(matches, query);
+  }
 
-    return remotePackageRepository.findAll(spec);
+  /**
+   * Loads a page of packages with their bundles.
+   *
+   * @param ids ids of packages in the page
+   * @return packages in the same order as ids, deleted packages are skipped
+   */
+  public List<RemotePackage> getRemotePackages(List<Long> ids) {
+    Map<Long, RemotePackage> packagesById = new HashMap<>();
+    for (RemotePackage remotePackage : remotePackageRepository.findByIdIn(ids)) {
+      packagesById.put(remotePackage.getId(), remotePackage);
+    }
+    List<RemotePackage> packages = new ArrayList<>(ids.size());
+    for (Long id : ids) {
+      RemotePackage remotePackage = packagesById.get(id);
+      if (remotePackage != null) {
+        packages.add(remotePackage);
+      }
+    }
+    return packages;
   }
 
-  public Iterable<RemotePackage> getPackagesByName(String name) {
-    return remotePackageRepository.findByNameContainingIgnoreCase(name);
+  /**
+   * Returns the in-memory index of packages from enabled sources. The index is
+   * built on first use after packages are updated, from the package catalog file
+   * if available, or from package attributes in the database.
+   * @return package search index
+   */
+  public PackageSearchIndex getSearchIndex() {
+    return searchIndexCache.get("index", () -> {
+      long start = System.nanoTime();
+      List<PackageIndexEntry> entries = readCatalog().orElse(null);
+      if (entries == null) {
+        entries = remotePackageRepository.loadIndexEntriesFromEnabledSources();
+        // Packages are partially updated during a sync, the sync writes the catalog once completed
+        if (runningSyncs.get() == 0) {
+          writeCatalog(entries);
+        }
+      }
+      PackageSearchIndex index = new PackageSearchIndex(entries);
+      log.debug("Package search index built with {} packages in {} ms", index.size(),
+          (System.nanoTime() - start) / 1_000_000);
+      return index;
+    });
+  }
+
+  private Path getCatalogPath() {
+    return Paths.get(ApplicationDefaults.getRegistrySnapshotDirectory(), PackageCatalog.FILE_NAME);
+  }
+
+  private Optional<List<PackageIndexEntry>> readCatalog() {
+    Path catalogPath = getCatalogPath();
+    if (!Files.exists(catalogPath)) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.of(PackageCatalog.read(catalogPath).getEntries());
+    } catch (IOException | RuntimeException e) {
+      log.warn("Package catalog can't be read, packages are loaded from database", e);
+      return Optional.empty();
+    }
+  }
+
+  private void writeCatalog(List<PackageIndexEntry> entries) {
+    try {
+      PackageCatalog.write(getCatalogPath(), entries);
+    } catch (IOException e) {
+      log.error("Package catalog can't be written", e);
+    }
+  }
+
+  /**
+   * Marks a source sync as pending, the package catalog is not written until it completes.
+   */
+  public void beginSync() {
+    runningSyncs.incrementAndGet();
+  }
+
+  /**
+   * Marks a source sync as completed, whether it succeeded, failed or was cancelled.
+   */
+  public void endSync() {
+    runningSyncs.decrementAndGet();
+  }
+
+  /**
+   * Deletes the package catalog and discards cached packages. Must be called when
+   * sources are updated, as the catalog only contains packages of enabled sources.
+   */
+  public void invalidateCatalog() {
+    try {
+      Files.deleteIfExists(getCatalogPath());
+    } catch (IOException e) {
+      log.error("Package catalog can't be deleted", e);
+    }
+    invalidatePackages();
+  }
+
+  /**
+   * Loads a package with all details (bundles and tags).
+   * @param id package id
+   * @return the package, empty if it doesn't exist anymore
+   */
+  public Optional<RemotePackage> getRemotePackage(Long id) {
+    return remotePackageRepository.findWithDetailsById(id);
+  }
+
+  /**
+   * Discards all cached package snapshots. Must be called when packages
+   * or sources are updated.
+   */
+  public void invalidatePackages() {
+    searchIndexCache.invalidate();
+    creatorCache.invalidate();
+  }
+
+  /**
+   * Returns package caches to expose hit and miss counters.
+   * @return package caches
+   */
+  public List<SnapshotCache<?, ?>> getPackageCaches() {
+    return List.of(searchIndexCache, creatorCache);
   }
 
   /**
@@ -164,13 +314,13 @@ public class ExploreService extends BaseService {
 
   public RemoteSource fetchSourceFromRemoteUrl(String url) {
 
-    HttpGet httpGet = new HttpGet(url);
-
-    try (CloseableHttpClient httpclient = HttpClients.createDefault();
-         CloseableHttpResponse response = httpclient.execute(httpGet)) {
-
-      HttpEntity entity = response.getEntity();
-      String responseContent = new String(entity.getContent().readAllBytes(), StandardCharsets.UTF_8);
+    try {
+      SimpleHttpResponse response = httpClient.execute(SimpleRequestBuilder.get(url).build(), null)
+          .get(30, TimeUnit.SECONDS);
+      if (response.getBodyBytes() == null) {
+        return null;
+      }
+      String responseContent = new String(response.getBodyBytes(), StandardCharsets.UTF_8);
 
       RemoteSource remoteSource = getSourceFromRegistrySpec(responseContent);
 
@@ -188,10 +338,12 @@ public class ExploreService extends BaseService {
         return remoteSource;
       }
 
-      EntityUtils.consume(entity);
       return null;
 
-    } catch (IOException e) {
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (ExecutionException | TimeoutException e) {
       log.error("Error accessing store: Check your network connectivity", e);
       return null;
     }
@@ -248,14 +400,18 @@ public class ExploreService extends BaseService {
   public void enableSource(RemoteSource remoteSource, boolean enabled) {
     remoteSource.setEnabled(enabled);
     remoteSourceRepository.save(remoteSource);
+    invalidateCatalog();
   }
 
   public RemoteSource save(RemoteSource remoteSource) {
-    return remoteSourceRepository.save(remoteSource);
+    RemoteSource saved = remoteSourceRepository.save(remoteSource);
+    invalidateCatalog();
+    return saved;
   }
 
   public void delete(RemoteSource remoteSource) {
     remoteSourceRepository.delete(remoteSource);
+    invalidateCatalog();
   }
 
   public boolean canDeterminateBundleInstallFolder(PackageBundle bundle) {
@@ -307,6 +463,6 @@ public class ExploreService extends BaseService {
    * @return lit of creators
    */
   public List<String> getDistinctCreators() {
-    return remotePackageRepository.findDistinctCreators();
+    return creatorCache.get("all", () -> ImmutableList.copyOf(remotePackageRepository.findDistinctCreators()));
   }
 }
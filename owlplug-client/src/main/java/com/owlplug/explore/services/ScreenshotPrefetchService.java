@@ -0,0 +1,223 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owlplug.explore.services;
+
+import com.owlplug.core.components.ApplicationDefaults;
+import com.owlplug.core.components.ImageCache;
+import com.owlplug.core.services.BaseService;
+import com.owlplug.core.utils.nio.BandwidthLimiter;
+import com.owlplug.core.utils.nio.ThrottledByteChannel;
+import com.owlplug.explore.components.ExploreTaskFactory;
+import com.owlplug.explore.repositories.RemotePackageRepository;
+import com.owlplug.plugin.model.PluginFormat;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Warms the image cache with package thumbnails after each source sync, so browsing
+ * Explore doesn't trigger cold image fetches. Packages compatible with the current
+ * platform and with enabled plugin formats are fetched first. Downloads are limited
+ * in concurrency and bandwidth, and are stopped as soon as a package install starts.
+ */
+@Service
+public class ScreenshotPrefetchService extends BaseService {
+
+  private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+  private static final int PREFETCH_THREADS = 2;
+  private static final int MAX_PREFETCHED_PACKAGES = 500;
+  private static final long MAX_SCREENSHOT_SIZE = 10 * 1024 * 1024;
+  private static final long BANDWIDTH_LIMIT = 512 * 1024;
+  private static final int TIMEOUT = 10_000;
+
+  @Autowired
+  private RemotePackageRepository remotePackageRepository;
+  @Autowired
+  private ImageCache imageCache;
+  @Autowired
+  private ExploreTaskFactory exploreTaskFactory;
+
+  private final BandwidthLimiter bandwidthLimiter = new BandwidthLimiter(BANDWIDTH_LIMIT);
+  private final AtomicLong generation = new AtomicLong();
+  private ExecutorService executor;
+
+  @PostConstruct
+  private void initialize() {
+    AtomicInteger threadCount = new AtomicInteger();
+    executor = Executors.newFixedThreadPool(PREFETCH_THREADS, runnable -> {
+      Thread thread = new Thread(runnable, "owlplug-screenshot-prefetch-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      return thread;
+    });
+    exploreTaskFactory.addSyncSourcesListener(this::start);
+  }
+
+  @PreDestroy
+  private void destroy() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Starts prefetching package thumbnails if enabled in preferences. A running
+   * prefetch is stopped and replaced.
+   */
+  public void start() {
+    if (!this.getPreferences().getBoolean(ApplicationDefaults.SCREENSHOT_PREFETCH_ENABLED_KEY, false)) {
+      return;
+    }
+    long prefetchGeneration = generation.incrementAndGet();
+    executor.execute(() -> {
+      if (prefetchGeneration != generation.get()) {
+        return;
+      }
+      List<String> urls = findScreenshotsToPrefetch();
+      log.debug("Prefetching {} package screenshots", urls.size());
+      for (String url : urls) {
+        executor.execute(() -> prefetch(prefetchGeneration, url));
+      }
+    });
+  }
+
+  /**
+   * Stops the running prefetch. Pending screenshots are skipped and running
+   * downloads are aborted.
+   */
+  public void stop() {
+    generation.incrementAndGet();
+  }
+
+  /**
+   * Returns screenshot urls of packages from enabled sources, ordered by likelihood to
+   * be viewed: packages matching both the current platform and enabled formats first.
+   */
+  private List<String> findScreenshotsToPrefetch() {
+    Set<String> compatibleTargets = this.getApplicationDefaults().getRuntimePlatform().getCompatiblePlatformsTags();
+    Set<String> enabledFormats = getEnabledFormats();
+    Map<Long, Integer> scores = new HashMap<>();
+    for (Object[] row : remotePackageRepository.findBundleTargetsFromEnabledSources()) {
+      if (compatibleTargets.contains((String) row[1])) {
+        scores.merge((Long) row[0], 2, Math::max);
+      }
+    }
+    Set<Long> formatMatches = new HashSet<>();
+    for (Object[] row : remotePackageRepository.findBundleFormatsFromEnabledSources()) {
+      if (row[1] != null && enabledFormats.contains(((String) row[1]).toLowerCase(Locale.ROOT))) {
+        formatMatches.add((Long) row[0]);
+      }
+    }
+
+    List<Object[]> packages = new ArrayList<>(remotePackageRepository.findScreenshotsFromEnabledSources());
+    // Stable sort, packages with the same score keep their id order
+    packages.sort(Comparator.comparingInt((Object[] row) -> {
+      Long id = (Long) row[0];
+      return scores.getOrDefault(id, 0) + (formatMatches.contains(id) ? 1 : 0);
+    }).reversed());
+
+    List<String> urls = new ArrayList<>();
+    Set<String> seen = new HashSet<>();
+    for (Object[] row : packages) {
+      String url = (String) row[1];
+      if (urls.size() >= MAX_PREFETCHED_PACKAGES) {
+        break;
+      }
+      if (!url.isBlank() && !url.startsWith("file:") && seen.add(url)) {
+        urls.add(url);
+      }
+    }
+    return urls;
+  }
+
+  private Set<String> getEnabledFormats() {
+    Set<String> formats = new HashSet<>();
+    if (this.getPreferences().getBoolean(ApplicationDefaults.VST2_DISCOVERY_ENABLED_KEY, false)) {
+      formats.add(PluginFormat.VST2.getText().toLowerCase(Locale.ROOT));
+    }
+    if (this.getPreferences().getBoolean(ApplicationDefaults.VST3_DISCOVERY_ENABLED_KEY, false)) {
+      formats.add(PluginFormat.VST3.getText().toLowerCase(Locale.ROOT));
+    }
+    if (this.getPreferences().getBoolean(ApplicationDefaults.AU_DISCOVERY_ENABLED_KEY, false)) {
+      formats.add(PluginFormat.AU.getText().toLowerCase(Locale.ROOT));
+    }
+    if (this.getPreferences().getBoolean(ApplicationDefaults.LV2_DISCOVERY_ENABLED_KEY, false)) {
+      formats.add(PluginFormat.LV2.getText().toLowerCase(Locale.ROOT));
+    }
+    return formats;
+  }
+
+  private void prefetch(long prefetchGeneration, String url) {
+    if (prefetchGeneration != generation.get() || imageCache.containsThumbnail(url)) {
+      return;
+    }
+    try {
+      byte[] data = download(prefetchGeneration, url);
+      if (data != null && !imageCache.store(url, data)) {
+        log.debug("Screenshot {} can't be decoded", url);
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      log.debug("Screenshot {} can't be prefetched: {}", url, e.getMessage());
+    }
+  }
+
+  /**
+   * Downloads a screenshot under the bandwidth limit.
+   * @return the downloaded data, or null if the prefetch has been stopped meanwhile
+   */
+  private byte[] download(long prefetchGeneration, String url) throws IOException {
+    URLConnection connection = URI.create(url).toURL().openConnection();
+    connection.setConnectTimeout(TIMEOUT);
+    connection.setReadTimeout(TIMEOUT);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (ReadableByteChannel channel = new ThrottledByteChannel(
+        Channels.newChannel(connection.getInputStream()), bandwidthLimiter)) {
+      ByteBuffer buffer = ByteBuffer.allocate(16 * 1024);
+      while (channel.read(buffer) != -1) {
+        if (prefetchGeneration != generation.get() || output.size() > MAX_SCREENSHOT_SIZE) {
+          return null;
+        }
+        output.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+      }
+    }
+    return output.toByteArray();
+  }
+
+}
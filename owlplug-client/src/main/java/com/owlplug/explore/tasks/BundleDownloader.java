@@ -0,0 +1,516 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owlplug.explore.tasks;
+
+import com.owlplug.core.utils.nio.BandwidthLimiter;
+import com.owlplug.core.utils.nio.ProgressCallback;
+import com.owlplug.core.utils.nio.ThrottledByteChannel;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Downloads bundle archives. When the server advertises byte ranges support, the file is
+ * split into segments downloaded in parallel. Segments are written at their position in a
+ * single part file next to the target file, preallocated to the file length and renamed to
+ * the target once complete. The progress of each segment is saved in a state file, so a later
+ * download of the same url resumes where it stopped, as long as the remote file is unchanged.
+ * If the server ignores range requests despite advertising them, the file is downloaded again
+ * in a single request.
+ */
+public class BundleDownloader {
+
+  private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+  private static final int TIMEOUT = 30_000;
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final long CHECKPOINT_SIZE = 1024 * 1024;
+  private static final long FEED_INTERVAL = 100;
+  private static final String STATE_EXTENSION = ".download";
+  private static final String PART_EXTENSION = ".part";
+
+  private final int maxSegments;
+  private final long minSegmentSize;
+  private final BandwidthLimiter bandwidthLimiter;
+
+  /**
+   * Creates a new downloader.
+   * @param maxSegments - maximum number of segments downloaded in parallel
+   * @param minSegmentSize - minimum size of a segment, in bytes
+   * @param bandwidthLimiter - limits the throughput of all segments
+   */
+  public BundleDownloader(int maxSegments, long minSegmentSize, BandwidthLimiter bandwidthLimiter) {
+    this.maxSegments = Math.max(1, maxSegments);
+    this.minSegmentSize = Math.max(1, minSegmentSize);
+    this.bandwidthLimiter = bandwidthLimiter;
+  }
+
+  /**
+   * Downloads a file.
+   * @param url - file url
+   * @param target - target file, replaced if it exists
+   * @param callback - receives the download progress, between 0 and 100
+   * @throws IOException if the file can't be downloaded, downloaded bytes are kept
+   */
+  public void download(URL url, File target, ProgressCallback callback) throws IOException {
+    download(url, target, callback, null);
+  }
+
+  /**
+   * Downloads a file and streams its content, in order, to a sink. The sink is fed from the
+   * calling thread with the contiguous downloaded prefix of the file, as segments progress.
+   * Resumed bytes are read back from disk, so the sink always receives the whole file once
+   * per call.
+   * @param url - file url
+   * @param target - target file, replaced if it exists
+   * @param callback - receives the download progress, between 0 and 100
+   * @param sink - receives the file content, may be null
+   * @throws IOException if the file can't be downloaded or the sink fails, downloaded bytes are kept
+   */
+  public void download(URL url, File target, ProgressCallback callback, OutputStream sink) throws IOException {
+    RemoteFile remoteFile = probe(url);
+    // Bytes sent to the sink are kept across attempts, so they are not sent twice
+    AtomicLong fed = new AtomicLong();
+    try {
+      download(url, remoteFile, target, callback, sink, fed);
+    } catch (RangeIgnoredException e) {
+      log.debug("Server ignored range request for {}, downloading in a single request", url);
+      discard(target);
+      download(url, new RemoteFile(remoteFile.length, false, null), target, callback, sink, fed);
+    }
+  }
+
+  private void download(URL url, RemoteFile remoteFile, File target, ProgressCallback callback,
+      OutputStream sink, AtomicLong fed) throws IOException {
+    List<Segment> segments = plan(remoteFile);
+    File partFile = new File(target.getPath() + PART_EXTENSION);
+    File stateFile = new File(target.getPath() + STATE_EXTENSION);
+    String header = remoteFile.header(url, segments.size());
+
+    if (!remoteFile.isResumable() || !partFile.exists() || !loadState(stateFile, header, segments)) {
+      // Bytes of another download, or of a changed remote file can't be resumed
+      for (Segment segment : segments) {
+        segment.downloaded.set(0);
+      }
+      Files.deleteIfExists(partFile.toPath());
+      try (RandomAccessFile file = new RandomAccessFile(partFile, "rw")) {
+        file.setLength(Math.max(0, remoteFile.length));
+      }
+      Files.deleteIfExists(stateFile.toPath());
+    }
+
+    AtomicLong downloaded = new AtomicLong();
+    for (Segment segment : segments) {
+      downloaded.addAndGet(segment.downloaded.get());
+    }
+    if (downloaded.get() > 0) {
+      log.debug("Resuming download of {} from {} bytes", url, downloaded.get());
+    }
+    LongConsumer onBytesDownloaded = bytes -> {
+      long total = downloaded.addAndGet(bytes);
+      callback.onProgress(remoteFile.length > 0 ? (double) total / remoteFile.length * 100.0 : -1.0);
+    };
+
+    try (FileChannel output = FileChannel.open(partFile.toPath(), StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      Runnable checkpoint = () -> {
+        if (remoteFile.isResumable()) {
+          saveState(stateFile, header, segments, output);
+        }
+      };
+      try {
+        downloadSegments(url, remoteFile, segments, output, checkpoint, onBytesDownloaded, sink, fed);
+      } finally {
+        checkpoint.run();
+      }
+      if (remoteFile.length >= 0 && output.size() != remoteFile.length) {
+        throw new IOException("Downloaded file size " + output.size() + " doesn't match expected size "
+            + remoteFile.length);
+      }
+    }
+    Files.move(partFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    Files.deleteIfExists(stateFile.toPath());
+  }
+
+  /**
+   * Deletes the downloaded bytes of a file, so the next download starts over.
+   * @param target - target file of the download
+   * @throws IOException if downloaded bytes can't be deleted
+   */
+  public void discard(File target) throws IOException {
+    File[] parts = target.getAbsoluteFile().getParentFile()
+        .listFiles((dir, name) -> name.startsWith(target.getName() + PART_EXTENSION));
+    if (parts != null) {
+      for (File part : parts) {
+        Files.deleteIfExists(part.toPath());
+      }
+    }
+    Files.deleteIfExists(new File(target.getPath() + STATE_EXTENSION).toPath());
+  }
+
+  /**
+   * Returns the number of bytes kept from a previous download of a file.
+   * @param target - target file of the download
+   * @return downloaded bytes saved in the download state
+   * @throws IOException if the download state can't be read
+   */
+  long getResumableBytes(File target) throws IOException {
+    File stateFile = new File(target.getPath() + STATE_EXTENSION);
+    if (!stateFile.exists()) {
+      return 0;
+    }
+    List<String> lines = Files.readAllLines(stateFile.toPath(), StandardCharsets.UTF_8);
+    return lines.subList(RemoteFile.HEADER_LINES, lines.size()).stream().mapToLong(Long::parseLong).sum();
+  }
+
+  /**
+   * Downloads segments in parallel while the calling thread feeds the sink.
+   */
+  private void downloadSegments(URL url, RemoteFile remoteFile, List<Segment> segments, FileChannel output,
+      Runnable checkpoint, LongConsumer onBytesDownloaded, OutputStream sink, AtomicLong fed) throws IOException {
+    ExecutorService executor = Executors.newFixedThreadPool(segments.size(), runnable -> {
+      Thread thread = new Thread(runnable, "owlplug-bundle-download");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (Segment segment : segments) {
+        Callable<Void> download = () -> {
+          downloadSegment(url, remoteFile, segment, output, checkpoint, onBytesDownloaded);
+          return null;
+        };
+        futures.add(executor.submit(download));
+      }
+      for (Future<Void> future : futures) {
+        while (true) {
+          fed.set(feed(segments, output, fed.get(), sink));
+          try {
+            future.get(FEED_INTERVAL, TimeUnit.MILLISECONDS);
+            break;
+          } catch (TimeoutException e) {
+            // Other segments may have failed while this one is still running
+            for (Future<Void> other : futures) {
+              if (other.isDone()) {
+                other.get();
+              }
+            }
+          }
+        }
+      }
+      fed.set(feed(segments, output, fed.get(), sink));
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException ioException) {
+        throw ioException;
+      }
+      throw new IOException("Segment download failed", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Download interrupted");
+    } finally {
+      executor.shutdownNow();
+      awaitTermination(executor);
+    }
+  }
+
+  /**
+   * Waits for segment downloads to stop, so the part file is not written once the download failed.
+   */
+  private void awaitTermination(ExecutorService executor) throws InterruptedIOException {
+    try {
+      if (!executor.awaitTermination(TIMEOUT, TimeUnit.MILLISECONDS)) {
+        log.warn("Segment downloads are still running after {} ms", TIMEOUT);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Download interrupted");
+    }
+  }
+
+  private void downloadSegment(URL url, RemoteFile remoteFile, Segment segment, FileChannel output,
+      Runnable checkpoint, LongConsumer onBytesDownloaded) throws IOException {
+    if (segment.isComplete()) {
+      return;
+    }
+    long offset = segment.downloaded.get();
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    connection.setConnectTimeout(TIMEOUT);
+    connection.setReadTimeout(TIMEOUT);
+    boolean ranged = remoteFile.acceptRanges && (offset > 0 || segment.end >= 0);
+    if (ranged) {
+      String end = segment.end >= 0 ? String.valueOf(segment.end) : "";
+      connection.setRequestProperty("Range", "bytes=" + (segment.start + offset) + "-" + end);
+    }
+    try {
+      int status = connection.getResponseCode();
+      if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+        throw new FileNotFoundException("File not found: " + url);
+      } else if (status >= 400) {
+        throw new IOException("Server returned HTTP " + status + " for " + url);
+      }
+      if (ranged && status != HttpURLConnection.HTTP_PARTIAL) {
+        // The server ignored the range, the segment is downloaded again from its start
+        if (segment.start != 0) {
+          throw new RangeIgnoredException("Server ignored range request for " + url);
+        }
+        onBytesDownloaded.accept(-offset);
+        segment.downloaded.set(0);
+      }
+      try (ReadableByteChannel input = new ThrottledByteChannel(
+              Channels.newChannel(connection.getInputStream()), bandwidthLimiter)) {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long unsaved = 0;
+        while (!segment.isComplete() && input.read(buffer) != -1) {
+          if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Download interrupted");
+          }
+          buffer.flip();
+          if (segment.size() >= 0 && buffer.remaining() > segment.remaining()) {
+            // Bytes past the segment end, sent when the range is ignored, are not kept
+            buffer.limit((int) segment.remaining());
+          }
+          int count = buffer.remaining();
+          long position = segment.position();
+          while (buffer.hasRemaining()) {
+            position += output.write(buffer, position);
+          }
+          buffer.clear();
+          segment.downloaded.addAndGet(count);
+          onBytesDownloaded.accept(count);
+          unsaved += count;
+          if (unsaved >= CHECKPOINT_SIZE) {
+            checkpoint.run();
+            unsaved = 0;
+          }
+        }
+      }
+    } finally {
+      connection.disconnect();
+    }
+    if (segment.size() >= 0 && !segment.isComplete()) {
+      throw new IOException("Incomplete download of " + url + ": " + segment.downloaded.get() + "/"
+          + segment.size() + " bytes");
+    }
+  }
+
+  /**
+   * Sends the downloaded bytes following the fed position to the sink, up to the first
+   * incomplete segment.
+   * @return the new fed position
+   */
+  private static long feed(List<Segment> segments, FileChannel channel, long fed, OutputStream sink)
+      throws IOException {
+    if (sink == null) {
+      return fed;
+    }
+    long end = 0;
+    for (Segment segment : segments) {
+      end = segment.position();
+      if (!segment.isComplete()) {
+        break;
+      }
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    while (fed < end) {
+      buffer.limit((int) Math.min(BUFFER_SIZE, end - fed));
+      int read = channel.read(buffer, fed);
+      if (read < 0) {
+        throw new IOException("Downloaded bytes can't be read back at position " + fed);
+      }
+      sink.write(buffer.array(), 0, read);
+      fed += read;
+      buffer.clear();
+    }
+    return fed;
+  }
+
+  /**
+   * Loads the progress of segments saved by a previous download of the same remote file.
+   * @return false if there is no saved progress for this remote file
+   */
+  private boolean loadState(File stateFile, String header, List<Segment> segments) throws IOException {
+    if (!stateFile.exists()) {
+      return false;
+    }
+    List<String> lines = Files.readAllLines(stateFile.toPath(), StandardCharsets.UTF_8);
+    if (lines.size() != RemoteFile.HEADER_LINES + segments.size()
+        || !header.equals(String.join("\n", lines.subList(0, RemoteFile.HEADER_LINES)))) {
+      return false;
+    }
+    try {
+      for (int i = 0; i < segments.size(); i++) {
+        long downloaded = Long.parseLong(lines.get(RemoteFile.HEADER_LINES + i));
+        if (downloaded < 0 || downloaded > segments.get(i).size()) {
+          return false;
+        }
+        segments.get(i).downloaded.set(downloaded);
+      }
+    } catch (NumberFormatException e) {
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Saves the progress of segments. Downloaded bytes are flushed to disk first, so saved
+   * progress never covers bytes which are not stored.
+   */
+  private void saveState(File stateFile, String header, List<Segment> segments, FileChannel output) {
+    synchronized (segments) {
+      try {
+        StringBuilder state = new StringBuilder(header);
+        for (Segment segment : segments) {
+          state.append('\n').append(segment.downloaded.get());
+        }
+        output.force(false);
+        Files.writeString(stateFile.toPath(), state, StandardCharsets.UTF_8);
+      } catch (IOException e) {
+        log.warn("Download state {} can't be saved", stateFile, e);
+      }
+    }
+  }
+
+  /**
+   * Retrieves the remote file length, range support and validator.
+   * Servers rejecting HEAD requests are downloaded in a single request without resume.
+   */
+  private RemoteFile probe(URL url) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    connection.setConnectTimeout(TIMEOUT);
+    connection.setReadTimeout(TIMEOUT);
+    try {
+      connection.setRequestMethod("HEAD");
+      if (connection.getResponseCode() >= 400) {
+        return new RemoteFile(-1, false, null);
+      }
+      String validator = connection.getHeaderField("ETag");
+      if (validator == null) {
+        validator = connection.getHeaderField("Last-Modified");
+      }
+      return new RemoteFile(connection.getContentLengthLong(),
+          "bytes".equalsIgnoreCase(connection.getHeaderField("Accept-Ranges")), validator);
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  private List<Segment> plan(RemoteFile remoteFile) {
+    List<Segment> segments = new ArrayList<>();
+    if (!remoteFile.acceptRanges || remoteFile.length <= 0) {
+      segments.add(new Segment(0, remoteFile.length - 1));
+      return segments;
+    }
+    int count = (int) Math.max(1, Math.min(maxSegments, remoteFile.length / minSegmentSize));
+    long segmentSize = remoteFile.length / count;
+    for (int i = 0; i < count; i++) {
+      long start = i * segmentSize;
+      long end = i == count - 1 ? remoteFile.length - 1 : start + segmentSize - 1;
+      segments.add(new Segment(start, end));
+    }
+    return segments;
+  }
+
+  /**
+   * Thrown when the server sends the whole file to a range request of a segment.
+   */
+  private static class RangeIgnoredException extends IOException {
+
+    RangeIgnoredException(String message) {
+      super(message);
+    }
+  }
+
+  private static class RemoteFile {
+
+    private static final int HEADER_LINES = 4;
+
+    private final long length;
+    private final boolean acceptRanges;
+    private final String validator;
+
+    RemoteFile(long length, boolean acceptRanges, String validator) {
+      this.length = length;
+      this.acceptRanges = acceptRanges && length > 0;
+      this.validator = validator;
+    }
+
+    boolean isResumable() {
+      return acceptRanges;
+    }
+
+    String header(URL url, int segments) {
+      return url + "\n" + length + "\n" + Objects.toString(validator, "") + "\n" + segments;
+    }
+  }
+
+  private static class Segment {
+
+    private final long start;
+    private final long end;
+    private final AtomicLong downloaded = new AtomicLong();
+
+    Segment(long start, long end) {
+      this.start = start;
+      this.end = end;
+    }
+
+    long size() {
+      return end >= 0 ? end - start + 1 : -1;
+    }
+
+    long position() {
+      return start + downloaded.get();
+    }
+
+    long remaining() {
+      return size() - downloaded.get();
+    }
+
+    boolean isComplete() {
+      return size() >= 0 && downloaded.get() >= size();
+    }
+  }
+
+}
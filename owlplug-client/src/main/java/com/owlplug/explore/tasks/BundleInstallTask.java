@@ -19,25 +19,32 @@
 package com.owlplug.explore.tasks;
 
 import com.owlplug.core.components.ApplicationDefaults;
-import com.owlplug.core.model.RuntimePlatform;
 import com.owlplug.core.tasks.AbstractTask;
 import com.owlplug.core.tasks.TaskException;
 import com.owlplug.core.tasks.TaskResult;
 import com.owlplug.core.utils.ArchiveUtils;
 import com.owlplug.core.utils.CryptoUtils;
 import com.owlplug.core.utils.FileUtils;
-import com.owlplug.core.utils.nio.CallbackByteChannel;
+import com.owlplug.core.utils.StreamingArchiveExtractor;
+import com.owlplug.core.utils.cache.ContentAddressedStore;
+import com.owlplug.core.utils.nio.BandwidthLimiter;
 import com.owlplug.explore.model.PackageBundle;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.net.HttpURLConnection;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.nio.channels.Channels;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,9 +52,17 @@ public class BundleInstallTask extends AbstractTask {
 
   private final Logger log = LoggerFactory.getLogger(this.getClass());
 
+  private static final int DOWNLOAD_SEGMENTS = 4;
+  private static final long DOWNLOAD_MIN_SEGMENT_SIZE = 8L * 1024 * 1024;
+  private static final int DOWNLOAD_ATTEMPTS = 3;
+  private static final int STORE_BUFFER_SIZE = 64 * 1024;
+
   private PackageBundle bundle;
   private File targetDirectory;
   private ApplicationDefaults applicationDefaults;
+  private long bandwidthLimit = 0;
+  private OwlPackLayout layout;
+  private ContentAddressedStore bundleStore;
 
   /**
    * Creates a new Package Bundle installation task.
@@ -69,6 +84,7 @@ public class BundleInstallTask extends AbstractTask {
   @Override
   protected TaskResult start() throws Exception {
 
+    File extractedArchiveFolder = null;
     try {
       boolean created = targetDirectory.mkdirs();
       if (!targetDirectory.exists() && !created) {
@@ -80,14 +96,36 @@ public class BundleInstallTask extends AbstractTask {
         log.error("Invalid plugin installation target directory");
         throw new TaskException("Invalid plugin installation target directory");
       }
-      this.updateMessage("Installing plugin " + bundle.getRemotePackage().getName() + " - Downloading files...");
-      File archiveFile = downloadInTempDirectory(bundle);
+      // The file name is derived from the url so an interrupted download is resumed by the next install
+      new File(ApplicationDefaults.getTempDownloadDirectory()).mkdirs();
+      String archiveName = "bundle-" + CryptoUtils.getSha256Digest(bundle.getDownloadUrl()).substring(0, 16);
+      File archiveFile = new File(ApplicationDefaults.getTempDownloadDirectory() + File.separator
+                                      + archiveName + ".owlpack");
+      extractedArchiveFolder = createStagingDirectory(archiveName);
+
+      String archiveHash = null;
+      File storedArchive = bundleStore != null ? bundleStore.get(bundle.getDownloadSha256()) : null;
+      if (storedArchive != null) {
+        this.updateMessage("Installing plugin " + bundle.getRemotePackage().getName()
+            + " - Extracting stored files...");
+        archiveHash = extractFromStore(storedArchive, extractedArchiveFolder);
+        if (!bundle.getDownloadSha256().equalsIgnoreCase(archiveHash)) {
+          log.warn("Stored archive of bundle {} is invalid, it will be downloaded again", bundle.getName());
+          bundleStore.remove(bundle.getDownloadSha256());
+          storedArchive = null;
+        }
+      }
+      if (storedArchive == null) {
+        this.updateMessage("Installing plugin " + bundle.getRemotePackage().getName() + " - Downloading files...");
+        archiveHash = downloadInTempDirectory(bundle, archiveFile, extractedArchiveFolder);
+      }
+      this.commitProgress(100);
 
       this.updateMessage("Installing plugin " + bundle.getRemotePackage().getName() + " - Verifying files...");
 
       if (bundle.getDownloadSha256() != null && !bundle.getDownloadSha256().isBlank()) {
         log.debug("Verify downloaded file hash for bundle {}", bundle.getName());
-        if (!verifyHash(archiveFile, bundle.getDownloadSha256())) {
+        if (!verifyHash(archiveHash, bundle.getDownloadSha256())) {
           String errorMessage = "An error occurred during plugin installation: Downloaded file is invalid, corrupted or can't be verified";
           this.updateMessage(errorMessage);
           log.error(errorMessage);
@@ -97,11 +135,13 @@ public class BundleInstallTask extends AbstractTask {
         }
       }
 
-      this.commitProgress(100);
-      this.updateMessage("Installing plugin " + bundle.getRemotePackage().getName() + " - Extracting files...");
-      File extractedArchiveFolder = new File(ApplicationDefaults.getTempDownloadDirectory() + File.separator + "temp-"
-                                                 + archiveFile.getName().replace(".owlpack", ""));
-      ArchiveUtils.extract(archiveFile.getAbsolutePath(), extractedArchiveFolder.getAbsolutePath());
+      if (layout.requiresFullExtraction()) {
+        // Folders named after other platforms are part of the plugin, they must be extracted too
+        log.debug("Entries {} are required by the installation, archive is extracted again",
+            layout.getSkippedEntries());
+        FileUtils.deleteDirectory(extractedArchiveFolder);
+        ArchiveUtils.extract(storedArchive != null ? storedArchive : archiveFile, extractedArchiveFolder);
+      }
 
       this.commitProgress(30);
 
@@ -111,8 +151,9 @@ public class BundleInstallTask extends AbstractTask {
       this.commitProgress(20);
 
       this.updateMessage("Installing plugin " + bundle.getRemotePackage().getName() + " - Cleaning files...");
-      archiveFile.delete();
-      FileUtils.deleteDirectory(extractedArchiveFolder);
+      if (storedArchive == null) {
+        storeArchive(archiveFile);
+      }
 
       this.commitProgress(10);
       this.updateMessage("Plugin " + bundle.getRemotePackage().getName() + " successfully Installed");
@@ -122,12 +163,95 @@ public class BundleInstallTask extends AbstractTask {
       log.error("An error occurred during plugin install: " + e.getMessage());
       this.updateProgress(1, 1);
       throw new TaskException("An error occurred during plugin install", e);
+    } finally {
+      // Staging files are removed whether the installation succeeded, failed or was cancelled
+      if (extractedArchiveFolder != null) {
+        deleteStagingDirectory(extractedArchiveFolder);
+      }
     }
 
     return completed();
   }
 
-  private File downloadInTempDirectory(PackageBundle bundle) throws TaskException {
+  /**
+   * Limits the download throughput of the bundle.
+   * @param bytesPerSecond - maximum throughput, 0 or less for an unlimited throughput
+   */
+  public void setBandwidthLimit(long bytesPerSecond) {
+    this.bandwidthLimit = bytesPerSecond;
+  }
+
+  /**
+   * Sets the store where verified archives are kept, and looked up before downloading bundles.
+   * @param bundleStore - bundle archives store
+   */
+  public void setBundleStore(ContentAddressedStore bundleStore) {
+    this.bundleStore = bundleStore;
+  }
+
+  /**
+   * Extracts an archive from the bundle store. The archive is hashed while it is extracted,
+   * so its integrity is checked without reading it twice.
+   * @return the archive SHA-256 digest, or null if the archive can't be extracted
+   */
+  private String extractFromStore(File archive, File extractDirectory) {
+    log.debug("Installing bundle {} from stored archive {}", bundle.getName(), archive.getName());
+    StreamingArchiveExtractor extractor = null;
+    try (InputStream input = Files.newInputStream(archive.toPath())) {
+      FileUtils.deleteDirectory(extractDirectory);
+      MessageDigest digest = CryptoUtils.createSha256Digest();
+      layout = createLayout();
+      extractor = new StreamingArchiveExtractor(extractDirectory, layout::accept);
+      OutputStream output = new DigestOutputStream(extractor, digest);
+      byte[] buffer = new byte[STORE_BUFFER_SIZE];
+      long length = Math.max(1, archive.length());
+      long read = 0;
+      int count;
+      while ((count = input.read(buffer)) != -1) {
+        output.write(buffer, 0, count);
+        read += count;
+        computeTotalProgress((double) read / length * 100.0);
+      }
+      extractor.finish();
+      return CryptoUtils.getDigestHex(digest);
+
+    } catch (IOException e) {
+      log.warn("Stored archive {} can't be extracted", archive.getName(), e);
+      return null;
+    } finally {
+      closeQuietly(extractor);
+    }
+  }
+
+  /**
+   * Moves a verified archive to the bundle store, or deletes it if it can't be stored.
+   */
+  private void storeArchive(File archiveFile) {
+    if (bundleStore != null && ContentAddressedStore.isValidKey(bundle.getDownloadSha256())) {
+      try {
+        if (bundleStore.put(bundle.getDownloadSha256(), archiveFile) != null) {
+          return;
+        }
+      } catch (IOException e) {
+        log.warn("Archive of bundle {} can't be stored", bundle.getName(), e);
+      }
+    }
+    archiveFile.delete();
+  }
+
+  private OwlPackLayout createLayout() {
+    return new OwlPackLayout(applicationDefaults.getRuntimePlatform().getCompatiblePlatformsTags(),
+        applicationDefaults.getPlatformsTags());
+  }
+
+  /**
+   * Downloads the bundle archive and extracts it while bytes are received. The archive is
+   * hashed on the fly, so it is not read again to be verified and extracted. Only entries of the
+   * runtime platform are extracted, the archive layout is resolved from the extracted entries.
+   * @return the archive SHA-256 digest
+   */
+  private String downloadInTempDirectory(PackageBundle bundle, File outputFile, File extractDirectory)
+      throws TaskException {
 
     URL website;
     try {
@@ -138,110 +262,134 @@ public class BundleInstallTask extends AbstractTask {
 
     }
 
-    SimpleDateFormat horodateFormat = new SimpleDateFormat("ddMMyyhhmmssSSS");
-    new File(ApplicationDefaults.getTempDownloadDirectory()).mkdirs();
-    String outPutFileName = horodateFormat.format(new Date()) + ".owlpack";
-    String outputFilePath = ApplicationDefaults.getTempDownloadDirectory() + File.separator + outPutFileName;
-    File outputFile = new File(outputFilePath);
-
-    try (
-        CallbackByteChannel rbc = new CallbackByteChannel(Channels.newChannel(website.openStream()),
-            contentLength(website));
-        FileOutputStream fos = new FileOutputStream(outputFile)) {
+    BundleDownloader downloader = new BundleDownloader(DOWNLOAD_SEGMENTS, DOWNLOAD_MIN_SEGMENT_SIZE,
+        new BandwidthLimiter(bandwidthLimit));
+    int attempt = 1;
+    while (true) {
+      StreamingArchiveExtractor extractor = null;
+      try {
+        // Each attempt streams the whole archive again, previously extracted files are discarded
+        FileUtils.deleteDirectory(extractDirectory);
+        MessageDigest digest = CryptoUtils.createSha256Digest();
+        layout = createLayout();
+        extractor = new StreamingArchiveExtractor(extractDirectory, layout::accept);
+        downloader.download(website, outputFile, p -> computeTotalProgress(p),
+            new DigestOutputStream(extractor, digest));
+        extractor.finish();
+        return CryptoUtils.getDigestHex(digest);
+
+      } catch (FileNotFoundException e) {
+        this.updateMessage("Installation of " + bundle.getRemotePackage().getName() + " canceled: File not found");
+        throw new TaskException(e);
+      } catch (IOException e) {
+        if (extractor != null && extractor.hasFailed()) {
+          this.updateMessage("Installation of " + bundle.getRemotePackage().getName()
+              + " canceled: Can't extract plugin files");
+          discardDownload(downloader, outputFile, extractDirectory);
+          throw new TaskException(e);
+        }
+        if (attempt >= DOWNLOAD_ATTEMPTS || isCancelled() || Thread.currentThread().isInterrupted()) {
+          this.updateMessage("Installation of " + bundle.getRemotePackage().getName()
+              + " canceled: Can't download plugin files");
+          throw new TaskException(e);
+        }
+        log.warn("Download of {} failed, resuming (attempt {}/{})", website, attempt + 1, DOWNLOAD_ATTEMPTS, e);
+        attempt++;
+      } finally {
+        closeQuietly(extractor);
+      }
+    }
 
-      rbc.setCallback(p -> computeTotalProgress(p));
-      fos.getChannel().transferFrom(rbc, 0, Long.MAX_VALUE);
-      return outputFile;
+  }
 
-    } catch (MalformedURLException e) {
-      this.updateMessage("Installation of " + bundle.getRemotePackage().getName() + " canceled: Can't download plugin files");
-      throw new TaskException(e);
-    } catch (FileNotFoundException e) {
-      this.updateMessage("Installation of " + bundle.getRemotePackage().getName() + " canceled: File not found");
-      throw new TaskException(e);
+  /**
+   * Deletes an invalid archive and its downloaded parts, so it is not resumed by the next install.
+   */
+  private void discardDownload(BundleDownloader downloader, File archiveFile, File extractDirectory) {
+    try {
+      downloader.discard(archiveFile);
+      Files.deleteIfExists(archiveFile.toPath());
+      FileUtils.deleteDirectory(extractDirectory);
     } catch (IOException e) {
-      this.updateMessage("Installation of " + bundle.getRemotePackage().getName() + " canceled: Can't write file on disk");
-      throw new TaskException(e);
+      log.error("Invalid archive {} can't be deleted", archiveFile, e);
     }
-
   }
 
-  private void installToPluginDirectory(File source, File target) throws IOException {
-
-    OwlPackStructureType structure = getStructureType(source);
-    // Choose the folder to copy from the downloaded source
-    File newSource = source;
-    switch (structure) {
-      case NESTED -> newSource = source.listFiles()[0];
-      case ENV -> newSource = getSubFileByPlatformTag(source);
-      case NESTED_ENV -> newSource = getSubFileByPlatformTag(source.listFiles()[0]);
-      default -> log.debug("Can't determine owlpack structure type (NESTED, ENV or NESTED_ENV)."
-                               + " Directory will be used as it.");
+  private void closeQuietly(StreamingArchiveExtractor extractor) {
+    if (extractor != null) {
+      try {
+        extractor.close();
+      } catch (IOException e) {
+        log.debug("Archive extractor can't be closed", e);
+      }
     }
-
-    FileUtils.copyDirectory(newSource, target);
   }
 
-  private OwlPackStructureType getStructureType(File directory) {
-
-    RuntimePlatform runtimePlatform = applicationDefaults.getRuntimePlatform();
-    OwlPackStructureType structure = OwlPackStructureType.DIRECT;
-
-    if (directory.listFiles().length == 1 && directory.listFiles()[0].isDirectory()
-            && !runtimePlatform.getCompatiblePlatformsTags().contains(directory.listFiles()[0].getName())) {
-      structure = OwlPackStructureType.NESTED;
-      for (File f : directory.listFiles()[0].listFiles()) {
-        if (runtimePlatform.getCompatiblePlatformsTags().contains(f.getName())) {
-          structure = OwlPackStructureType.NESTED_ENV;
-        }
-      }
-    } else if (directory.listFiles().length >= 1) {
-      // if the directory describes an environment related bundle
-      for (File f : directory.listFiles()) {
-        if (runtimePlatform.getCompatiblePlatformsTags().contains(f.getName())) {
-          return OwlPackStructureType.ENV;
-        }
+  /**
+   * Creates the directory where the archive is extracted, beside the target directory so
+   * extracted files can be renamed into it.
+   */
+  private File createStagingDirectory(String archiveName) {
+    File parent = targetDirectory.getAbsoluteFile().getParentFile();
+    if (parent != null) {
+      File staging = new File(parent, "." + targetDirectory.getName() + "-" + archiveName + ".staging");
+      if (staging.isDirectory() || staging.mkdirs()) {
+        return staging;
       }
     }
-    return structure;
+    return new File(targetDirectory, ".owlplug-" + archiveName + ".staging");
   }
 
-  private int contentLength(URL url) {
-    HttpURLConnection connection;
-    int contentLength = -1;
+  private void deleteStagingDirectory(File staging) {
     try {
-      connection = (HttpURLConnection) url.openConnection();
-      contentLength = connection.getContentLength();
-    } catch (Exception e) {
-      return 1;
+      FileUtils.deleteDirectory(staging);
+    } catch (IOException e) {
+      log.warn("Staging directory {} can't be deleted", staging, e);
     }
-    return contentLength;
   }
 
-  private File getSubFileByPlatformTag(File parent) {
-
-    RuntimePlatform runtimePlatform = applicationDefaults.getRuntimePlatform();
-    File[] subFiles = parent.listFiles();
+  private void installToPluginDirectory(File source, File target) throws IOException {
 
-    for (String platformTag : runtimePlatform.getCompatiblePlatformsTags()) {
-      for (File f : subFiles) {
-        if (f.getName().equals(platformTag)) {
-          return f;
-        }
-      }
+    log.debug("Owlpack structure type {}, installing {}", layout.getStructureType(), layout.getSourcePath());
+    File newSource = new File(source, layout.getSourcePath());
+    File[] files = newSource.listFiles();
+    if (files == null) {
+      throw new IOException("Extracted files can't be found in " + newSource.getAbsolutePath());
+    }
+    for (File file : files) {
+      moveIntoPlace(file.toPath(), target.toPath().resolve(file.getName()));
     }
-    return null;
   }
 
-  private boolean verifyHash(File file, String expectedHash) {
-
-    String fileHash;
+  /**
+   * Moves an extracted file or directory to its destination with atomic renames. Extracted
+   * directories are merged into existing ones, existing files are replaced.
+   */
+  private void moveIntoPlace(Path file, Path destination) throws IOException {
+    if (Files.isDirectory(file, LinkOption.NOFOLLOW_LINKS)
+        && Files.isDirectory(destination, LinkOption.NOFOLLOW_LINKS)) {
+      List<Path> children;
+      try (Stream<Path> list = Files.list(file)) {
+        children = list.toList();
+      }
+      for (Path child : children) {
+        moveIntoPlace(child, destination.resolve(child.getFileName().toString()));
+      }
+      return;
+    }
     try {
-      fileHash = CryptoUtils.getFileSha256Digest(file);
-    } catch (IOException e) {
-      log.error("File hash can't be computed", e);
-      return false;
+      Files.move(file, destination, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      log.debug("Atomic move to {} not supported, files are copied", destination);
+      if (Files.isDirectory(file)) {
+        FileUtils.copyDirectory(file.toFile(), destination.toFile());
+      } else {
+        Files.copy(file, destination, StandardCopyOption.REPLACE_EXISTING);
+      }
     }
+  }
+
+  private boolean verifyHash(String fileHash, String expectedHash) {
 
     if (expectedHash.equalsIgnoreCase(fileHash)) {
       log.debug("Valid SHA256 given: {}, expected: {}", fileHash, expectedHash);
@@ -253,33 +401,4 @@ public class BundleInstallTask extends AbstractTask {
 
   }
 
-  /**
-   * Compatible package archive structures.
-   * <pre>
-   * -------------- DIRECT
-   * plugin.zip/
-   *   ├── plugin.dll
-   *   └── (other required files...)
-   *
-   * -------------- NESTED
-   * plugin.zip/
-   *   └── plugin
-   *         ├── plugin.dll
-   *         └── (other required files...)
-   *
-   * -------------- NESTED_ENV
-   * plugin.zip/
-   *   └── plugin
-   *         ├── x86
-   *         │    ├── plugin.dll
-   *         │    └── (other required files...)
-   *         └── x64
-   *              ├── plugin.dll
-   *              └── (other required files...)
-   * </pre>
-   */
-  private enum OwlPackStructureType {
-    DIRECT, ENV, NESTED, NESTED_ENV,
-  }
-
 }
@@ -0,0 +1,174 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.explore.tasks;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves the structure of an owlpack from its entry listing, while entries are extracted.
+ * Entries in a folder named after a platform which is not compatible with the runtime
+ * platform are not extracted. Once all entries are listed, the structure tells which folder
+ * of the extracted archive must be installed.
+ */
+public class OwlPackLayout {
+
+  private final Set<String> compatiblePlatformTags;
+  private final Set<String> platformTags;
+
+  /** Root entries, mapped to their direct children. */
+  private final Map<String, Set<String>> roots = new LinkedHashMap<>();
+  private final List<String> skippedEntries = new ArrayList<>();
+
+  /**
+   * Creates a new layout.
+   * @param compatiblePlatformTags - platform tags compatible with the runtime platform
+   * @param platformTags - all known platform tags
+   */
+  public OwlPackLayout(Set<String> compatiblePlatformTags, Set<String> platformTags) {
+    this.compatiblePlatformTags = compatiblePlatformTags;
+    this.platformTags = platformTags;
+  }
+
+  /**
+   * Records an archive entry and tells if it must be extracted.
+   * @param entryName - archive entry name
+   * @return true if the entry must be extracted
+   */
+  public boolean accept(String entryName) {
+    String[] segments = segments(entryName);
+    if (segments.length == 0 || segments[0].isEmpty()) {
+      return false;
+    }
+    Set<String> children = roots.computeIfAbsent(segments[0], k -> new LinkedHashSet<>());
+    if (segments.length > 1) {
+      children.add(segments[1]);
+    }
+    if (isIncompatiblePlatform(segments[0]) || (segments.length > 1 && isIncompatiblePlatform(segments[1]))) {
+      skippedEntries.add(String.join("/", segments));
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Returns the archive structure, from the entries recorded so far.
+   * @return the structure type
+   */
+  public OwlPackStructureType getStructureType() {
+    if (roots.size() == 1) {
+      Map.Entry<String, Set<String>> root = roots.entrySet().iterator().next();
+      if (!root.getValue().isEmpty() && !compatiblePlatformTags.contains(root.getKey())) {
+        return findPlatformTag(root.getValue()) != null ? OwlPackStructureType.NESTED_ENV
+                   : OwlPackStructureType.NESTED;
+      }
+    }
+    return findPlatformTag(roots.keySet()) != null ? OwlPackStructureType.ENV : OwlPackStructureType.DIRECT;
+  }
+
+  /**
+   * Returns the path of the folder to install, relative to the extraction directory.
+   * @return the folder path, empty for the extraction directory itself
+   */
+  public String getSourcePath() {
+    return switch (getStructureType()) {
+      case NESTED -> firstRoot();
+      case ENV -> findPlatformTag(roots.keySet());
+      case NESTED_ENV -> firstRoot() + "/" + findPlatformTag(roots.get(firstRoot()));
+      default -> "";
+    };
+  }
+
+  /**
+   * Returns true if entries required by the installation have not been extracted. This happens
+   * when folders named after other platforms are not platform variants of the package.
+   * @return true if the archive must be fully extracted
+   */
+  public boolean requiresFullExtraction() {
+    String sourcePath = getSourcePath();
+    if (sourcePath.isEmpty()) {
+      return !skippedEntries.isEmpty();
+    }
+    for (String entry : skippedEntries) {
+      if (entry.equals(sourcePath) || entry.startsWith(sourcePath + "/")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public List<String> getSkippedEntries() {
+    return skippedEntries;
+  }
+
+  private boolean isIncompatiblePlatform(String name) {
+    return platformTags.contains(name) && !compatiblePlatformTags.contains(name);
+  }
+
+  private String findPlatformTag(Set<String> names) {
+    for (String platformTag : compatiblePlatformTags) {
+      if (names.contains(platformTag)) {
+        return platformTag;
+      }
+    }
+    return null;
+  }
+
+  private String firstRoot() {
+    return roots.keySet().iterator().next();
+  }
+
+  private static String[] segments(String entryName) {
+    return entryName.replace('\\', '/').replaceAll("^(\\./|/)+", "").split("/+");
+  }
+
+  /**
+   * Compatible package archive structures.
+   * <pre>
+   * -------------- DIRECT
+   * plugin.zip/
+   *   ├── plugin.dll
+   *   └── (other required files...)
+   *
+   * -------------- NESTED
+   * plugin.zip/
+   *   └── plugin
+   *         ├── plugin.dll
+   *         └── (other required files...)
+   *
+   * -------------- NESTED_ENV
+   * plugin.zip/
+   *   └── plugin
+   *         ├── x86
+   *         │    ├── plugin.dll
+   *         │    └── (other required files...)
+   *         └── x64
+   *              ├── plugin.dll
+   *              └── (other required files...)
+   * </pre>
+   */
+  public enum OwlPackStructureType {
+    DIRECT, ENV, NESTED, NESTED_ENV,
+  }
+
+}
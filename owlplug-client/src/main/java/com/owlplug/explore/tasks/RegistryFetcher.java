@@ -0,0 +1,361 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.explore.tasks;
+
+import com.owlplug.explore.model.RemoteSource;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.nio.entity.AbstractBinResponseConsumer;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Retrieves registry content from remote sources using conditional requests.
+ * The last successfully synced content of each source is kept as a compressed
+ * snapshot, used as a fallback when the source can't be reached.
+ */
+public class RegistryFetcher {
+
+  private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+  private final CloseableHttpAsyncClient httpClient;
+  private final File snapshotDirectory;
+
+  /**
+   * Creates a new RegistryFetcher.
+   * @param httpClient - client used to send requests
+   * @param snapshotDirectory - directory storing registry snapshots
+   */
+  public RegistryFetcher(CloseableHttpAsyncClient httpClient, File snapshotDirectory) {
+    this.httpClient = httpClient;
+    this.snapshotDirectory = snapshotDirectory;
+  }
+
+  /**
+   * Retrieves the source registry asynchronously. Validators of the last sync are sent
+   * if a snapshot is available, so unchanged registries are not downloaded again.
+   * If the source can't be reached in time, the last snapshot is returned.
+   * The returned future completes exceptionally with an {@link IOException} if the
+   * source can't be reached and no snapshot is available.
+   *
+   * @param remoteSource - the source to fetch
+   * @param timeout - maximum duration of the request
+   * @return the fetch result
+   */
+  public CompletableFuture<FetchResult> fetch(RemoteSource remoteSource, Duration timeout) {
+    boolean hasSnapshot = getSnapshotFile(remoteSource).map(File::exists).orElse(false);
+
+    SimpleRequestBuilder requestBuilder = SimpleRequestBuilder.get(remoteSource.getUrl())
+        .setHeader(HttpHeaders.ACCEPT_ENCODING, "gzip")
+        .setRequestConfig(RequestConfig.custom()
+            .setResponseTimeout(Timeout.ofMilliseconds(timeout.toMillis()))
+            .build());
+    if (hasSnapshot && remoteSource.getEtag() != null) {
+      requestBuilder.setHeader(HttpHeaders.IF_NONE_MATCH, remoteSource.getEtag());
+    }
+    if (hasSnapshot && remoteSource.getLastModified() != null) {
+      requestBuilder.setHeader(HttpHeaders.IF_MODIFIED_SINCE, remoteSource.getLastModified());
+    }
+
+    CompletableFuture<SnapshotResponse> response = new CompletableFuture<>();
+    Future<SnapshotResponse> request = httpClient.execute(
+        SimpleRequestProducer.create(requestBuilder.build()),
+        new SnapshotResponseConsumer(),
+        new FutureCallback<>() {
+          @Override
+          public void completed(SnapshotResponse result) {
+            if (!response.complete(result)) {
+              result.deleteBody();
+            }
+          }
+
+          @Override
+          public void failed(Exception e) {
+            response.completeExceptionally(e);
+          }
+
+          @Override
+          public void cancelled() {
+            response.completeExceptionally(new IOException("Request cancelled"));
+          }
+        });
+
+    return response
+        .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+        .whenComplete((result, e) -> {
+          if (e != null) {
+            request.cancel(true);
+          }
+        })
+        .thenApply(result -> toFetchResult(remoteSource, result))
+        .exceptionally(e -> {
+          Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+          Optional<File> snapshotFile = getSnapshotFile(remoteSource).filter(File::exists);
+          if (snapshotFile.isEmpty()) {
+            throw new CompletionException(cause instanceof IOException
+                ? cause : new IOException("Source " + remoteSource.getName() + " can't be reached", cause));
+          }
+          log.warn("Source {} can't be reached, using last snapshot", remoteSource.getName(), cause);
+          return FetchResult.snapshot(snapshotFile.get(), cause);
+        });
+  }
+
+  private FetchResult toFetchResult(RemoteSource remoteSource, SnapshotResponse response) {
+    if (response.code == HttpStatus.SC_NOT_MODIFIED) {
+      return FetchResult.notModified();
+    }
+    if (response.code < 200 || response.code >= 300 || response.body == null) {
+      response.deleteBody();
+      throw new CompletionException(new IOException(
+          "Unexpected response status " + response.code + " from " + remoteSource.getUrl()));
+    }
+    return FetchResult.updated(response.body, response.etag, response.lastModified);
+  }
+
+  /**
+   * Stores fetched content as the source snapshot and saves response validators in the source.
+   * Must only be called once the content has been successfully processed.
+   *
+   * @param remoteSource - the synced source
+   * @param result - updated fetch result
+   * @throws IOException if the snapshot can't be written
+   */
+  public void saveSnapshot(RemoteSource remoteSource, FetchResult result) throws IOException {
+    Optional<File> snapshotFile = getSnapshotFile(remoteSource);
+    if (snapshotFile.isEmpty() || result.getStatus() != FetchResult.Status.UPDATED) {
+      return;
+    }
+
+    // Content is already stored compressed beside the snapshot, it is renamed into place
+    Files.move(result.getContentFile().toPath(), snapshotFile.get().toPath(),
+        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    remoteSource.setEtag(result.getEtag());
+    remoteSource.setLastModified(result.getLastModified());
+  }
+
+  private Optional<File> getSnapshotFile(RemoteSource remoteSource) {
+    if (remoteSource.getId() == null) {
+      return Optional.empty();
+    }
+    return Optional.of(new File(snapshotDirectory, remoteSource.getId() + ".json.gz"));
+  }
+
+  private static String headerValue(Header header) {
+    return header != null ? header.getValue() : null;
+  }
+
+  /**
+   * Response of a registry request. The body is written to a compressed temporary file
+   * in the snapshot directory while it is received.
+   */
+  private static class SnapshotResponse {
+    private int code;
+    private String etag;
+    private String lastModified;
+    private File body;
+
+    private void deleteBody() {
+      if (body != null) {
+        body.delete();
+      }
+    }
+  }
+
+  private class SnapshotResponseConsumer extends AbstractBinResponseConsumer<SnapshotResponse> {
+
+    private final SnapshotResponse response = new SnapshotResponse();
+    private OutputStream output;
+    private boolean completed = false;
+
+    @Override
+    protected void start(HttpResponse httpResponse, ContentType contentType) throws HttpException, IOException {
+      response.code = httpResponse.getCode();
+      response.etag = headerValue(httpResponse.getFirstHeader(HttpHeaders.ETAG));
+      response.lastModified = headerValue(httpResponse.getFirstHeader(HttpHeaders.LAST_MODIFIED));
+      if (response.code < 200 || response.code >= 300) {
+        return;
+      }
+      Files.createDirectories(snapshotDirectory.toPath());
+      response.body = Files.createTempFile(snapshotDirectory.toPath(), "registry", ".json.gz.tmp").toFile();
+      output = new BufferedOutputStream(Files.newOutputStream(response.body.toPath()));
+      // Gzip encoded bodies are stored as received, other bodies are compressed
+      Header contentEncoding = httpResponse.getFirstHeader(HttpHeaders.CONTENT_ENCODING);
+      if (contentEncoding == null || !"gzip".equalsIgnoreCase(contentEncoding.getValue())) {
+        output = new GZIPOutputStream(output);
+      }
+    }
+
+    @Override
+    protected int capacityIncrement() {
+      return Integer.MAX_VALUE;
+    }
+
+    @Override
+    protected void data(ByteBuffer src, boolean endOfStream) throws IOException {
+      if (output == null) {
+        return;
+      }
+      byte[] buffer = new byte[src.remaining()];
+      src.get(buffer);
+      output.write(buffer);
+    }
+
+    @Override
+    protected SnapshotResponse buildResult() {
+      try {
+        if (output != null) {
+          output.close();
+          output = null;
+        }
+        completed = true;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return response;
+    }
+
+    @Override
+    public void failed(Exception cause) {
+      log.debug("Registry request failed", cause);
+    }
+
+    @Override
+    public void releaseResources() {
+      if (output != null) {
+        try {
+          output.close();
+        } catch (IOException e) {
+          log.debug("Registry response file can't be closed", e);
+        }
+        output = null;
+      }
+      if (!completed) {
+        response.deleteBody();
+      }
+    }
+  }
+
+  /**
+   * Result of a registry fetch.
+   */
+  public static class FetchResult {
+
+    /**
+     * Origin of the fetched content.
+     */
+    public enum Status {
+      UPDATED, NOT_MODIFIED, SNAPSHOT
+    }
+
+    private final Status status;
+    private final File contentFile;
+    private final String etag;
+    private final String lastModified;
+    private final Throwable failure;
+
+    private FetchResult(Status status, File contentFile, String etag, String lastModified, Throwable failure) {
+      this.status = status;
+      this.contentFile = contentFile;
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.failure = failure;
+    }
+
+    static FetchResult updated(File contentFile, String etag, String lastModified) {
+      return new FetchResult(Status.UPDATED, contentFile, etag, lastModified, null);
+    }
+
+    static FetchResult notModified() {
+      return new FetchResult(Status.NOT_MODIFIED, null, null, null, null);
+    }
+
+    static FetchResult snapshot(File snapshotFile, Throwable failure) {
+      return new FetchResult(Status.SNAPSHOT, snapshotFile, null, null, failure);
+    }
+
+    public Status getStatus() {
+      return status;
+    }
+
+    /**
+     * Opens the uncompressed registry content. Content is read from disk as it is parsed,
+     * it is never fully loaded in memory.
+     * @return content stream, to be closed by the caller
+     * @throws IOException if the content can't be read
+     */
+    public InputStream openContent() throws IOException {
+      return new GZIPInputStream(new BufferedInputStream(Files.newInputStream(contentFile.toPath())));
+    }
+
+    File getContentFile() {
+      return contentFile;
+    }
+
+    /**
+     * Deletes downloaded content which has not been saved as the source snapshot.
+     */
+    public void discard() {
+      if (status == Status.UPDATED) {
+        contentFile.delete();
+      }
+    }
+
+    public String getEtag() {
+      return etag;
+    }
+
+    public String getLastModified() {
+      return lastModified;
+    }
+
+    public Throwable getFailure() {
+      return failure;
+    }
+  }
+
+}
@@ -0,0 +1,143 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.explore.tasks;
+
+import com.owlplug.explore.model.PackageBundle;
+import com.owlplug.explore.model.PackageTag;
+import com.owlplug.explore.model.RemotePackage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Compares packages received from a remote source with persisted packages.
+ * Packages are identified by their slug within a source.
+ */
+public final class RemotePackageMerger {
+
+  private RemotePackageMerger() {
+
+  }
+
+  /**
+   * Returns the key identifying a package within its source.
+   * @param remotePackage - the package
+   * @return package key
+   */
+  public static String key(RemotePackage remotePackage) {
+    return remotePackage.getSlug() != null ? remotePackage.getSlug() : remotePackage.getName();
+  }
+
+  /**
+   * Returns true if the incoming package content differs from the persisted one.
+   * @param persisted - persisted package
+   * @param incoming - package received from the source
+   * @return true if the persisted package must be updated
+   */
+  public static boolean isModified(RemotePackage persisted, RemotePackage incoming) {
+    return !fieldsSignature(persisted).equals(fieldsSignature(incoming))
+        || areBundlesModified(persisted, incoming)
+        || areTagsModified(persisted, incoming);
+  }
+
+  /**
+   * Copies incoming package content into the persisted package. Bundles and tags
+   * are only replaced if they changed.
+   * @param persisted - persisted package to update
+   * @param incoming - package received from the source
+   */
+  public static void merge(RemotePackage persisted, RemotePackage incoming) {
+    persisted.setName(incoming.getName());
+    persisted.setPageUrl(incoming.getPageUrl());
+    persisted.setDownloadUrl(incoming.getDownloadUrl());
+    persisted.setScreenshotUrl(incoming.getScreenshotUrl());
+    persisted.setDonateUrl(incoming.getDonateUrl());
+    persisted.setCreator(incoming.getCreator());
+    persisted.setLicense(incoming.getLicense());
+    persisted.setVersion(incoming.getVersion());
+    persisted.setDescription(incoming.getDescription());
+    persisted.setType(incoming.getType());
+    persisted.setStage(incoming.getStage());
+
+    if (areBundlesModified(persisted, incoming)) {
+      persisted.getBundles().clear();
+      for (PackageBundle bundle : incoming.getBundles()) {
+        bundle.setRemotePackage(persisted);
+        persisted.getBundles().add(bundle);
+      }
+    }
+    if (areTagsModified(persisted, incoming)) {
+      persisted.getTags().clear();
+      for (PackageTag tag : incoming.getTags()) {
+        tag.setRemotePackage(persisted);
+        persisted.getTags().add(tag);
+      }
+    }
+  }
+
+  /**
+   * Indexes packages by key. If several packages share the same key, the last one is kept.
+   * @param packages - packages to index
+   * @return packages by key
+   */
+  public static Map<String, RemotePackage> indexByKey(Collection<RemotePackage> packages) {
+    Map<String, RemotePackage> index = new HashMap<>();
+    for (RemotePackage remotePackage : packages) {
+      index.put(key(remotePackage), remotePackage);
+    }
+    return index;
+  }
+
+  private static boolean areBundlesModified(RemotePackage persisted, RemotePackage incoming) {
+    return !bundlesSignature(persisted.getBundles()).equals(bundlesSignature(incoming.getBundles()));
+  }
+
+  private static boolean areTagsModified(RemotePackage persisted, RemotePackage incoming) {
+    return !tagsSignature(persisted.getTags()).equals(tagsSignature(incoming.getTags()));
+  }
+
+  private static List<Object> fieldsSignature(RemotePackage p) {
+    return Arrays.asList(p.getName(), p.getSlug(), p.getPageUrl(), p.getDownloadUrl(),
+        p.getScreenshotUrl(), p.getDonateUrl(), p.getCreator(), p.getLicense(), p.getVersion(),
+        p.getDescription(), p.getType(), p.getStage());
+  }
+
+  private static Map<List<Object>, Long> bundlesSignature(Collection<PackageBundle> bundles) {
+    return bundles.stream().collect(Collectors.groupingBy(
+        b -> Arrays.asList(b.getName(), b.getDownloadUrl(), b.getDownloadSha256(),
+            b.getTechnicalUid(), b.getVersion(), b.getFileSize(),
+            copyOf(b.getTargets()), copyOf(b.getFormats())),
+        Collectors.counting()));
+  }
+
+  private static Map<String, Long> tagsSignature(Collection<PackageTag> tags) {
+    return tags.stream().collect(Collectors.groupingBy(
+        t -> Objects.toString(t.getName(), ""), Collectors.counting()));
+  }
+
+  private static List<String> copyOf(List<String> values) {
+    return values != null ? new ArrayList<>(values) : List.of();
+  }
+
+}
@@ -18,9 +18,10 @@
  
 package com.owlplug.explore.tasks;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.owlplug.core.tasks.AbstractTask;
 import com.owlplug.core.tasks.TaskException;
@@ -31,22 +32,28 @@ import com.owlplug.explore.model.SourceType;
 import com.owlplug.explore.model.mappers.oas.OASModelAdapter;
 import com.owlplug.explore.model.mappers.oas.OASPackage;
 import com.owlplug.explore.model.mappers.oas.OASPlugin;
-import com.owlplug.explore.model.mappers.oas.OASRegistry;
 import com.owlplug.explore.model.mappers.registry.PackageMapper;
 import com.owlplug.explore.model.mappers.registry.PackageVersionMapper;
-import com.owlplug.explore.model.mappers.registry.RegistryMapper;
 import com.owlplug.explore.model.mappers.registry.RegistryModelAdapter;
+import com.owlplug.explore.model.search.PackageCatalog;
 import com.owlplug.explore.repositories.RemotePackageRepository;
 import com.owlplug.explore.repositories.RemoteSourceRepository;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import org.apache.hc.client5.http.classic.methods.HttpGet;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.core5.http.HttpEntity;
-import org.apache.hc.core5.http.io.entity.EntityUtils;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,8 +61,15 @@ public class SourceSyncTask extends AbstractTask {
 
   private final Logger log = LoggerFactory.getLogger(this.getClass());
 
+  private static final int BATCH_SIZE = 100;
+  private static final Duration SOURCE_TIMEOUT = Duration.ofSeconds(60);
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+      .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
   private RemoteSourceRepository remoteSourceRepository;
   private RemotePackageRepository remotePackageRepository;
+  private CloseableHttpAsyncClient httpClient;
+  private File snapshotDirectory;
 
   private ArrayList<String> warnings = new ArrayList<>();
 
@@ -65,11 +79,16 @@ public class SourceSyncTask extends AbstractTask {
    * 
    * @param remoteSourceRepository  remoteSource Repository
    * @param remotePackageRepository remotePackage Repository
+   * @param httpClient shared HTTP client
+   * @param snapshotDirectory directory storing registry snapshots
    */
-  public SourceSyncTask(RemoteSourceRepository remoteSourceRepository, RemotePackageRepository remotePackageRepository) {
+  public SourceSyncTask(RemoteSourceRepository remoteSourceRepository, RemotePackageRepository remotePackageRepository,
+      CloseableHttpAsyncClient httpClient, File snapshotDirectory) {
     super("Syncing plugin sources");
     this.remoteSourceRepository = remoteSourceRepository;
     this.remotePackageRepository = remotePackageRepository;
+    this.httpClient = httpClient;
+    this.snapshotDirectory = snapshotDirectory;
   }
 
   @Override
@@ -78,55 +97,50 @@ public class SourceSyncTask extends AbstractTask {
     this.updateMessage("Syncing plugins stores");
     this.commitProgress(-1);
 
-    Iterable<RemoteSource> storeList = remoteSourceRepository.findAll();
-    this.setMaxProgress(2 + Iterables.size(storeList));
-
-    remotePackageRepository.deleteAll();
-    // Flushing context to the database as next queries will recreate entities
-    remotePackageRepository.flush();
-
+    // Packages of disabled sources are kept from their last sync
+    List<RemoteSource> sources = new ArrayList<>();
+    remoteSourceRepository.findAll().forEach(source -> {
+      if (source.isEnabled()) {
+        sources.add(source);
+      }
+    });
+    this.setMaxProgress(2 + sources.size());
     this.commitProgress(2);
-    CloseableHttpResponse response = null;
-
-    for (RemoteSource remoteSource : remoteSourceRepository.findAll()) {
-      try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
-        log.debug("Exploring source {} - {}", remoteSource.getName(), remoteSource.getType().getLabel());
-        this.updateMessage("Exploring source " + remoteSource.getName()
-                               + " - " + remoteSource.getType().getLabel());
-        HttpGet httpGet = new HttpGet(remoteSource.getUrl());
-        response = httpclient.execute(httpGet);
-        HttpEntity entity = response.getEntity();
-
-        if (remoteSource.getType() == null || remoteSource.getType().equals(SourceType.OWLPLUG_REGISTRY)) {
-          processRegistrySource(entity, remoteSource);
-        } else if (remoteSource.getType().equals(SourceType.OAS_REGISTRY)) {
-          processOASSource(entity, remoteSource);
-        }
-
-        EntityUtils.consume(entity);
 
-      } catch (IOException e) {
-        this.warnings.add(remoteSource.getName());
-        this.updateMessage("Error accessing source " + remoteSource.getName() + ". Check your network connectivity");
-        log.error("Error accessing source " + remoteSource.getName() + ". Check your network connectivity", e);
+    // The catalog is outdated as soon as packages are updated
+    Path catalogPath = snapshotDirectory.toPath().resolve(PackageCatalog.FILE_NAME);
+    try {
+      Files.deleteIfExists(catalogPath);
+    } catch (IOException e) {
+      log.error("Package catalog can't be deleted", e);
+    }
 
-      } catch (StoreParsingException e) {
-        this.warnings.add(remoteSource.getName());
-        this.updateMessage("Error parsing remote source response");
-        log.error("Error parsing remote source response", e);
+    // All sources are fetched concurrently, each one is committed as soon as it is received
+    RegistryFetcher fetcher = new RegistryFetcher(httpClient, snapshotDirectory);
+    BlockingQueue<SourceFetch> fetchedSources = new LinkedBlockingQueue<>();
+    for (RemoteSource remoteSource : sources) {
+      log.debug("Exploring source {} - {}", remoteSource.getName(), remoteSource.getType().getLabel());
+      fetcher.fetch(remoteSource, SOURCE_TIMEOUT).whenComplete((result, e) ->
+          fetchedSources.add(new SourceFetch(remoteSource, result, e)));
+    }
+    this.updateMessage("Exploring " + sources.size() + " sources");
 
-      } finally {
+    try {
+      for (int i = 0; i < sources.size(); i++) {
+        SourceFetch fetched = fetchedSources.take();
+        syncSource(fetcher, fetched);
         this.commitProgress(1);
-        try {
-          if (response != null) {
-            response.close();
-          }
-        } catch (IOException e) {
-          log.error("Error closing response", e);
-        }
       }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TaskException("Source sync interrupted", e);
     }
 
+    try {
+      PackageCatalog.write(catalogPath, remotePackageRepository.loadIndexEntriesFromEnabledSources());
+    } catch (IOException e) {
+      log.error("Package catalog can't be written", e);
+    }
     this.commitProgress(1);
 
     if (this.warnings.isEmpty()) {
@@ -139,74 +153,264 @@ public class SourceSyncTask extends AbstractTask {
     return completed();
   }
 
-  private void processRegistrySource(HttpEntity entity, RemoteSource remoteSource) throws StoreParsingException {
-    ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES,
-        false);
-
+  private void syncSource(RegistryFetcher fetcher, SourceFetch fetched) {
+    RemoteSource remoteSource = fetched.remoteSource;
+    RegistryFetcher.FetchResult result = fetched.result;
     try {
-      RegistryMapper registryMapper = objectMapper.readValue(entity.getContent(), RegistryMapper.class);
-      List<PackageMapper> packages = new ArrayList<>(registryMapper.getPackages().values());
-      List<List<PackageMapper>> chunks = Lists.partition(packages, 100);
-
-      for (List<PackageMapper> partition : chunks) {
-        List<RemotePackage> remotePackagePartition = new ArrayList<>();
-        for (PackageMapper packageMapper : partition) {
-
-          if (packageMapper.getVersions().containsKey(packageMapper.getLatestVersion())) {
-            String version = packageMapper.getLatestVersion();
-            PackageVersionMapper latestPackage = packageMapper.getVersions()
-                .get(version);
-
-            RemotePackage remotePackage = RegistryModelAdapter.jsonMapperToEntity(latestPackage);
-            remotePackage.setSlug(packageMapper.getSlug());
-            remotePackage.setRemoteSource(remoteSource);
-            remotePackage.setVersion(version);
-            remotePackagePartition.add(remotePackage);
-          }
+      if (fetched.failure != null) {
+        Throwable cause = fetched.failure instanceof CompletionException && fetched.failure.getCause() != null
+            ? fetched.failure.getCause() : fetched.failure;
+        throw cause instanceof IOException ioException ? ioException : new IOException(cause);
+      }
+      this.updateMessage("Syncing source " + remoteSource.getName()
+                             + " - " + remoteSource.getType().getLabel());
+
+      if (result.getStatus() == RegistryFetcher.FetchResult.Status.NOT_MODIFIED) {
+        log.debug("Source {} not modified since last sync", remoteSource.getName());
+        return;
+      }
+      if (result.getStatus() == RegistryFetcher.FetchResult.Status.SNAPSHOT) {
+        this.warnings.add(remoteSource.getName());
+        this.updateMessage("Error accessing source " + remoteSource.getName() + ". Using last synced registry");
+      }
+
+      try (InputStream content = result.openContent()) {
+        processSource(content, remoteSource);
+      }
+
+      if (result.getStatus() == RegistryFetcher.FetchResult.Status.UPDATED) {
+        try {
+          fetcher.saveSnapshot(remoteSource, result);
+          remoteSourceRepository.save(remoteSource);
+        } catch (IOException e) {
+          log.error("Registry snapshot of source {} can't be saved", remoteSource.getName(), e);
         }
-        remotePackageRepository.saveAll(remotePackagePartition);
       }
 
-    } catch (Exception e) {
-      throw new StoreParsingException(e);
+    } catch (IOException e) {
+      this.warnings.add(remoteSource.getName());
+      this.updateMessage("Error accessing source " + remoteSource.getName() + ". Check your network connectivity");
+      log.error("Error accessing source " + remoteSource.getName() + ". Check your network connectivity", e);
+
+    } catch (StoreParsingException e) {
+      this.warnings.add(remoteSource.getName());
+      this.updateMessage("Error parsing remote source response");
+      log.error("Error parsing remote source response", e);
+    } finally {
+      if (result != null) {
+        result.discard();
+      }
     }
   }
 
-  private void processOASSource(HttpEntity entity, RemoteSource remoteSource) throws StoreParsingException {
-    ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES,
-            false);
-    try {
-      OASRegistry registryMapper = objectMapper.readValue(entity.getContent(), OASRegistry.class);
-      List<OASPackage> packages = new ArrayList<>(registryMapper.getPlugins().values());
-      List<List<OASPackage>> chunks = Lists.partition(packages, 100);
-
-      for (List<OASPackage> partition : chunks) {
-        List<RemotePackage> remotePackagePartition = new ArrayList<>();
-        for (OASPackage packageMapper : partition) {
-
-          if (packageMapper.getVersions().containsKey(packageMapper.getVersion())) {
-            String version = packageMapper.getVersion();
-            OASPlugin latestPlugin = packageMapper.getVersions().get(version);
-
-            RemotePackage remotePackage = OASModelAdapter.mapperToEntity(latestPlugin);
-            remotePackage.setSlug(packageMapper.getSlug());
-            remotePackage.setRemoteSource(remoteSource);
-            remotePackage.setVersion(version);
-
-            // Only add package if at least on bundle is present
-            if (!remotePackage.getBundles().isEmpty()) {
-              remotePackagePartition.add(remotePackage);
+  /**
+   * Applies packages of a registry to the database while the registry is parsed.
+   * Packages are committed batch by batch: if the registry can't be parsed entirely, packages
+   * of the batches already written are kept and no package is deleted. The source snapshot and
+   * validators are not updated in that case, so the next sync reads the whole registry again
+   * and completes the source.
+   */
+  private void processSource(InputStream content, RemoteSource remoteSource) throws StoreParsingException {
+    PackageSync packageSync = new PackageSync(remoteSource);
+    if (remoteSource.getType() == null || remoteSource.getType().equals(SourceType.OWLPLUG_REGISTRY)) {
+      processRegistrySource(content, remoteSource, packageSync);
+    } else if (remoteSource.getType().equals(SourceType.OAS_REGISTRY)) {
+      processOASSource(content, remoteSource, packageSync);
+    }
+    packageSync.complete();
+  }
+
+  private void processRegistrySource(InputStream content, RemoteSource remoteSource, PackageSync packageSync)
+      throws StoreParsingException {
+    readMapEntries(content, "packages", PackageMapper.class, packageMapper -> {
+
+      if (packageMapper.getVersions().containsKey(packageMapper.getLatestVersion())) {
+        String version = packageMapper.getLatestVersion();
+        PackageVersionMapper latestPackage = packageMapper.getVersions()
+            .get(version);
+
+        RemotePackage remotePackage = RegistryModelAdapter.jsonMapperToEntity(latestPackage);
+        remotePackage.setSlug(packageMapper.getSlug());
+        remotePackage.setRemoteSource(remoteSource);
+        remotePackage.setVersion(version);
+        packageSync.accept(remotePackage);
+      }
+    });
+  }
+
+  private void processOASSource(InputStream content, RemoteSource remoteSource, PackageSync packageSync)
+      throws StoreParsingException {
+    readMapEntries(content, "plugins", OASPackage.class, packageMapper -> {
+
+      if (packageMapper.getVersions().containsKey(packageMapper.getVersion())) {
+        String version = packageMapper.getVersion();
+        OASPlugin latestPlugin = packageMapper.getVersions().get(version);
+
+        RemotePackage remotePackage = OASModelAdapter.mapperToEntity(latestPlugin);
+        remotePackage.setSlug(packageMapper.getSlug());
+        remotePackage.setRemoteSource(remoteSource);
+        remotePackage.setVersion(version);
+
+        // Only add package if at least on bundle is present
+        if (!remotePackage.getBundles().isEmpty()) {
+          packageSync.accept(remotePackage);
+        }
+      }
+    });
+  }
+
+  /**
+   * Reads values of a root level JSON object field one by one, without loading
+   * the whole document in memory. Other root fields are skipped.
+   *
+   * @param content - JSON content
+   * @param fieldName - name of the root field containing the map
+   * @param valueType - type of map values
+   * @param consumer - consumer called for each value
+   * @throws StoreParsingException if the content can't be parsed
+   */
+  private <T> void readMapEntries(InputStream content, String fieldName, Class<T> valueType, Consumer<T> consumer)
+      throws StoreParsingException {
+    try (JsonParser parser = OBJECT_MAPPER.getFactory().createParser(content)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IOException("Registry content is not a JSON object");
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String currentField = parser.currentName();
+        JsonToken valueToken = parser.nextToken();
+
+        if (fieldName.equals(currentField) && valueToken == JsonToken.START_OBJECT) {
+          while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            parser.nextToken();
+            T value = OBJECT_MAPPER.readValue(parser, valueType);
+            if (value != null) {
+              consumer.accept(value);
             }
           }
+        } else {
+          parser.skipChildren();
         }
-        remotePackageRepository.saveAll(remotePackagePartition);
       }
-
     } catch (Exception e) {
       throw new StoreParsingException(e);
     }
   }
 
+  /**
+   * Applies the difference between packages received from a source and persisted
+   * packages of this source. Packages are compared as they are received, in fixed-size
+   * batches: persisted packages of a batch are loaded by key and only new and modified
+   * packages are written. Persisted packages which were not received are deleted once
+   * the whole source is read.
+   */
+  private class PackageSync {
+
+    private final RemoteSource remoteSource;
+    private final Set<String> receivedKeys = new HashSet<>();
+    private final Set<Long> syncedIds = new HashSet<>();
+    private final List<RemotePackage> received = new ArrayList<>();
+    private int inserted = 0;
+    private int updated = 0;
+    private int unchanged = 0;
+
+    PackageSync(RemoteSource remoteSource) {
+      this.remoteSource = remoteSource;
+    }
+
+    void accept(RemotePackage incoming) {
+      String key = RemotePackageMerger.key(incoming);
+      // Only the first package received for a given key is kept
+      if (!receivedKeys.add(key)) {
+        log.debug("Duplicate package {} ignored in source {}", key, remoteSource.getName());
+        return;
+      }
+
+      received.add(incoming);
+      if (received.size() >= BATCH_SIZE) {
+        flush();
+      }
+    }
+
+    void complete() {
+      flush();
+      List<Long> deleted = new ArrayList<>();
+      for (Long id : remotePackageRepository.findIdsByRemoteSource(remoteSource)) {
+        if (!syncedIds.contains(id)) {
+          deleted.add(id);
+        }
+      }
+      for (List<Long> partition : Lists.partition(deleted, BATCH_SIZE)) {
+        remotePackageRepository.deleteAll(remotePackageRepository.findAllById(partition));
+      }
+
+      log.debug("Source {} synced - {} inserted, {} updated, {} deleted, {} unchanged", remoteSource.getName(),
+          inserted, updated, deleted.size(), unchanged);
+    }
+
+    private void flush() {
+      if (received.isEmpty()) {
+        return;
+      }
+      Map<String, RemotePackage> persisted = findPersisted(received);
+      List<RemotePackage> pending = new ArrayList<>();
+      for (RemotePackage incoming : received) {
+        RemotePackage existing = persisted.get(RemotePackageMerger.key(incoming));
+        if (existing == null) {
+          pending.add(incoming);
+          inserted++;
+        } else {
+          syncedIds.add(existing.getId());
+          if (RemotePackageMerger.isModified(existing, incoming)) {
+            RemotePackageMerger.merge(existing, incoming);
+            pending.add(existing);
+            updated++;
+          } else {
+            unchanged++;
+          }
+        }
+      }
+      for (RemotePackage saved : remotePackageRepository.saveAll(pending)) {
+        syncedIds.add(saved.getId());
+      }
+      received.clear();
+    }
+
+    /**
+     * Loads persisted packages of the source matching the keys of the given packages.
+     */
+    private Map<String, RemotePackage> findPersisted(List<RemotePackage> packages) {
+      List<String> slugs = new ArrayList<>();
+      List<String> names = new ArrayList<>();
+      for (RemotePackage remotePackage : packages) {
+        if (remotePackage.getSlug() != null) {
+          slugs.add(remotePackage.getSlug());
+        } else if (remotePackage.getName() != null) {
+          names.add(remotePackage.getName());
+        }
+      }
+      List<RemotePackage> persisted = new ArrayList<>();
+      if (!slugs.isEmpty()) {
+        persisted.addAll(remotePackageRepository.findByRemoteSourceAndSlugIn(remoteSource, slugs));
+      }
+      if (!names.isEmpty()) {
+        persisted.addAll(remotePackageRepository.findByRemoteSourceAndSlugIsNullAndNameIn(remoteSource, names));
+      }
+      return RemotePackageMerger.indexByKey(persisted);
+    }
+  }
+
+  private static class SourceFetch {
+    private final RemoteSource remoteSource;
+    private final RegistryFetcher.FetchResult result;
+    private final Throwable failure;
+
+    SourceFetch(RemoteSource remoteSource, RegistryFetcher.FetchResult result, Throwable failure) {
+      this.remoteSource = remoteSource;
+      this.result = result;
+      this.failure = failure;
+    }
+  }
+
   private static class StoreParsingException extends Exception {
     StoreParsingException(Exception e) {
       super(e);
@@ -24,9 +24,9 @@ import com.owlplug.core.components.ApplicationDefaults;
 import com.owlplug.explore.model.search.ExploreFilterCriteria;
 import com.owlplug.explore.model.search.ExploreFilterCriteriaType;
 import com.owlplug.plugin.model.PluginType;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import javafx.collections.ListChangeListener;
 import javafx.scene.control.ListCell;
 import javafx.scene.image.ImageView;
@@ -35,7 +35,7 @@ import javafx.util.StringConverter;
 public class ExploreChipView extends ChipView<ExploreFilterCriteria> {
 
   private ApplicationDefaults applicationDefaults;
-  private List<String> pluginCreators;
+  private final Map<String, ExploreFilterCriteria> suggestions = new LinkedHashMap<>();
 
   private static final String PROMPT_TEXT = "Enter your search query by Name, Authors, Category...";
 
@@ -47,15 +47,29 @@ public class ExploreChipView extends ChipView<ExploreFilterCriteria> {
   public ExploreChipView(ApplicationDefaults applicationDefaults, List<String> pluginCreators) {
     super();
     this.applicationDefaults = applicationDefaults;
-    this.pluginCreators = pluginCreators;
     this.setPromptText(PROMPT_TEXT);
     init();
+    setPluginCreators(pluginCreators);
+  }
+
+  /**
+   * Replaces creator suggestions, for example after a source sync.
+   *
+   * @param pluginCreators - plugin creators
+   */
+  public void setPluginCreators(List<String> pluginCreators) {
+    suggestions.values().removeIf(criteria -> criteria.getFilterType() == ExploreFilterCriteriaType.CREATOR);
+    for (String creator : pluginCreators) {
+      if (creator != null) {
+        suggestions.putIfAbsent(creator, new ExploreFilterCriteria(creator, ExploreFilterCriteriaType.CREATOR,
+            applicationDefaults.userImage));
+      }
+    }
+    this.getSuggestions().setAll(suggestions.values());
   }
 
   private void init() {
 
-    HashMap<String, ExploreFilterCriteria> suggestions = new LinkedHashMap<>();
-    
     suggestions.put("Effect", new ExploreFilterCriteria(PluginType.EFFECT, ExploreFilterCriteriaType.TYPE,
         applicationDefaults.effectImage, "Effect"));
     suggestions.put("Instrument", new ExploreFilterCriteria(PluginType.INSTRUMENT, ExploreFilterCriteriaType.TYPE,
@@ -112,12 +126,6 @@ public class ExploreChipView extends ChipView<ExploreFilterCriteria> {
     suggestions.put("Vintage",
         new ExploreFilterCriteria("Vintage", ExploreFilterCriteriaType.TAG, applicationDefaults.tagImage));
 
-    for (String creator : pluginCreators) {
-      suggestions.put(creator, new ExploreFilterCriteria(creator, ExploreFilterCriteriaType.CREATOR,
-          applicationDefaults.userImage));
-    }
-
-    this.getSuggestions().addAll(suggestions.values());
     this.setConverter(new StringConverter<>() {
       @Override
       public String toString(ExploreFilterCriteria object) {
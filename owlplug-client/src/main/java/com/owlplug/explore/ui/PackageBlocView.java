@@ -58,19 +58,22 @@ import javafx.scene.text.TextFlow;
 public class PackageBlocView extends AnchorPane {
 
   private ExploreController parentController;
+  private String screenshotUrl;
+  private boolean imageLoaded = false;
 
   /**
    * Creates a new package bloc view instance.
    * 
    * @param applicationDefaults - OwlPlug application defaults
    * @param remotePackage        - related package
-   * @param image               - package image
+   * @param image               - package image, or null if the image is loaded later
    * @param parentController    - parent explore controller
    */
   public PackageBlocView(ApplicationDefaults applicationDefaults, RemotePackage remotePackage, Image image,
                          ExploreController parentController) {
     super();
     this.parentController = parentController;
+    this.screenshotUrl = remotePackage.getScreenshotUrl();
 
     BorderPane content = new BorderPane();
     this.getChildren().add(content);
@@ -111,13 +114,7 @@ public class PackageBlocView extends AnchorPane {
       this.getChildren().add(createPluginStageFlag(remotePackage));
     }
 
-    if (image != null) {
-      BackgroundImage bgImg = new BackgroundImage(image, BackgroundRepeat.NO_REPEAT, BackgroundRepeat.NO_REPEAT,
-          BackgroundPosition.CENTER,
-          new BackgroundSize(BackgroundSize.AUTO, BackgroundSize.AUTO, false, false, true, true));
-
-      this.setBackground(new Background(bgImg));
-    }
+    setImage(image);
 
     this.setEffect(new InnerShadow(11, Color.BLACK));
 
@@ -167,6 +164,30 @@ public class PackageBlocView extends AnchorPane {
     this.setPrefWidth(size.getWidth());
   }
 
+  /**
+   * Displays the package image as bloc background.
+   * 
+   * @param image - package image
+   */
+  public void setImage(Image image) {
+    if (image != null) {
+      BackgroundImage bgImg = new BackgroundImage(image, BackgroundRepeat.NO_REPEAT, BackgroundRepeat.NO_REPEAT,
+          BackgroundPosition.CENTER,
+          new BackgroundSize(BackgroundSize.AUTO, BackgroundSize.AUTO, false, false, true, true));
+
+      this.setBackground(new Background(bgImg));
+      imageLoaded = true;
+    }
+  }
+
+  public String getScreenshotUrl() {
+    return screenshotUrl;
+  }
+
+  public boolean isImageLoaded() {
+    return imageLoaded;
+  }
+
   private Dimension2D generateSize() {
 
     Random rand = new Random();
@@ -20,6 +20,7 @@ package com.owlplug.explore.ui;
 
 import com.owlplug.core.components.ApplicationDefaults;
 import com.owlplug.core.components.ImageCache;
+import com.owlplug.core.components.ImageCache.Resolution;
 import com.owlplug.explore.controllers.ExploreController;
 import com.owlplug.explore.model.RemotePackage;
 import javafx.scene.image.Image;
@@ -46,14 +47,15 @@ public class PackageBlocViewBuilder {
   }
 
   /**
-   * Build a new {@link PackageBlocView} instance.
+   * Build a new {@link PackageBlocView} instance. The package thumbnail is set only
+   * if it's already decoded in memory, otherwise it must be fetched by the caller.
    * 
    * @param remotePackage - Related remotePackage
    * @return A {@link PackageBlocView} instance.
    */
   public PackageBlocView build(RemotePackage remotePackage) {
 
-    Image image = imageCache.get(remotePackage.getScreenshotUrl());
+    Image image = imageCache.getIfPresent(remotePackage.getScreenshotUrl(), Resolution.THUMBNAIL);
     return new PackageBlocView(applicationDefaults, remotePackage, image, exploreController);
   }
 
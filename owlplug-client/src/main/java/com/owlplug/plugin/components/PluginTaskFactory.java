@@ -119,7 +119,9 @@ public class PluginTaskFactory extends BaseTaskFactory {
         pluginFootprintRepository,
         symlinkRepository,
         nativeHostService);
-    
+
+    // Scans can partially update the inventory even if they fail
+    addCompletionHandler(scanTask, pluginService::invalidateInventory);
     scanTask.setOnSucceeded(scanEvent -> {
       notifyListeners(scanPluginsListeners);
       TaskExecutionContext lookupTask = projectTaskFactory.createLookupTask();
@@ -159,7 +161,8 @@ public class PluginTaskFactory extends BaseTaskFactory {
    */
   public TaskExecutionContext createPluginRemoveTask(Plugin plugin) {
     PluginRemoveTask task = new PluginRemoveTask(plugin, pluginRepository);
-    
+    addCompletionHandler(task, pluginService::invalidateInventory);
+
     return create(task);
   }
 
@@ -20,16 +20,21 @@ package com.owlplug.plugin.controllers;
 
 import com.owlplug.core.components.ApplicationDefaults;
 import com.owlplug.core.controllers.BaseController;
+import com.owlplug.core.services.SearchService;
 import com.owlplug.core.utils.FileUtils;
 import com.owlplug.core.utils.PlatformUtils;
 import com.owlplug.plugin.controllers.dialogs.DisablePluginDialogController;
-import com.owlplug.plugin.model.Plugin;
+import com.owlplug.plugin.model.PluginSummary;
 import com.owlplug.plugin.model.PluginFormat;
 import com.owlplug.plugin.model.PluginState;
 import com.owlplug.plugin.services.PluginService;
 import com.owlplug.plugin.ui.PluginStateView;
 import java.io.File;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
 import javafx.beans.binding.Bindings;
+import javafx.beans.binding.ObjectBinding;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -52,17 +57,21 @@ import org.springframework.stereotype.Controller;
 @Controller
 public class PluginTableController extends BaseController {
 
+  private static final int FUZZY_SEARCH_LIMIT = 50;
+
   @Autowired
   private PluginsController pluginsController;
   @Autowired
   private DisablePluginDialogController disableController;
   @Autowired
   private PluginService pluginService;
+  @Autowired
+  private SearchService searchService;
 
   private final SimpleStringProperty search = new SimpleStringProperty();
-  private final TableView<Plugin> tableView;
+  private final TableView<PluginSummary> tableView;
 
-  private final ObservableList<Plugin> pluginList;
+  private final ObservableList<PluginSummary> pluginList;
 
 
   public PluginTableController() {
@@ -72,7 +81,7 @@ public class PluginTableController extends BaseController {
     createColumns();
 
     tableView.setRowFactory(tv -> {
-      TableRow<Plugin> row = new TableRow<>();
+      TableRow<PluginSummary> row = new TableRow<>();
       row.itemProperty().addListener((obs, oldItem, newItem) -> {
         if (newItem != null) {
           row.setContextMenu(createPluginContextMenu(newItem));
@@ -85,27 +94,48 @@ public class PluginTableController extends BaseController {
     pluginList = FXCollections.observableArrayList();
     // Wraps an ObservableList and filters its content using the provided Predicate.
     // All changes in the ObservableList are propagated immediately to the FilteredList.
-    FilteredList<Plugin> filteredPluginList = new FilteredList<>(pluginList);
+    FilteredList<PluginSummary> filteredPluginList = new FilteredList<>(pluginList);
+
+    // Fuzzy matches are resolved once per search value, not once per plugin. Ranks
+    // are indexed by plugin id, best matches first.
+    ObjectBinding<Map<Long, Integer>> fuzzyRanks = Bindings.createObjectBinding(() -> {
+      Map<Long, Integer> ranks = new HashMap<>();
+      if (search.getValue() != null && !search.getValue().isEmpty()) {
+        for (Long id : searchService.searchPlugins(search.getValue(), FUZZY_SEARCH_LIMIT)) {
+          ranks.put(id, ranks.size());
+        }
+      }
+      return ranks;
+    }, search);
 
     filteredPluginList.predicateProperty().bind(Bindings.createObjectBinding(() -> {
       if (search.getValue() == null || search.getValue().isEmpty()) {
         return null;
       }
+      Map<Long, Integer> ranks = fuzzyRanks.get();
       return (plugin) -> plugin.getName().toLowerCase().contains(search.getValue().toLowerCase())
                  || (plugin.getCategory() != null && plugin.getCategory().toLowerCase().contains(
-                     search.getValue().toLowerCase()));
-    }, search));
+                     search.getValue().toLowerCase()))
+                 || ranks.containsKey(plugin.getId());
+    }, search, fuzzyRanks));
 
-    SortedList<Plugin> sortedPluginList = new SortedList<>(filteredPluginList);
+    SortedList<PluginSummary> sortedPluginList = new SortedList<>(filteredPluginList);
     tableView.setItems(sortedPluginList);
-    sortedPluginList.comparatorProperty().bind(tableView.comparatorProperty());
+    // Sorted columns take precedence, search results are otherwise displayed best matches first
+    sortedPluginList.comparatorProperty().bind(Bindings.createObjectBinding(() -> {
+      if (tableView.getComparator() != null || fuzzyRanks.get().isEmpty()) {
+        return tableView.getComparator();
+      }
+      Map<Long, Integer> ranks = fuzzyRanks.get();
+      return Comparator.comparingInt(plugin -> ranks.getOrDefault(plugin.getId(), Integer.MAX_VALUE));
+    }, tableView.comparatorProperty(), fuzzyRanks));
 
   }
 
   private void createColumns() {
-    TableColumn<Plugin, String> nameColumn = new TableColumn<>("Name");
+    TableColumn<PluginSummary, String> nameColumn = new TableColumn<>("Name");
     nameColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getName()));
-    TableColumn<Plugin, PluginFormat> formatColumn = new TableColumn<>("Format");
+    TableColumn<PluginSummary, PluginFormat> formatColumn = new TableColumn<>("Format");
     formatColumn.setCellValueFactory(cellData -> new SimpleObjectProperty<>(cellData.getValue().getFormat()));
     formatColumn.setCellFactory(e -> new TableCell<>() {
       @Override
@@ -120,15 +150,15 @@ public class PluginTableController extends BaseController {
         }
       }
     });
-    TableColumn<Plugin, String> manufacturerColumn = new TableColumn<>("Manufacturer");
+    TableColumn<PluginSummary, String> manufacturerColumn = new TableColumn<>("Manufacturer");
     manufacturerColumn.setCellValueFactory(cellData ->
                                                new SimpleStringProperty(cellData.getValue().getManufacturerName()));
-    TableColumn<Plugin, String> versionColumn = new TableColumn<>("Version");
+    TableColumn<PluginSummary, String> versionColumn = new TableColumn<>("Version");
     versionColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getVersion()));
-    TableColumn<Plugin, String> categoryColumn = new TableColumn<>("Category");
+    TableColumn<PluginSummary, String> categoryColumn = new TableColumn<>("Category");
     categoryColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getCategory()));
     // Directory Column
-    TableColumn<Plugin, String> directoryColumn = new TableColumn<>("Directory");
+    TableColumn<PluginSummary, String> directoryColumn = new TableColumn<>("Directory");
     directoryColumn.setCellValueFactory(cellData -> new SimpleStringProperty(
         FileUtils.getParentDirectoryName(cellData.getValue().getPath())));
     directoryColumn.setCellFactory(e -> new TableCell<>() {
@@ -145,7 +175,7 @@ public class PluginTableController extends BaseController {
       }
     });
     // Scan Directory Column
-    TableColumn<Plugin, String> scanDirectoryColumn = new TableColumn<>("Scan Dir.");
+    TableColumn<PluginSummary, String> scanDirectoryColumn = new TableColumn<>("Scan Dir.");
     scanDirectoryColumn.setCellValueFactory(cellData -> new SimpleStringProperty(
         FileUtils.getFilename(cellData.getValue().getScanDirectoryPath())));
     scanDirectoryColumn.setCellFactory(e -> new TableCell<>() {
@@ -162,7 +192,7 @@ public class PluginTableController extends BaseController {
       }
     });
     // Plugin State Column
-    TableColumn<Plugin, PluginState> stateColumn = new TableColumn<>("State");
+    TableColumn<PluginSummary, PluginState> stateColumn = new TableColumn<>("State");
     stateColumn.setCellValueFactory(cellData -> new SimpleObjectProperty<>(
         pluginService.getPluginState(cellData.getValue())));
     stateColumn.setCellFactory(e -> new TableCell<>() {
@@ -183,12 +213,21 @@ public class PluginTableController extends BaseController {
 
   }
 
-  public void setPlugins(Iterable<Plugin> plugins) {
+  /**
+   * Replaces displayed plugins. The current selection is restored if the
+   * selected plugin is still in the list.
+   * @param plugins plugin summaries to display
+   */
+  public void setPlugins(Iterable<PluginSummary> plugins) {
+    PluginSummary selected = tableView.getSelectionModel().getSelectedItem();
     pluginList.clear();
     plugins.forEach(pluginList::add);
+    if (selected != null) {
+      selectPluginById(selected.getId());
+    }
   }
 
-  public TableView<Plugin> getTableView() {
+  public TableView<PluginSummary> getTableView() {
     return tableView;
   }
 
@@ -198,7 +237,7 @@ public class PluginTableController extends BaseController {
   }
 
   public void selectPluginById(long id) {
-    for (Plugin plugin : pluginList) {
+    for (PluginSummary plugin : pluginList) {
       if (plugin.getId().equals(id)) {
         tableView.getSelectionModel().select(plugin);
         break;
@@ -214,7 +253,7 @@ public class PluginTableController extends BaseController {
     tableView.refresh();
   }
 
-  private ContextMenu createPluginContextMenu(Plugin plugin) {
+  private ContextMenu createPluginContextMenu(PluginSummary plugin) {
 
     ContextMenu menu = new ContextMenu();
     MenuItem openDirItem = new MenuItem("Reveal in File Explorer");
@@ -228,19 +267,23 @@ public class PluginTableController extends BaseController {
     if (plugin.isDisabled()) {
       MenuItem enableItem = new MenuItem("Enable plugin");
       enableItem.setOnAction(e -> {
-        pluginService.enablePlugin(plugin);
-        pluginsController.refresh();
+        pluginService.getPlugin(plugin.getId()).ifPresent(entity -> {
+          pluginService.enablePlugin(entity);
+          pluginsController.refresh();
+        });
       });
       menu.getItems().add(enableItem);
     } else {
       MenuItem disableItem = new MenuItem("Disable plugin");
       disableItem.setOnAction(e -> {
-        if (this.getPreferences().getBoolean(ApplicationDefaults.SHOW_DIALOG_DISABLE_PLUGIN_KEY, true)) {
-          this.disableController.setPlugin(plugin);
-          this.disableController.show();
-        } else {
-          this.disableController.disablePluginWithoutPrompt(plugin);
-        }
+        pluginService.getPlugin(plugin.getId()).ifPresent(entity -> {
+          if (this.getPreferences().getBoolean(ApplicationDefaults.SHOW_DIALOG_DISABLE_PLUGIN_KEY, true)) {
+            this.disableController.setPlugin(entity);
+            this.disableController.show();
+          } else {
+            this.disableController.disablePluginWithoutPrompt(entity);
+          }
+        });
       });
       menu.getItems().add(disableItem);
     }
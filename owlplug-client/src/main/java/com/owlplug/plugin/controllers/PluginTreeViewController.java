@@ -19,6 +19,7 @@
 package com.owlplug.plugin.controllers;
 
 import com.owlplug.core.controllers.BaseController;
+import com.owlplug.core.services.SearchService;
 import com.owlplug.core.ui.FilterableTreeItem;
 import com.owlplug.plugin.model.IDirectory;
 import com.owlplug.plugin.model.Plugin;
@@ -30,9 +31,11 @@ import com.owlplug.plugin.services.PluginService;
 import com.owlplug.plugin.ui.PluginTreeCell;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import javafx.beans.binding.Bindings;
+import javafx.beans.binding.ObjectBinding;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.scene.control.TreeItem;
 import javafx.scene.control.TreeView;
@@ -44,10 +47,14 @@ import org.springframework.stereotype.Controller;
 @Controller
 public class PluginTreeViewController extends BaseController {
 
+  private static final int FUZZY_SEARCH_LIMIT = 50;
+
   @Autowired
   private PluginService pluginService;
   @Autowired
   private SymlinkRepository symlinkRepository;
+  @Autowired
+  private SearchService searchService;
 
   private final SimpleStringProperty search = new SimpleStringProperty();
   private final TreeView<Object> pluginTreeView;
@@ -67,36 +74,49 @@ public class PluginTreeViewController extends BaseController {
 
     pluginTreeView.setRoot(treePluginNode);
 
+    // Fuzzy matches are resolved once per search value and shared by both trees
+    ObjectBinding<Set<Long>> fuzzyMatches = Bindings.createObjectBinding(() -> {
+      if (search.getValue() == null || search.getValue().isEmpty()) {
+        return Set.of();
+      }
+      return new HashSet<>(searchService.searchPlugins(search.getValue(), FUZZY_SEARCH_LIMIT));
+    }, search);
+
     // Binds search property to plugin tree filter
     treePluginNode.predicateProperty().bind(Bindings.createObjectBinding(() -> {
       if (search.getValue() == null || search.getValue().isEmpty()) {
         return null;
       }
+      Set<Long> matches = fuzzyMatches.get();
       return (item) -> {
         if (item instanceof Plugin plugin) {
           return plugin.getName().toLowerCase().contains(search.getValue().toLowerCase())
                   || (plugin.getCategory() != null && plugin.getCategory().toLowerCase().contains(
-                      search.getValue().toLowerCase()));
+                      search.getValue().toLowerCase()))
+                  || matches.contains(plugin.getId());
         } else {
           return item.toString().toLowerCase().contains(search.getValue().toLowerCase());
         }
       };
-    }, search));
+    }, search, fuzzyMatches));
 
     // Binds search property to file tree filter
     treeFileRootNode.predicateProperty().bind(Bindings.createObjectBinding(() -> {
       if (search.getValue() == null || search.getValue().isEmpty()) {
         return null;
       }
+      Set<Long> matches = fuzzyMatches.get();
       return (item) -> {
         if (item instanceof Plugin plugin) {
           return plugin.getName().toLowerCase().contains(search.getValue().toLowerCase())
-                  || (plugin.getCategory() != null && plugin.getCategory().toLowerCase().contains(search.getValue().toLowerCase()));
+                  || (plugin.getCategory() != null && plugin.getCategory().toLowerCase().contains(
+                      search.getValue().toLowerCase()))
+                  || matches.contains(plugin.getId());
         } else {
           return item.toString().toLowerCase().contains(search.getValue().toLowerCase());
         }
       };
-    }, search));
+    }, search, fuzzyMatches));
 
   }
 
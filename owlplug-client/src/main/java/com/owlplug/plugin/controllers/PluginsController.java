@@ -23,8 +23,6 @@ import com.owlplug.core.controllers.BaseController;
 import com.owlplug.plugin.components.PluginTaskFactory;
 import com.owlplug.plugin.controllers.dialogs.ExportDialogController;
 import com.owlplug.plugin.controllers.dialogs.NewLinkController;
-import com.owlplug.plugin.model.Plugin;
-import com.owlplug.plugin.repositories.PluginRepository;
 import com.owlplug.plugin.services.PluginService;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
@@ -43,8 +41,6 @@ public class PluginsController extends BaseController {
   @Autowired
   private PluginService pluginService;
   @Autowired
-  private PluginRepository pluginRepository;
-  @Autowired
   private NodeInfoController nodeInfoController;
   @Autowired
   private NewLinkController newLinkController;
@@ -128,7 +124,8 @@ public class PluginsController extends BaseController {
     tableController.getTableView().getSelectionModel()
         .selectedItemProperty().addListener((observable, oldValue, newValue) -> {
           if (newValue != null) {
-            nodeInfoController.setNode(newValue);
+            // Table rows are lightweight projections, the full plugin is loaded on selection
+            pluginService.getPlugin(newValue.getId()).ifPresent(nodeInfoController::setNode);
           }
         });
 
@@ -202,9 +199,8 @@ public class PluginsController extends BaseController {
   }
 
   public void displayPlugins() {
-    Iterable<Plugin> plugins = pluginRepository.findAll();
-    treeViewController.setPlugins(plugins);
-    tableController.setPlugins(plugins);
+    treeViewController.setPlugins(pluginService.getAllPlugins());
+    tableController.setPlugins(pluginService.getPluginSummaries());
   }
 
   public void selectPluginById(long id) {
@@ -217,7 +213,8 @@ public class PluginsController extends BaseController {
   
   public void refresh() {
     treeViewController.refresh();
-    tableController.refresh();
+    // Table projections are immutable and must be reloaded to reflect plugin changes
+    tableController.setPlugins(pluginService.getPluginSummaries());
   }
 
   public void setInfoPaneDisplay(boolean display) {
@@ -0,0 +1,265 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.plugin.model;
+
+import com.owlplug.core.utils.PluginUtils;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Immutable table of registry packages matching installed plugins. Plugins and packages
+ * are joined on normalized keys: the last segment of the plugin bundle id against the
+ * package slug first, then the plugin name without platform qualifiers and the plugin
+ * descriptive name against the package name. Slugs are only unique per creator, so a
+ * slug match also requires the plugin manufacturer or bundle id vendor to agree with
+ * the package creator. Name matches don't, but packages of the same vendor are preferred,
+ * and only matches with the same vendor are trusted for updates.
+ */
+public class PackageMatchTable {
+
+  private static final PackageMatchTable EMPTY = new PackageMatchTable(Map.of(), Set.of());
+
+  private final Map<Long, PackageMatch> matchesByPlugin;
+  private final Set<Long> sameVendorPlugins;
+
+  private PackageMatchTable(Map<Long, PackageMatch> matchesByPlugin, Set<Long> sameVendorPlugins) {
+    this.matchesByPlugin = matchesByPlugin;
+    this.sameVendorPlugins = sameVendorPlugins;
+  }
+
+  public static PackageMatchTable empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Matches plugins with packages in a single pass over both lists.
+   * @param plugins - installed plugins
+   * @param packages - registry packages, packages listed first are preferred
+   * @return the match table
+   */
+  public static PackageMatchTable build(List<PluginSummary> plugins, List<PackageMatch> packages) {
+    Map<String, List<PackageMatch>> packagesBySlug = new HashMap<>();
+    Map<String, List<PackageMatch>> packagesByName = new HashMap<>();
+    for (PackageMatch remotePackage : packages) {
+      index(packagesBySlug, normalize(remotePackage.getSlug()), remotePackage);
+      index(packagesByName, normalize(remotePackage.getPackageName()), remotePackage);
+    }
+
+    Map<Long, PackageMatch> matches = new HashMap<>();
+    Set<Long> sameVendorPlugins = new HashSet<>();
+    for (PluginSummary plugin : plugins) {
+      PackageMatch match = select(plugin, packagesBySlug.get(normalize(bundleName(plugin.getBundleId()))), true);
+      boolean sameVendor = match != null;
+      for (String name : List.of(normalize(PluginUtils.absoluteName(plugin.getName())),
+          normalize(plugin.getDescriptiveName()))) {
+        if (match != null) {
+          break;
+        }
+        match = select(plugin, packagesByName.get(name), true);
+        sameVendor = match != null;
+        if (match == null) {
+          match = select(plugin, packagesByName.get(name), false);
+        }
+      }
+      if (match != null) {
+        matches.put(plugin.getId(), match);
+      }
+      if (sameVendor) {
+        sameVendorPlugins.add(plugin.getId());
+      }
+    }
+    return new PackageMatchTable(Map.copyOf(matches), Set.copyOf(sameVendorPlugins));
+  }
+
+  /**
+   * Returns the package matching a plugin.
+   * @param pluginId - plugin id
+   * @return the matching package, if any
+   */
+  public Optional<PackageMatch> get(Long pluginId) {
+    return Optional.ofNullable(matchesByPlugin.get(pluginId));
+  }
+
+  /**
+   * Returns the package matching a plugin, only if the package creator matches the
+   * plugin vendor. Packages of other vendors may share the plugin name, so only these
+   * matches are used to detect updates.
+   * @param pluginId - plugin id
+   * @return the matching package of the same vendor, if any
+   */
+  public Optional<PackageMatch> getSameVendor(Long pluginId) {
+    return sameVendorPlugins.contains(pluginId) ? get(pluginId) : Optional.empty();
+  }
+
+  public int size() {
+    return matchesByPlugin.size();
+  }
+
+  private static void index(Map<String, List<PackageMatch>> packages, String key, PackageMatch remotePackage) {
+    if (!key.isEmpty()) {
+      packages.computeIfAbsent(key, k -> new ArrayList<>()).add(remotePackage);
+    }
+  }
+
+  /**
+   * Selects the preferred package among packages sharing a key.
+   * @param plugin - installed plugin
+   * @param packages - packages sharing the plugin key, may be null
+   * @param sameVendor - true to only select packages of the plugin vendor
+   * @return the selected package, null if none
+   */
+  private static PackageMatch select(PluginSummary plugin, List<PackageMatch> packages, boolean sameVendor) {
+    PackageMatch match = null;
+    for (PackageMatch remotePackage : packages != null ? packages : List.<PackageMatch>of()) {
+      if (isPreferred(match, remotePackage) && (!sameVendor || isSameVendor(plugin, remotePackage))) {
+        match = remotePackage;
+      }
+    }
+    return match;
+  }
+
+  /**
+   * Packages with a screenshot are preferred over earlier packages without one.
+   */
+  private static boolean isPreferred(PackageMatch existing, PackageMatch remotePackage) {
+    return existing == null || (existing.getScreenshotUrl() == null && remotePackage.getScreenshotUrl() != null);
+  }
+
+  /**
+   * Returns true if the package creator matches the plugin manufacturer or the vendor
+   * segment of the plugin bundle id. Names are compared normalized, and a name may
+   * contain the other (Xfer Records, xferrecords, Xfer).
+   * @param plugin - installed plugin
+   * @param remotePackage - registry package
+   * @return true if the plugin and the package are from the same vendor
+   */
+  static boolean isSameVendor(PluginSummary plugin, PackageMatch remotePackage) {
+    String creator = normalize(remotePackage.getCreator());
+    if (creator.isEmpty()) {
+      return false;
+    }
+    for (String vendor : List.of(normalize(plugin.getManufacturerName()),
+        normalize(bundleVendor(plugin.getBundleId())))) {
+      if (!vendor.isEmpty() && (vendor.contains(creator) || creator.contains(vendor))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the last segment of a reverse domain bundle id (com.vendor.Plugin).
+   * @param bundleId - plugin bundle id
+   * @return the bundle name, null if bundleId is null
+   */
+  static String bundleName(String bundleId) {
+    if (bundleId == null) {
+      return null;
+    }
+    return bundleId.substring(bundleId.lastIndexOf('.') + 1);
+  }
+
+  /**
+   * Returns the segment before the bundle name of a reverse domain bundle id (com.vendor.Plugin).
+   * @param bundleId - plugin bundle id
+   * @return the bundle vendor, null if bundleId doesn't have a vendor segment
+   */
+  static String bundleVendor(String bundleId) {
+    if (bundleId == null) {
+      return null;
+    }
+    int end = bundleId.lastIndexOf('.');
+    if (end < 0) {
+      return null;
+    }
+    return bundleId.substring(bundleId.lastIndexOf('.', end - 1) + 1, end);
+  }
+
+  /**
+   * Lower-cases a name and removes all characters except letters and digits.
+   * @param name - name to normalize
+   * @return normalized name, empty if name is null
+   */
+  static String normalize(String name) {
+    if (name == null) {
+      return "";
+    }
+    StringBuilder builder = new StringBuilder(name.length());
+    for (char c : name.toLowerCase(Locale.ROOT).toCharArray()) {
+      if (Character.isLetterOrDigit(c)) {
+        builder.append(c);
+      }
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Registry package matched with a plugin.
+   */
+  public static class PackageMatch {
+
+    private final Long packageId;
+    private final String packageName;
+    private final String slug;
+    private final String creator;
+    private final String version;
+    private final String screenshotUrl;
+
+    public PackageMatch(Long packageId, String packageName, String slug, String creator, String version,
+                        String screenshotUrl) {
+      this.packageId = packageId;
+      this.packageName = packageName;
+      this.slug = slug;
+      this.creator = creator;
+      this.version = version;
+      this.screenshotUrl = screenshotUrl;
+    }
+
+    public Long getPackageId() {
+      return packageId;
+    }
+
+    public String getPackageName() {
+      return packageName;
+    }
+
+    public String getSlug() {
+      return slug;
+    }
+
+    public String getCreator() {
+      return creator;
+    }
+
+    public String getVersion() {
+      return version;
+    }
+
+    public String getScreenshotUrl() {
+      return screenshotUrl;
+    }
+  }
+
+}
@@ -18,6 +18,7 @@
  
 package com.owlplug.plugin.model;
 
+import com.owlplug.core.utils.FileUtils;
 import com.owlplug.project.model.DawPluginLookup;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
@@ -30,6 +31,8 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Index;
 import jakarta.persistence.Inheritance;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.Table;
@@ -40,8 +43,10 @@ import org.hibernate.annotations.OnDeleteAction;
 
 @Entity
 @Inheritance
+@NamedEntityGraph(name = "Plugin.components", attributeNodes = @NamedAttributeNode("components"))
 @Table(indexes = { @Index(name = "IDX_PLUGIN_ID", columnList = "id"),
-    @Index(name = "IDX_PLUGIN_NAME", columnList = "name") })
+    @Index(name = "IDX_PLUGIN_NAME", columnList = "name"),
+    @Index(name = "IDX_PLUGIN_NORMALIZED_PATH", columnList = "normalizedPath") })
 public class Plugin {
 
   @Id
@@ -55,6 +60,8 @@ public class Plugin {
   protected String manufacturerName;
   protected String identifier;
   protected String path;
+  // Lower-cased path used for indexed exact and prefix lookups
+  protected String normalizedPath;
   protected String scanDirectoryPath;
   protected String bundleId;
   protected String version;
@@ -65,6 +72,10 @@ public class Plugin {
   protected boolean syncComplete = false;
   @Column(columnDefinition = "boolean default false")
   protected boolean disabled = false;
+  // Newer version found in registries, computed after each scan and sync
+  @Column(columnDefinition = "boolean default false")
+  protected boolean updateAvailable = false;
+  protected String updateVersion;
 
   @Enumerated(EnumType.STRING)
   protected PluginFormat format;
@@ -74,7 +85,7 @@ public class Plugin {
   protected PluginFootprint footprint;
 
   @OneToMany(mappedBy = "plugin", orphanRemoval = true,
-      fetch = FetchType.EAGER, cascade = { CascadeType.ALL })
+      fetch = FetchType.LAZY, cascade = { CascadeType.ALL })
   private Set<PluginComponent> components = new HashSet<>();
 
   @OneToMany(mappedBy = "plugin")
@@ -103,6 +114,11 @@ public class Plugin {
 
   public void setPath(String path) {
     this.path = path;
+    this.normalizedPath = FileUtils.normalizePath(path);
+  }
+
+  public String getNormalizedPath() {
+    return normalizedPath;
   }
 
   public String getScanDirectoryPath() {
@@ -129,6 +145,22 @@ public class Plugin {
     this.version = version;
   }
 
+  public boolean isUpdateAvailable() {
+    return updateAvailable;
+  }
+
+  public void setUpdateAvailable(boolean updateAvailable) {
+    this.updateAvailable = updateAvailable;
+  }
+
+  public String getUpdateVersion() {
+    return updateVersion;
+  }
+
+  public void setUpdateVersion(String updateVersion) {
+    this.updateVersion = updateVersion;
+  }
+
   public String getScreenshotUrl() {
     return screenshotUrl;
   }
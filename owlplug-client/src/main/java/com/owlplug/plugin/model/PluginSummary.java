@@ -0,0 +1,135 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.plugin.model;
+
+/**
+ * Read-only plugin projection used by list views. It only holds the plugin
+ * columns displayed in tables, without components, footprint or lookups.
+ * Full entities can be loaded on demand from the plugin id.
+ */
+public class PluginSummary {
+
+  private final Long id;
+  private final String name;
+  private final String descriptiveName;
+  private final PluginFormat format;
+  private final String version;
+  private final String bundleId;
+  private final String manufacturerName;
+  private final String category;
+  private final String path;
+  private final String scanDirectoryPath;
+  private final boolean scanComplete;
+  private final boolean disabled;
+  private final boolean nativeCompatible;
+  private final String updateVersion;
+
+  /**
+   * Creates a new PluginSummary. Used by JPQL constructor expressions.
+   */
+  public PluginSummary(Long id, String name, String descriptiveName, PluginFormat format, String version,
+                       String bundleId, String manufacturerName, String category, String path,
+                       String scanDirectoryPath, boolean scanComplete, boolean disabled,
+                       boolean nativeCompatible, String updateVersion) {
+    this.id = id;
+    this.name = name;
+    this.descriptiveName = descriptiveName;
+    this.format = format;
+    this.version = version;
+    this.bundleId = bundleId;
+    this.manufacturerName = manufacturerName;
+    this.category = category;
+    this.path = path;
+    this.scanDirectoryPath = scanDirectoryPath;
+    this.scanComplete = scanComplete;
+    this.disabled = disabled;
+    this.nativeCompatible = nativeCompatible;
+    this.updateVersion = updateVersion;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getDescriptiveName() {
+    return descriptiveName;
+  }
+
+  public PluginFormat getFormat() {
+    return format;
+  }
+
+  public String getVersion() {
+    return version;
+  }
+
+  public String getManufacturerName() {
+    return manufacturerName;
+  }
+
+  public String getCategory() {
+    return category;
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  public String getScanDirectoryPath() {
+    return scanDirectoryPath;
+  }
+
+  public boolean isScanComplete() {
+    return scanComplete;
+  }
+
+  public boolean isDisabled() {
+    return disabled;
+  }
+
+  public boolean isNativeCompatible() {
+    return nativeCompatible;
+  }
+
+  public String getBundleId() {
+    return bundleId;
+  }
+
+  /**
+   * Returns the newer version available in registries.
+   * @return the newer version, null if no update is available
+   */
+  public String getUpdateVersion() {
+    return updateVersion;
+  }
+
+  public boolean isUpdateAvailable() {
+    return updateVersion != null;
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+
+}
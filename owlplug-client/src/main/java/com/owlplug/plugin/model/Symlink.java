@@ -18,14 +18,18 @@
  
 package com.owlplug.plugin.model;
 
+import com.owlplug.core.utils.FileUtils;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 import jakarta.persistence.Transient;
 import java.util.List;
 
 @Entity
+@Table(indexes = { @Index(name = "IDX_SYMLINK_NORMALIZED_PATH", columnList = "normalizedPath") })
 public class Symlink implements IDirectory {
   
   @Id
@@ -33,6 +37,8 @@ public class Symlink implements IDirectory {
   protected Long id;
   protected String name;
   protected String path;
+  // Lower-cased path used for indexed exact and prefix lookups
+  protected String normalizedPath;
   protected String targetPath;
   protected boolean enabled;
   protected boolean stale;
@@ -45,7 +51,7 @@ public class Symlink implements IDirectory {
   }
   
   public Symlink(String path, String name, boolean enabled) {
-    this.path = path;
+    this.setPath(path);
     this.name = name;
     this.enabled = enabled;
   }
@@ -73,6 +79,11 @@ public class Symlink implements IDirectory {
   
   public void setPath(String path) {
     this.path = path;
+    this.normalizedPath = FileUtils.normalizePath(path);
+  }
+
+  public String getNormalizedPath() {
+    return normalizedPath;
   }
   
   public String getTargetPath() {
@@ -18,14 +18,23 @@
  
 package com.owlplug.plugin.repositories;
 
+import com.google.common.collect.Lists;
+import com.owlplug.core.utils.FileUtils;
 import com.owlplug.plugin.model.Plugin;
 import com.owlplug.plugin.model.PluginFormat;
+import com.owlplug.plugin.model.PluginSummary;
 import jakarta.persistence.criteria.Join;
 import jakarta.persistence.criteria.JoinType;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
 public interface PluginRepository extends JpaRepository<Plugin, Long>, JpaSpecificationExecutor<Plugin> {
@@ -49,9 +58,83 @@ public interface PluginRepository extends JpaRepository<Plugin, Long>, JpaSpecif
 
 
   Plugin findByPath(String path);
+
+  /**
+   * Returns all plugins with their components fetched in the same query.
+   * @return plugin list
+   */
+  @EntityGraph("Plugin.components")
+  @Query("select p from Plugin p")
+  List<Plugin> findAllWithComponents();
+
+  @EntityGraph("Plugin.components")
+  Optional<Plugin> findWithComponentsById(Long id);
+
+  /**
+   * Returns a read-only projection of all plugins, without any association.
+   * @return plugin summary list
+   */
+  @Query("select new com.owlplug.plugin.model.PluginSummary(p.id, p.name, p.descriptiveName, p.format, p.version, "
+      + "p.bundleId, p.manufacturerName, p.category, p.path, p.scanDirectoryPath, p.syncComplete, p.disabled, "
+      + "p.nativeCompatible, p.updateVersion) from Plugin p")
+  List<PluginSummary> findAllSummaries();
+
+  /**
+   * Sets the update availability of the given plugins.
+   * @param ids - plugin ids
+   * @param updateAvailable - true if a newer version is available
+   * @param updateVersion - newer version, null if no update is available
+   * @return number of updated plugins
+   */
+  @Transactional
+  @Modifying(clearAutomatically = true, flushAutomatically = true)
+  @Query("update Plugin p set p.updateAvailable = :updateAvailable, p.updateVersion = :updateVersion "
+      + "where p.id in :ids")
+  int updateAvailableVersion(@Param("ids") Collection<Long> ids, @Param("updateAvailable") boolean updateAvailable,
+      @Param("updateVersion") String updateVersion);
+
+  /**
+   * Sets the newer version available for the given plugins.
+   * Plugins are updated by chunks to keep IN clauses bounded.
+   * @param ids - plugin ids
+   * @param updateVersion - newer version, null if no update is available
+   */
+  default void updateAvailableVersion(Collection<Long> ids, String updateVersion) {
+    for (List<Long> partition : Lists.partition(List.copyOf(ids), 500)) {
+      updateAvailableVersion(partition, updateVersion != null, updateVersion);
+    }
+  }
   
   List<Plugin> findBySyncComplete(boolean syncComplete);
-  
+
+  List<Plugin> findByNormalizedPathIsNull();
+
+  @Transactional
+  void deleteByNormalizedPathGreaterThanEqualAndNormalizedPathLessThan(String lowerBound, String upperBound);
+
   @Transactional
-  void deleteByPathContainingIgnoreCase(String path);
-}
\ No newline at end of file
+  void deleteByNormalizedPathIn(Collection<String> normalizedPaths);
+
+  /**
+   * Deletes all plugins located under the given path prefix. The prefix is
+   * resolved as a range on the indexed normalized path column.
+   * @param prefix - path prefix, should end with a separator to only match nested paths
+   */
+  default void deleteByPathPrefix(String prefix) {
+    String lowerBound = FileUtils.normalizePath(prefix);
+    deleteByNormalizedPathGreaterThanEqualAndNormalizedPathLessThan(lowerBound,
+        FileUtils.prefixUpperBound(lowerBound));
+  }
+
+  /**
+   * Deletes all plugins matching exactly one of the given paths.
+   * Paths are deleted by chunks to keep IN clauses bounded.
+   * @param paths - plugin paths to delete
+   */
+  default void deleteByPaths(Collection<String> paths) {
+    List<String> normalizedPaths = paths.stream().map(FileUtils::normalizePath).toList();
+    for (List<String> partition : Lists.partition(normalizedPaths, 500)) {
+      deleteByNormalizedPathIn(partition);
+    }
+  }
+}
@@ -18,14 +18,47 @@
  
 package com.owlplug.plugin.repositories;
 
+import com.google.common.collect.Lists;
+import com.owlplug.core.utils.FileUtils;
 import com.owlplug.plugin.model.Symlink;
+import java.util.Collection;
+import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.transaction.annotation.Transactional;
 
 public interface SymlinkRepository extends JpaRepository<Symlink, Long> {
   
   Symlink findByPath(String path);
-  
+
+  List<Symlink> findByNormalizedPathIsNull();
+
+  @Transactional
+  void deleteByNormalizedPathGreaterThanEqualAndNormalizedPathLessThan(String lowerBound, String upperBound);
+
   @Transactional
-  void deleteByPathContainingIgnoreCase(String path);
+  void deleteByNormalizedPathIn(Collection<String> normalizedPaths);
+
+  /**
+   * Deletes all symlinks located under the given path prefix. The prefix is
+   * resolved as a range on the indexed normalized path column.
+   * @param prefix - path prefix, should end with a separator to only match nested paths
+   */
+  default void deleteByPathPrefix(String prefix) {
+    String lowerBound = FileUtils.normalizePath(prefix);
+    deleteByNormalizedPathGreaterThanEqualAndNormalizedPathLessThan(lowerBound,
+        FileUtils.prefixUpperBound(lowerBound));
+  }
+
+  /**
+   * Deletes all symlinks matching exactly one of the given paths.
+   * Paths are deleted by chunks to keep IN clauses bounded.
+   * @param paths - symlink paths to delete
+   */
+  default void deleteByPaths(Collection<String> paths) {
+    List<String> normalizedPaths = paths.stream().map(FileUtils::normalizePath).toList();
+    for (List<String> partition : Lists.partition(normalizedPaths, 500)) {
+      deleteByNormalizedPathIn(partition);
+    }
+  }
 }
+
@@ -0,0 +1,162 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.plugin.services;
+
+import com.owlplug.core.services.BaseService;
+import com.owlplug.core.utils.cache.VersionCache;
+import com.owlplug.explore.components.ExploreTaskFactory;
+import com.owlplug.explore.repositories.RemotePackageRepository;
+import com.owlplug.plugin.components.PluginTaskFactory;
+import com.owlplug.plugin.model.PackageMatchTable;
+import com.owlplug.plugin.model.PackageMatchTable.PackageMatch;
+import com.owlplug.plugin.model.PluginSummary;
+import com.owlplug.plugin.repositories.PluginRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Matches installed plugins with registry packages. Matches are computed in a
+ * single batched pass after each plugin scan and source sync, so plugin screenshots
+ * and packages are available without querying packages when a plugin is displayed.
+ * Plugins whose matching package of the same vendor has a newer version are flagged
+ * as updatable in the same pass.
+ */
+@Service
+public class PackageMatchService extends BaseService {
+
+  private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+  @Autowired
+  private PluginRepository pluginRepository;
+  @Autowired
+  private RemotePackageRepository remotePackageRepository;
+  @Autowired
+  private PluginTaskFactory pluginTaskFactory;
+  @Autowired
+  private ExploreTaskFactory exploreTaskFactory;
+  @Autowired
+  private PluginService pluginService;
+
+  private final VersionCache versionCache = new VersionCache(10_000);
+  private volatile PackageMatchTable matchTable = PackageMatchTable.empty();
+  private ExecutorService executor;
+
+  @PostConstruct
+  private void initialize() {
+    executor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "owlplug-package-match");
+      thread.setDaemon(true);
+      return thread;
+    });
+    pluginTaskFactory.addScanPluginsListener(this::refreshMatches);
+    exploreTaskFactory.addSyncSourcesListener(this::refreshMatches);
+    refreshMatches();
+  }
+
+  @PreDestroy
+  private void destroy() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Schedules a new computation of the match table and plugin update availability.
+   */
+  public void refreshMatches() {
+    executor.execute(() -> {
+      long start = System.nanoTime();
+      List<PackageMatch> packages = new ArrayList<>();
+      for (Object[] row : remotePackageRepository.findPackageMatchRows()) {
+        packages.add(new PackageMatch((Long) row[0], (String) row[1], (String) row[2],
+            (String) row[3], (String) row[4], (String) row[5]));
+      }
+      List<PluginSummary> plugins = pluginRepository.findAllSummaries();
+      matchTable = PackageMatchTable.build(plugins, packages);
+      log.debug("{} plugins matched with registry packages in {} ms", matchTable.size(),
+          (System.nanoTime() - start) / 1_000_000);
+      refreshUpdates(plugins);
+    });
+  }
+
+  /**
+   * Stores update availability of plugins whose state changed since the last refresh.
+   * Changed plugins are grouped by target version to update them with a few bulk queries.
+   * @param plugins - installed plugins
+   */
+  private void refreshUpdates(List<PluginSummary> plugins) {
+    long start = System.nanoTime();
+    Map<String, List<Long>> changedByVersion = new HashMap<>();
+    List<Long> cleared = new ArrayList<>();
+    int updatable = 0;
+    for (PluginSummary plugin : plugins) {
+      String updateVersion = findUpdateVersion(plugin);
+      if (updateVersion != null) {
+        updatable++;
+      }
+      if (Objects.equals(updateVersion, plugin.getUpdateVersion())) {
+        continue;
+      }
+      if (updateVersion == null) {
+        cleared.add(plugin.getId());
+      } else {
+        changedByVersion.computeIfAbsent(updateVersion, v -> new ArrayList<>()).add(plugin.getId());
+      }
+    }
+
+    if (!cleared.isEmpty()) {
+      pluginRepository.updateAvailableVersion(cleared, null);
+    }
+    changedByVersion.forEach((version, ids) -> pluginRepository.updateAvailableVersion(ids, version));
+    if (!cleared.isEmpty() || !changedByVersion.isEmpty()) {
+      pluginService.invalidateInventory();
+    }
+    log.debug("{} plugins with available updates computed in {} ms", updatable,
+        (System.nanoTime() - start) / 1_000_000);
+  }
+
+  private String findUpdateVersion(PluginSummary plugin) {
+    // Packages of other vendors may share the plugin name, their versions are unrelated
+    Optional<PackageMatch> match = matchTable.getSameVendor(plugin.getId());
+    if (match.isPresent() && versionCache.isNewer(match.get().getVersion(), plugin.getVersion())) {
+      return match.get().getVersion();
+    }
+    return null;
+  }
+
+  /**
+   * Returns the registry package matching a plugin.
+   * @param pluginId - plugin id
+   * @return the matching package, if any
+   */
+  public Optional<PackageMatch> getMatch(Long pluginId) {
+    return matchTable.get(pluginId);
+  }
+
+}
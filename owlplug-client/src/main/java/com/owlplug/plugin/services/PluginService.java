@@ -18,24 +18,28 @@
  
 package com.owlplug.plugin.services;
 
-import com.google.common.collect.Iterables;
 import com.owlplug.core.components.ApplicationDefaults;
 import com.owlplug.core.components.ApplicationPreferences;
 import com.owlplug.core.services.BaseService;
 import com.owlplug.core.utils.FileUtils;
-import com.owlplug.core.utils.PluginUtils;
-import com.owlplug.explore.model.RemotePackage;
+import com.owlplug.core.utils.cache.SnapshotCache;
 import com.owlplug.explore.services.ExploreService;
 import com.owlplug.plugin.components.PluginTaskFactory;
+import com.owlplug.plugin.model.PackageMatchTable.PackageMatch;
 import com.owlplug.plugin.model.Plugin;
 import com.owlplug.plugin.model.PluginFootprint;
 import com.owlplug.plugin.model.PluginFormat;
 import com.owlplug.plugin.model.PluginState;
+import com.owlplug.plugin.model.PluginSummary;
+import com.owlplug.plugin.model.Symlink;
 import com.owlplug.plugin.repositories.PluginFootprintRepository;
 import com.owlplug.plugin.repositories.PluginRepository;
+import com.owlplug.plugin.repositories.SymlinkRepository;
+import jakarta.annotation.PostConstruct;
 import java.io.File;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
@@ -54,10 +58,41 @@ public class PluginService extends BaseService {
   @Autowired
   protected PluginFootprintRepository pluginFootprintRepository;
   @Autowired
+  protected SymlinkRepository symlinkRepository;
+  @Autowired
   protected PluginTaskFactory taskFactory;
+  @Autowired
+  protected PackageMatchService packageMatchService;
   
   private final Logger log = LoggerFactory.getLogger(this.getClass());
 
+  /**
+   * Unmodifiable list of plugin summaries shared by plugin views. Plugin entities are
+   * mutable and are never cached. Invalidated when scan or remove tasks complete and
+   * when a plugin is enabled, disabled or deleted.
+   */
+  private final SnapshotCache<String, List<PluginSummary>> summaryCache = new SnapshotCache<>("Plugin summaries", 1);
+
+  /**
+   * Fills normalized paths of plugins and symlinks persisted by previous versions.
+   */
+  @PostConstruct
+  private void init() {
+    List<Plugin> plugins = pluginRepository.findByNormalizedPathIsNull();
+    if (!plugins.isEmpty()) {
+      log.info("Normalizing {} plugin paths", plugins.size());
+      plugins.forEach(p -> p.setPath(p.getPath()));
+      pluginRepository.saveAll(plugins);
+    }
+
+    List<Symlink> symlinks = symlinkRepository.findByNormalizedPathIsNull();
+    if (!symlinks.isEmpty()) {
+      log.info("Normalizing {} symlink paths", symlinks.size());
+      symlinks.forEach(s -> s.setPath(s.getPath()));
+      symlinkRepository.saveAll(symlinks);
+    }
+  }
+
 
   public void scanPlugins() {
     scanPlugins(pluginRepository.count() > 0);
@@ -73,33 +108,51 @@ public class PluginService extends BaseService {
   }
 
   public Iterable<Plugin> getAllPlugins() {
-    return pluginRepository.findAll();
+    return pluginRepository.findAllWithComponents();
+  }
+
+  /**
+   * Returns a lightweight read-only projection of all plugins.
+   * @return plugin summaries
+   */
+  public List<PluginSummary> getPluginSummaries() {
+    return summaryCache.get("all", () -> List.copyOf(pluginRepository.findAllSummaries()));
+  }
+
+  /**
+   * Discards cached inventory snapshots. Must be called when plugins are
+   * updated outside of this service.
+   */
+  public void invalidateInventory() {
+    summaryCache.invalidate();
+  }
+
+  /**
+   * Returns inventory caches to expose hit and miss counters.
+   * @return inventory caches
+   */
+  public List<SnapshotCache<?, ?>> getInventoryCaches() {
+    return List.of(summaryCache);
   }
 
   /**
-   * Returns an url to retrieve plugin screenshots. Url can be retrieved from
-   * registered packages in remote sources.
+   * Loads a plugin and its components.
+   * @param id plugin id
+   * @return the plugin, empty if it doesn't exist anymore
+   */
+  public Optional<Plugin> getPlugin(Long id) {
+    return pluginRepository.findWithComponentsById(id);
+  }
+
+  /**
+   * Returns an url to retrieve plugin screenshots. Url is retrieved from the
+   * registry package matching the plugin, see {@link PackageMatchService}.
    * 
    * @param plugin the plugin
    * @return screenshot url
    */
   public String resolveImageUrl(Plugin plugin) {
-
-    String absoluteName = PluginUtils.absoluteName(plugin.getName());
-    Iterable<RemotePackage> packages = exploreService.getPackagesByName(absoluteName);
-
-    if (!Iterables.isEmpty(packages)) {
-      return Iterables.get(packages, 0).getScreenshotUrl();
-    }
-    
-    if (plugin.getDescriptiveName() != null) {
-      packages = exploreService.getPackagesByName(plugin.getDescriptiveName());
-      if (!Iterables.isEmpty(packages)) {
-        return Iterables.get(packages, 0).getScreenshotUrl();
-      }
-    }
-
-    return null;
+    return packageMatchService.getMatch(plugin.getId()).map(PackageMatch::getScreenshotUrl).orElse(null);
   }
 
   /**
@@ -131,6 +184,7 @@ public class PluginService extends BaseService {
       plugin.setDisabled(true);
       plugin.setPath(plugin.getPath() + ".disabled");
       pluginRepository.save(plugin);
+      invalidateInventory();
 
     } else {
       log.error("Plugin can't be disabled: failed to rename file {}", plugin.getPath());
@@ -152,6 +206,7 @@ public class PluginService extends BaseService {
       plugin.setDisabled(false);
       plugin.setPath(newPath);
       pluginRepository.save(plugin);
+      invalidateInventory();
     } else {
       log.error("Plugin can't be enabled: failed to rename file {}", plugin.getPath());
     }
@@ -159,14 +214,22 @@ public class PluginService extends BaseService {
   }
 
   public PluginState getPluginState(Plugin plugin) {
+    return getPluginState(plugin.isScanComplete(), plugin.isDisabled(), plugin.isNativeCompatible());
+  }
+
+  public PluginState getPluginState(PluginSummary plugin) {
+    return getPluginState(plugin.isScanComplete(), plugin.isDisabled(), plugin.isNativeCompatible());
+  }
+
+  private PluginState getPluginState(boolean scanComplete, boolean disabled, boolean nativeCompatible) {
 
-    if (!plugin.isScanComplete()) {
+    if (!scanComplete) {
       return PluginState.UNSTABLE;
     }
-    if (plugin.isDisabled()) {
+    if (disabled) {
       return PluginState.DISABLED;
     }
-    if (plugin.isNativeCompatible()) {
+    if (nativeCompatible) {
       return PluginState.ACTIVE;
     }
     return PluginState.INSTALLED;
@@ -272,6 +335,7 @@ public class PluginService extends BaseService {
    */
   public void delete(Plugin plugin) {
     pluginRepository.delete(plugin);
+    invalidateInventory();
   }
 
   
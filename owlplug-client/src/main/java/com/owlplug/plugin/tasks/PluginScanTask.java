@@ -111,8 +111,8 @@ public class PluginScanTask extends AbstractTask {
         if (!scopedPath.endsWith("/")) {
           scopedPath += "/";
         }
-        pluginRepository.deleteByPathContainingIgnoreCase(scopedPath);
-        symlinkRepository.deleteByPathContainingIgnoreCase(scopedPath);
+        pluginRepository.deleteByPathPrefix(scopedPath);
+        symlinkRepository.deleteByPathPrefix(scopedPath);
       } else {
         // Delete all previous plugins by default (in case of a complete Scan task)
         pluginRepository.deleteAll();
@@ -135,12 +135,8 @@ public class PluginScanTask extends AbstractTask {
               .differentialPlugins(p)
               .differentialSymlinks(s);
 
-      for (String deleted : collector.getPluginDifferential().getRemoved()) {
-        pluginRepository.deleteByPathContainingIgnoreCase(deleted);
-      }
-      for (String deleted : collector.getSymlinkDifferential().getRemoved()) {
-        symlinkRepository.deleteByPathContainingIgnoreCase(deleted);
-      }
+      pluginRepository.deleteByPaths(collector.getPluginDifferential().getRemoved());
+      symlinkRepository.deleteByPaths(collector.getSymlinkDifferential().getRemoved());
 
       pluginFiles.addAll(collector.getPluginDifferential().getAdded());
       symlinks.addAll(collector.getSymlinkDifferential().getAdded());
@@ -83,7 +83,7 @@ public class ProjectsController extends BaseController {
     projectTreeView.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, newValue) -> {
       if (newValue instanceof TreeItem treeItem
            && treeItem.getValue() instanceof DawProject project) {
-        projectInfoController.setProject(project);
+        projectService.getProject(project.getId()).ifPresent(projectInfoController::setProject);
       }
     });
 
@@ -52,7 +52,7 @@ public class DawPlugin {
   @ManyToOne
   private DawProject project;
 
-  @OneToOne(mappedBy = "dawPlugin", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+  @OneToOne(mappedBy = "dawPlugin", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
   @OnDelete(action = OnDeleteAction.CASCADE)
   private DawPluginLookup lookup;
 
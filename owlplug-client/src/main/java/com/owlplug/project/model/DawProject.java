@@ -24,6 +24,9 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.NamedSubgraph;
 import jakarta.persistence.OneToMany;
 import java.util.Date;
 import java.util.HashSet;
@@ -32,6 +35,12 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 @Entity
+@NamedEntityGraph(name = "DawProject.plugins",
+    attributeNodes = @NamedAttributeNode(value = "plugins", subgraph = "plugins"),
+    subgraphs = {
+        @NamedSubgraph(name = "plugins", attributeNodes = @NamedAttributeNode(value = "lookup", subgraph = "lookup")),
+        @NamedSubgraph(name = "lookup", attributeNodes = @NamedAttributeNode("plugin"))
+    })
 public class DawProject {
 
   @Id
@@ -43,7 +52,7 @@ public class DawProject {
   private DawApplication application;
   private String appFullName;
   private String formatVersion;
-  @OneToMany(mappedBy = "project", fetch = FetchType.EAGER, orphanRemoval = true,
+  @OneToMany(mappedBy = "project", fetch = FetchType.LAZY, orphanRemoval = true,
           cascade = { CascadeType.PERSIST, CascadeType.REMOVE })
   private Set<DawPlugin> plugins = new HashSet<>();
   private Date lastModifiedAt;
@@ -19,8 +19,27 @@
 package com.owlplug.project.repositories;
 
 import com.owlplug.project.model.DawProject;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.repository.CrudRepository;
 
 public interface DawProjectRepository extends CrudRepository<DawProject, Long> {
 
+  /**
+   * Loads a project with its plugins and their lookup results.
+   * @param id project id
+   * @return the project
+   */
+  @EntityGraph("DawProject.plugins")
+  Optional<DawProject> findWithPluginsById(Long id);
+
+  /**
+   * Loads all projects with their plugins and lookup results, the project tree
+   * displays missing plugins of each project.
+   * @return all projects
+   */
+  @Override
+  @EntityGraph("DawProject.plugins")
+  Iterable<DawProject> findAll();
+
 }
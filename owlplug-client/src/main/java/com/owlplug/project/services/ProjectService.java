@@ -22,6 +22,7 @@ import com.owlplug.core.services.BaseService;
 import com.owlplug.project.components.ProjectTaskFactory;
 import com.owlplug.project.model.DawProject;
 import com.owlplug.project.repositories.DawProjectRepository;
+import java.util.Optional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -41,4 +42,13 @@ public class ProjectService extends BaseService {
     return dawProjectRepository.findAll();
   }
 
+  /**
+   * Loads a project with its plugins and lookup results for detail display.
+   * @param id project id
+   * @return the project, empty if it doesn't exist anymore
+   */
+  public Optional<DawProject> getProject(Long id) {
+    return dawProjectRepository.findWithPluginsById(id);
+  }
+
 }
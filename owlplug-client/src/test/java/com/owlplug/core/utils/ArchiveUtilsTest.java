@@ -0,0 +1,96 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.core.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarConstants;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ArchiveUtilsTest {
+
+  @TempDir
+  File directory;
+
+  private static byte[] zip(String entryName) throws IOException {
+    ByteArrayOutputStream archive = new ByteArrayOutputStream();
+    try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+      zip.putNextEntry(new ZipEntry(entryName));
+      zip.write("content".getBytes(StandardCharsets.UTF_8));
+      zip.closeEntry();
+    }
+    return archive.toByteArray();
+  }
+
+  private static byte[] tarSymlink(String entryName, String linkTarget) throws IOException {
+    ByteArrayOutputStream archive = new ByteArrayOutputStream();
+    try (TarArchiveOutputStream tar = new TarArchiveOutputStream(archive)) {
+      TarArchiveEntry entry = new TarArchiveEntry(entryName, TarConstants.LF_SYMLINK);
+      entry.setLinkName(linkTarget);
+      tar.putArchiveEntry(entry);
+      tar.closeArchiveEntry();
+    }
+    return archive.toByteArray();
+  }
+
+  @Test
+  public void testEntriesAreExtracted() throws IOException {
+    File destination = new File(directory, "plugin");
+
+    ArchiveUtils.extract(new ByteArrayInputStream(zip("plugin.vst3/Contents/plugin")), destination);
+
+    assertEquals("content", Files.readString(new File(destination, "plugin.vst3/Contents/plugin").toPath()));
+  }
+
+  @Test
+  public void testEntriesOutsideDestinationAreRejected() {
+    File destination = new File(directory, "plugin");
+
+    assertThrows(IOException.class,
+        () -> ArchiveUtils.extract(new ByteArrayInputStream(zip("../evil")), destination));
+    assertFalse(new File(directory, "evil").exists());
+  }
+
+  @Test
+  public void testSymlinksOutsideDestinationAreRejected() throws IOException {
+    File destination = new File(directory, "plugin");
+
+    assertThrows(IOException.class, () -> ArchiveUtils.extract(
+        new ByteArrayInputStream(tarSymlink("Versions/Current", "../../evil")), destination));
+    assertFalse(new File(destination, "Versions/Current").exists());
+
+    ArchiveUtils.extract(new ByteArrayInputStream(tarSymlink("Versions/Current", "A")), destination);
+    assertTrue(new File(destination, "Versions/Current").isFile());
+  }
+
+}
@@ -20,6 +20,8 @@ package com.owlplug.core.utils;
 
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
 
 public class FileUtilsTest {
@@ -48,4 +50,31 @@ public class FileUtilsTest {
     assertEquals("filename", sanitizedFileName);
   }
 
+  @Test
+  public void testNormalizePath() {
+    assertEquals("c:/program files/vstplugins/plugin.dll",
+        FileUtils.normalizePath("C:\\Program Files\\VSTPlugins\\Plugin.dll"));
+  }
+
+  @Test
+  public void testPrefixUpperBound() {
+    assertEquals("/r/u/vst0", FileUtils.prefixUpperBound("/r/u/vst/"));
+  }
+
+  @Test
+  public void testPrefixUpperBoundExcludesSiblingDirectories() {
+    String lower = "/r/u/vst/";
+    String upper = FileUtils.prefixUpperBound(lower);
+    String nested = "/r/u/vst/plugin.so";
+    String sibling = "/r/u/vst3/plugin.vst3";
+
+    assertTrue(nested.compareTo(lower) >= 0 && nested.compareTo(upper) < 0);
+    assertTrue(sibling.compareTo(upper) >= 0);
+  }
+
+  @Test
+  public void testPrefixUpperBoundWithEmptyPrefix() {
+    assertThrows(IllegalArgumentException.class, () -> FileUtils.prefixUpperBound(""));
+  }
+
 }
@@ -0,0 +1,53 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.core.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.image.BufferedImage;
+import org.junit.jupiter.api.Test;
+
+public class ImageUtilsTest {
+
+  @Test
+  void testScaleToFitKeepsAspectRatio() {
+    BufferedImage image = new BufferedImage(2000, 1000, BufferedImage.TYPE_INT_ARGB);
+    BufferedImage scaled = ImageUtils.scaleToFit(image, 260);
+
+    assertEquals(260, scaled.getWidth());
+    assertEquals(130, scaled.getHeight());
+  }
+
+  @Test
+  void testScaleToFitPortraitImage() {
+    BufferedImage image = new BufferedImage(300, 900, BufferedImage.TYPE_INT_RGB);
+    BufferedImage scaled = ImageUtils.scaleToFit(image, 260);
+
+    assertEquals(87, scaled.getWidth());
+    assertEquals(260, scaled.getHeight());
+  }
+
+  @Test
+  void testSmallImagesAreNotScaled() {
+    BufferedImage image = new BufferedImage(200, 100, BufferedImage.TYPE_INT_ARGB);
+    assertSame(image, ImageUtils.scaleToFit(image, 260));
+  }
+
+}
@@ -0,0 +1,113 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.core.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class StreamingArchiveExtractorTest {
+
+  @TempDir
+  File directory;
+
+  private static byte[] zip(byte[] pluginContent) throws IOException {
+    ByteArrayOutputStream archive = new ByteArrayOutputStream();
+    try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+      zip.putNextEntry(new ZipEntry("plugin/"));
+      zip.closeEntry();
+      zip.putNextEntry(new ZipEntry("plugin/plugin.vst3"));
+      zip.write(pluginContent);
+      zip.closeEntry();
+      zip.putNextEntry(new ZipEntry("plugin/readme.txt"));
+      zip.write("readme".getBytes(StandardCharsets.UTF_8));
+      zip.closeEntry();
+    }
+    return archive.toByteArray();
+  }
+
+  @Test
+  public void testArchiveIsExtractedWhileWritten() throws IOException {
+    byte[] pluginContent = new byte[3 * 1024 * 1024];
+    new Random(42).nextBytes(pluginContent);
+    byte[] archive = zip(pluginContent);
+
+    StreamingArchiveExtractor extractor = new StreamingArchiveExtractor(directory);
+    // Archive larger than the pipe, written in chunks
+    for (int offset = 0; offset < archive.length; offset += 8192) {
+      extractor.write(archive, offset, Math.min(8192, archive.length - offset));
+    }
+    extractor.finish();
+
+    assertTrue(new File(directory, "plugin").isDirectory());
+    assertEquals(pluginContent.length, new File(directory, "plugin/plugin.vst3").length());
+    assertEquals("readme", Files.readString(new File(directory, "plugin/readme.txt").toPath()));
+  }
+
+  @Test
+  public void testFilteredEntriesAreNotExtracted() throws IOException {
+    byte[] archive = zip(new byte[1024]);
+
+    StreamingArchiveExtractor extractor = new StreamingArchiveExtractor(directory,
+        entryName -> !entryName.endsWith(".txt"));
+    extractor.write(archive);
+    extractor.finish();
+
+    assertTrue(new File(directory, "plugin/plugin.vst3").isFile());
+    assertFalse(new File(directory, "plugin/readme.txt").exists());
+  }
+
+  @Test
+  public void testInvalidArchiveFails() throws IOException {
+    StreamingArchiveExtractor extractor = new StreamingArchiveExtractor(directory);
+    byte[] garbage = new byte[4 * 1024 * 1024];
+    new Random(42).nextBytes(garbage);
+
+    assertThrows(IOException.class, () -> {
+      extractor.write(garbage);
+      extractor.finish();
+    });
+    assertTrue(extractor.hasFailed());
+  }
+
+  @Test
+  public void testTruncatedArchiveFails() throws IOException {
+    byte[] pluginContent = new byte[64 * 1024];
+    new Random(42).nextBytes(pluginContent);
+    byte[] archive = zip(pluginContent);
+
+    StreamingArchiveExtractor extractor = new StreamingArchiveExtractor(directory);
+    extractor.write(archive, 0, archive.length / 2);
+
+    assertThrows(IOException.class, extractor::finish);
+  }
+
+}
@@ -0,0 +1,49 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.core.utils.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class CacheTierSizesTest {
+
+  private static final long GIGABYTE = 1024L * 1024 * 1024;
+
+  @Test
+  void testHeapTierIsRelativeToMaxHeap() {
+    assertEquals(64, CacheTierSizes.of(2 * GIGABYTE, 32, 0, 700).getHeapSize());
+    assertEquals(CacheTierSizes.MIN_HEAP_SIZE, CacheTierSizes.of(GIGABYTE / 8, 32, 0, 700).getHeapSize());
+    assertEquals(CacheTierSizes.MAX_HEAP_SIZE, CacheTierSizes.of(64 * GIGABYTE, 32, 0, 700).getHeapSize());
+  }
+
+  @Test
+  void testOffHeapTierMustFitBetweenHeapAndDisk() {
+    CacheTierSizes sizes = CacheTierSizes.of(2 * GIGABYTE, 32, 200, 700);
+    assertTrue(sizes.hasOffHeap());
+    assertEquals(200, sizes.getOffHeapSize());
+
+    assertFalse(CacheTierSizes.of(2 * GIGABYTE, 32, 0, 700).hasOffHeap());
+    assertFalse(CacheTierSizes.of(2 * GIGABYTE, 32, 32, 700).hasOffHeap());
+    assertFalse(CacheTierSizes.of(2 * GIGABYTE, 32, 800, 700).hasOffHeap());
+  }
+
+}
@@ -0,0 +1,111 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.core.utils.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ContentAddressedStoreTest {
+
+  private static final String KEY_A = "a".repeat(64);
+  private static final String KEY_B = "b".repeat(64);
+  private static final String KEY_C = "c".repeat(64);
+
+  @TempDir
+  File directory;
+
+  private File createFile(String name, int size) throws IOException {
+    File file = new File(directory, name);
+    Files.write(file.toPath(), new byte[size]);
+    return file;
+  }
+
+  @Test
+  public void testStoredFileIsMovedAndFound() throws IOException {
+    ContentAddressedStore store = new ContentAddressedStore(new File(directory, "store"), 1000);
+    File file = createFile("bundle.owlpack", 100);
+
+    File stored = store.put(KEY_A.toUpperCase(), file);
+
+    assertNotNull(stored);
+    assertFalse(file.exists());
+    assertEquals(stored, store.get(KEY_A));
+    assertNull(store.get(KEY_B));
+    assertEquals(1, store.getHits());
+    assertEquals(1, store.getMisses());
+  }
+
+  @Test
+  public void testInvalidKeysAreIgnored() throws IOException {
+    ContentAddressedStore store = new ContentAddressedStore(new File(directory, "store"), 1000);
+
+    assertFalse(ContentAddressedStore.isValidKey(null));
+    assertFalse(ContentAddressedStore.isValidKey("../" + KEY_A));
+    assertNull(store.put("not-a-digest", createFile("bundle.owlpack", 100)));
+    assertNull(store.get("not-a-digest"));
+  }
+
+  @Test
+  public void testLeastRecentlyUsedFilesAreEvicted() throws IOException {
+    ContentAddressedStore store = new ContentAddressedStore(new File(directory, "store"), 250);
+    File a = store.put(KEY_A, createFile("a", 100));
+    File b = store.put(KEY_B, createFile("b", 100));
+    a.setLastModified(System.currentTimeMillis() - 60_000);
+    b.setLastModified(System.currentTimeMillis() - 120_000);
+
+    // A is used again, B is the least recently used file
+    store.get(KEY_A);
+    store.put(KEY_C, createFile("c", 100));
+
+    assertNotNull(store.get(KEY_A));
+    assertNull(store.get(KEY_B));
+    assertNotNull(store.get(KEY_C));
+    assertEquals(200, store.getSize());
+  }
+
+  @Test
+  public void testFilesLargerThanStoreAreNotStored() throws IOException {
+    ContentAddressedStore store = new ContentAddressedStore(new File(directory, "store"), 50);
+    File file = createFile("bundle.owlpack", 100);
+
+    assertNull(store.put(KEY_A, file));
+    assertTrue(file.exists());
+  }
+
+  @Test
+  public void testRemovedFileIsNotFound() throws IOException {
+    ContentAddressedStore store = new ContentAddressedStore(new File(directory, "store"), 1000);
+    store.put(KEY_A, createFile("bundle.owlpack", 100));
+
+    store.remove(KEY_A);
+
+    assertNull(store.get(KEY_A));
+    assertEquals(0, store.getSize());
+  }
+
+}
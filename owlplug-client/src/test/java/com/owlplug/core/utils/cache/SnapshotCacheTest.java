@@ -0,0 +1,84 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.core.utils.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class SnapshotCacheTest {
+
+  @Test
+  void testGetLoadsOnceUntilInvalidated() {
+    SnapshotCache<String, String> cache = new SnapshotCache<>("test", 4);
+    AtomicInteger loads = new AtomicInteger();
+
+    assertEquals("value", cache.get("key", () -> {
+      loads.incrementAndGet();
+      return "value";
+    }));
+    assertEquals("value", cache.get("key", () -> {
+      loads.incrementAndGet();
+      return "other";
+    }));
+    assertEquals(1, loads.get());
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+
+    cache.invalidate();
+    assertEquals("reloaded", cache.get("key", () -> "reloaded"));
+    assertEquals(2, cache.getMisses());
+  }
+
+  @Test
+  void testLeastRecentlyUsedEntryIsEvicted() {
+    SnapshotCache<String, String> cache = new SnapshotCache<>("test", 2);
+    cache.get("a", () -> "a");
+    cache.get("b", () -> "b");
+    cache.get("a", () -> "a");
+    cache.get("c", () -> "c");
+
+    assertEquals(2, cache.size());
+    assertEquals("a", cache.get("a", () -> "reloaded"));
+    assertEquals("reloaded", cache.get("b", () -> "reloaded"));
+  }
+
+  @Test
+  void testLoadDuringInvalidationIsDiscarded() {
+    SnapshotCache<String, String> cache = new SnapshotCache<>("test", 2);
+    String value = cache.get("key", () -> {
+      cache.invalidate();
+      return "stale";
+    });
+
+    assertEquals("stale", value);
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void testHitRatio() {
+    SnapshotCache<String, String> cache = new SnapshotCache<>("test", 2);
+    assertEquals(0, cache.getHitRatio());
+    cache.get("key", () -> "value");
+    cache.get("key", () -> "value");
+    assertEquals(0.5, cache.getHitRatio());
+  }
+
+}
@@ -0,0 +1,60 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.core.utils.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class VersionCacheTest {
+
+  @Test
+  void testIsNewer() {
+    VersionCache cache = new VersionCache(10);
+    assertTrue(cache.isNewer("1.2.4", "1.2.3"));
+    assertTrue(cache.isNewer("2.0", "1.9.9"));
+    assertTrue(cache.isNewer("v1.1.0", "1.0.0"));
+    assertFalse(cache.isNewer("1.0.0", "1.0.0"));
+    assertFalse(cache.isNewer("1.0.0", "1.2.0"));
+  }
+
+  @Test
+  void testInvalidVersionsAreNeverNewer() {
+    VersionCache cache = new VersionCache(10);
+    assertFalse(cache.isNewer("abc", "1.0.0"));
+    assertFalse(cache.isNewer("1.0.0", "abc"));
+    assertFalse(cache.isNewer(null, "1.0.0"));
+    assertFalse(cache.isNewer("1.0.0", ""));
+  }
+
+  @Test
+  void testParsedVersionsAreCached() {
+    VersionCache cache = new VersionCache(2);
+    cache.parse("1.0.0");
+    cache.parse("1.0.0");
+    cache.parse("abc");
+    assertEquals(2, cache.size());
+
+    cache.parse("2.0.0");
+    assertEquals(1, cache.size());
+  }
+
+}
@@ -0,0 +1,81 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.core.utils.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+public class WeightedLruCacheTest {
+
+  @Test
+  void testLeastRecentlyUsedValuesAreEvictedByWeight() {
+    WeightedLruCache<String, String> cache = new WeightedLruCache<>(10, String::length);
+    cache.put("a", "aaaa");
+    cache.put("b", "bbbb");
+    cache.get("a");
+    cache.put("c", "cccc");
+
+    assertEquals("aaaa", cache.get("a"));
+    assertNull(cache.get("b"));
+    assertEquals("cccc", cache.get("c"));
+    assertEquals(8, cache.getWeight());
+    assertEquals(1, cache.getEvictions());
+  }
+
+  @Test
+  void testReplacedValueWeightIsReleased() {
+    WeightedLruCache<String, String> cache = new WeightedLruCache<>(10, String::length);
+    cache.put("a", "aaaaaaaa");
+    cache.put("a", "aa");
+
+    assertEquals(2, cache.getWeight());
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  void testValuesHeavierThanBudgetAreNotRetained() {
+    WeightedLruCache<String, String> cache = new WeightedLruCache<>(4, String::length);
+    cache.put("a", "aa");
+    cache.put("b", "bbbbbb");
+
+    assertNull(cache.get("b"));
+    assertEquals("aa", cache.get("a"));
+    assertEquals(2, cache.getWeight());
+  }
+
+  @Test
+  void testHitRatio() {
+    WeightedLruCache<String, String> cache = new WeightedLruCache<>(4, String::length);
+    cache.put("a", "a");
+    cache.get("a");
+    cache.get("b");
+
+    assertEquals(0.5, cache.getHitRatio());
+    // Peeks are not counted
+    assertEquals("a", cache.peek("a"));
+    assertNull(cache.peek("b"));
+    assertEquals(0.5, cache.getHitRatio());
+    cache.clear();
+    assertEquals(0, cache.getWeight());
+    assertNull(cache.get("a"));
+  }
+
+}
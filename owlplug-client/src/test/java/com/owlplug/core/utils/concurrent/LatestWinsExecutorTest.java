@@ -0,0 +1,80 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.core.utils.concurrent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class LatestWinsExecutorTest {
+
+  @Test
+  void testSubmissionsAreDebounced() throws InterruptedException {
+    LatestWinsExecutor<String> executor = new LatestWinsExecutor<>("test", Duration.ofMillis(100), Runnable::run);
+    List<String> results = new CopyOnWriteArrayList<>();
+    CountDownLatch latch = new CountDownLatch(1);
+
+    executor.submit(() -> "first", results::add);
+    executor.submit(() -> "second", results::add);
+    executor.submit(() -> "third", result -> {
+      results.add(result);
+      latch.countDown();
+    });
+
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    Thread.sleep(200);
+    assertEquals(List.of("third"), results);
+    assertEquals(1, executor.getExecutedQueries());
+    executor.shutdown();
+  }
+
+  @Test
+  void testResultOfSupersededQueryIsDiscarded() throws InterruptedException {
+    LatestWinsExecutor<String> executor = new LatestWinsExecutor<>("test", Duration.ZERO, Runnable::run);
+    List<String> results = new CopyOnWriteArrayList<>();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(1);
+
+    executor.submit(() -> {
+      started.countDown();
+      release.await();
+      return "stale";
+    }, results::add);
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    executor.submit(() -> "latest", result -> {
+      results.add(result);
+      done.countDown();
+    });
+    release.countDown();
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertEquals(List.of("latest"), results);
+    assertEquals(2, executor.getExecutedQueries());
+    assertEquals(1, executor.getDiscardedResults());
+    executor.shutdown();
+  }
+
+}
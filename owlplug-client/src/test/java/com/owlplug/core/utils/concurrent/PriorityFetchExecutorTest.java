@@ -0,0 +1,136 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.core.utils.concurrent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class PriorityFetchExecutorTest {
+
+  /**
+   * Occupies the single fetch thread until the returned latch is released.
+   */
+  private CountDownLatch block(PriorityFetchExecutor<String, String> executor) throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    executor.fetch("blocker", 0, () -> {
+      started.countDown();
+      release.await();
+      return "blocker";
+    });
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    return release;
+  }
+
+  @Test
+  void testPendingFetchesRunByPriority() throws Exception {
+    PriorityFetchExecutor<String, String> executor = new PriorityFetchExecutor<>("test", 1);
+    CountDownLatch release = block(executor);
+    List<String> order = new CopyOnWriteArrayList<>();
+
+    executor.fetch("low", 10, () -> {
+      order.add("low");
+      return "low";
+    });
+    CompletableFuture<String> high = executor.fetch("high", 1, () -> {
+      order.add("high");
+      return "high";
+    });
+    CompletableFuture<String> raised = executor.fetch("raised", 20, () -> {
+      order.add("raised");
+      return "raised";
+    });
+    executor.setPriority("raised", 0);
+
+    release.countDown();
+    assertEquals("high", high.get(5, TimeUnit.SECONDS));
+    raised.get(5, TimeUnit.SECONDS);
+    executor.fetch("last", 100, () -> "last").get(5, TimeUnit.SECONDS);
+    assertEquals(List.of("raised", "high", "low"), order);
+    executor.shutdown();
+  }
+
+  @Test
+  void testConcurrentFetchesAreCoalesced() throws Exception {
+    PriorityFetchExecutor<String, String> executor = new PriorityFetchExecutor<>("test", 1);
+    CountDownLatch release = block(executor);
+    AtomicInteger loads = new AtomicInteger();
+
+    CompletableFuture<String> first = executor.fetch("key", 1, () -> "value" + loads.incrementAndGet());
+    CompletableFuture<String> second = executor.fetch("key", 1, () -> "value" + loads.incrementAndGet());
+    release.countDown();
+
+    assertEquals("value1", first.get(5, TimeUnit.SECONDS));
+    assertEquals("value1", second.get(5, TimeUnit.SECONDS));
+    assertEquals(1, loads.get());
+    assertEquals(1, executor.getCoalescedFetches());
+    executor.shutdown();
+  }
+
+  @Test
+  void testReleasedFetchIsCancelledWhenNoRequesterRemains() throws Exception {
+    PriorityFetchExecutor<String, String> executor = new PriorityFetchExecutor<>("test", 1);
+    CountDownLatch release = block(executor);
+    AtomicInteger loads = new AtomicInteger();
+
+    CompletableFuture<String> first = executor.fetch("key", 1, () -> "value" + loads.incrementAndGet());
+    executor.fetch("key", 1, () -> "value" + loads.incrementAndGet());
+    executor.release("key");
+    assertTrue(executor.isFetching("key"));
+    executor.release("key");
+    assertFalse(executor.isFetching("key"));
+
+    release.countDown();
+    executor.fetch("other", 1, () -> "other").get(5, TimeUnit.SECONDS);
+    assertTrue(first.isCompletedExceptionally());
+    assertEquals(0, loads.get());
+    assertEquals(1, executor.getCancelledFetches());
+    executor.shutdown();
+  }
+
+  @Test
+  void testDetachedRequestsAreNotCounted() throws Exception {
+    PriorityFetchExecutor<String, String> executor = new PriorityFetchExecutor<>("test", 1);
+    CountDownLatch release = block(executor);
+
+    // A detached request doesn't keep the fetch once counted requesters released it
+    CompletableFuture<String> detached = executor.fetchDetached("key", 1, () -> "value");
+    executor.fetch("key", 1, () -> "value");
+    executor.release("key");
+    assertFalse(executor.isFetching("key"));
+
+    // A detached fetch completes without being released
+    CompletableFuture<String> completed = executor.fetchDetached("other", 1, () -> "other");
+    release.countDown();
+    assertEquals("other", completed.get(5, TimeUnit.SECONDS));
+    assertTrue(detached.isCompletedExceptionally());
+    assertFalse(executor.isFetching("other"));
+    executor.shutdown();
+  }
+
+}
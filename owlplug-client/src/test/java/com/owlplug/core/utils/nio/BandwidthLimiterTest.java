@@ -0,0 +1,67 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.core.utils.nio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import org.junit.jupiter.api.Test;
+
+public class BandwidthLimiterTest {
+
+  @Test
+  void testThroughputIsLimited() throws Exception {
+    BandwidthLimiter limiter = new BandwidthLimiter(10_000);
+    long start = System.nanoTime();
+    for (int i = 0; i < 4; i++) {
+      limiter.acquire(1_000);
+    }
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+    // The first chunk is not delayed, the next three wait 100 ms each
+    assertTrue(elapsedMillis >= 290, "elapsed " + elapsedMillis);
+  }
+
+  @Test
+  void testUnlimitedLimiterNeverWaits() throws Exception {
+    BandwidthLimiter limiter = BandwidthLimiter.unlimited();
+    long start = System.nanoTime();
+    limiter.acquire(Long.MAX_VALUE);
+    limiter.acquire(Long.MAX_VALUE);
+    assertTrue(System.nanoTime() - start < 50_000_000);
+  }
+
+  @Test
+  void testThrottledChannelReadsAllBytes() throws Exception {
+    byte[] data = new byte[5_000];
+    ThrottledByteChannel channel = new ThrottledByteChannel(
+        Channels.newChannel(new ByteArrayInputStream(data)), new BandwidthLimiter(100_000));
+    ByteBuffer buffer = ByteBuffer.allocate(1_000);
+    int total = 0;
+    int n;
+    while ((n = channel.read(buffer)) != -1) {
+      total += n;
+      buffer.clear();
+    }
+    assertEquals(5_000, total);
+  }
+
+}
@@ -0,0 +1,84 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.core.utils.search;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Manual benchmark of trigram index query latency on a large synthetic catalog.
+ * Not run as part of the test suite. Exits with a non-zero status when the median
+ * latency exceeds the budget.
+ */
+public class TrigramIndexBenchmark {
+
+  private static final int DOCUMENTS = 50_000;
+  private static final int QUERIES = 1_000;
+  private static final int ROUNDS = 5;
+  private static final double LATENCY_BUDGET_MS = 1.0;
+  private static final String[] WORDS = {"synth", "reverb", "delay", "compressor", "tape", "analog",
+      "vintage", "filter", "chorus", "phaser", "drum", "bass", "pad", "spring", "plate", "echo"};
+
+  public static void main(String[] args) {
+    Random random = new Random(42);
+    TrigramIndex<Integer> index = new TrigramIndex<>();
+    float[] weights = {1f, 0.9f, 0.6f, 0.5f};
+
+    long start = System.nanoTime();
+    for (int i = 0; i < DOCUMENTS; i++) {
+      index.put(i, List.of(word(random) + " " + word(random) + " " + i, word(random) + " " + word(random),
+          "Creator " + (i % 500), word(random)), weights);
+    }
+    System.out.printf("Indexed %d documents in %d ms%n", DOCUMENTS, (System.nanoTime() - start) / 1_000_000);
+
+    // Warm up
+    for (int i = 0; i < QUERIES * 2; i++) {
+      index.search(typo(word(random), random), 50);
+    }
+
+    double[] latencies = new double[ROUNDS];
+    for (int round = 0; round < ROUNDS; round++) {
+      start = System.nanoTime();
+      for (int i = 0; i < QUERIES; i++) {
+        index.search(typo(word(random), random), 50);
+      }
+      latencies[round] = (System.nanoTime() - start) / (QUERIES * 1_000_000.0);
+      System.out.printf("Round %d average query latency: %.3f ms%n", round + 1, latencies[round]);
+    }
+    Arrays.sort(latencies);
+    double median = latencies[ROUNDS / 2];
+    boolean withinBudget = median <= LATENCY_BUDGET_MS;
+    System.out.printf("Median query latency: %.3f ms, budget %.3f ms: %s%n", median, LATENCY_BUDGET_MS,
+        withinBudget ? "OK" : "OVER BUDGET");
+    if (!withinBudget) {
+      System.exit(1);
+    }
+  }
+
+  private static String word(Random random) {
+    return WORDS[random.nextInt(WORDS.length)];
+  }
+
+  private static String typo(String word, Random random) {
+    int i = random.nextInt(word.length() - 1);
+    return word.substring(0, i) + word.charAt(i + 1) + word.charAt(i) + word.substring(i + 2);
+  }
+
+}
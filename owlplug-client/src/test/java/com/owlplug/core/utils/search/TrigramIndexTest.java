@@ -0,0 +1,127 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.core.utils.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+public class TrigramIndexTest {
+
+  private static final float[] WEIGHTS = {1f, 0.5f};
+
+  @Test
+  void testNormalize() {
+    assertEquals("pro q 3", TrigramIndex.normalize("  Pro-Q  3 "));
+    assertEquals("", TrigramIndex.normalize(null));
+  }
+
+  @Test
+  void testTrigrams() {
+    assertEquals(Set.of("  a", " ab", "ab "), TrigramIndex.trigrams("ab"));
+  }
+
+  @Test
+  void testMisspelledQueryMatches() {
+    TrigramIndex<String> index = new TrigramIndex<>();
+    index.put("serum", List.of("Serum", "Synth"), WEIGHTS);
+    index.put("vital", List.of("Vital", "Synth"), WEIGHTS);
+
+    List<TrigramIndex.SearchResult<String>> results = index.search("serrum", 10);
+    assertEquals(1, results.size());
+    assertEquals("serum", results.get(0).getKey());
+  }
+
+  @Test
+  void testSubstringMatchesRankFirst() {
+    TrigramIndex<String> index = new TrigramIndex<>();
+    index.put("delay", List.of("Tape Delay", "Effect"), WEIGHTS);
+    index.put("decay", List.of("Decay", "Effect"), WEIGHTS);
+
+    List<TrigramIndex.SearchResult<String>> results = index.search("delay", 10);
+    assertEquals("delay", results.get(0).getKey());
+  }
+
+  @Test
+  void testShortSubstringOfLongFieldMatches() {
+    TrigramIndex<String> index = new TrigramIndex<>();
+    index.put("tape", List.of("Vintage Tape Machine Emulation", "Effect"), WEIGHTS);
+    index.put("pad", List.of("Pad", "Synth"), WEIGHTS);
+
+    // Shares too few trigrams to be similar, but contains the query
+    List<TrigramIndex.SearchResult<String>> results = index.search("ape", 10);
+    assertEquals(List.of("tape"), results.stream().map(TrigramIndex.SearchResult::getKey).toList());
+    assertTrue(index.search("apx", 10).isEmpty());
+  }
+
+  @Test
+  void testTopResultsAreOrdered() {
+    TrigramIndex<Integer> index = new TrigramIndex<>();
+    for (int i = 0; i < 100; i++) {
+      index.put(i, List.of(i % 2 == 0 ? "Reverb" : "Reverb Room " + i), new float[] {1f});
+    }
+
+    List<Integer> keys = index.search("reverb", 5).stream().map(TrigramIndex.SearchResult::getKey).toList();
+    // Exact names score higher, ties keep indexing order
+    assertEquals(List.of(0, 2, 4, 6, 8), keys);
+  }
+
+  @Test
+  void testFieldWeightsAffectRanking() {
+    TrigramIndex<String> index = new TrigramIndex<>();
+    index.put("by-category", List.of("Pulsar", "Reverb"), WEIGHTS);
+    index.put("by-name", List.of("Reverb", "Effect"), WEIGHTS);
+
+    List<TrigramIndex.SearchResult<String>> results = index.search("reverb", 10);
+    assertEquals(List.of("by-name", "by-category"), results.stream().map(TrigramIndex.SearchResult::getKey).toList());
+  }
+
+  @Test
+  void testUpdateAndRemove() {
+    TrigramIndex<String> index = new TrigramIndex<>();
+    index.put("plugin", List.of("Diva", "Synth"), WEIGHTS);
+    index.put("plugin", List.of("Repro", "Synth"), WEIGHTS);
+
+    assertTrue(index.search("diva", 10).isEmpty());
+    assertEquals(1, index.search("repro", 10).size());
+
+    index.remove("plugin");
+    assertFalse(index.contains("plugin"));
+    assertTrue(index.search("repro", 10).isEmpty());
+    assertEquals(0, index.size());
+  }
+
+  @Test
+  void testRemovedFieldsAreCompacted() {
+    TrigramIndex<Integer> index = new TrigramIndex<>();
+    for (int i = 0; i < 3000; i++) {
+      index.put(i, List.of("Plugin " + i), new float[] {1f});
+    }
+    for (int i = 0; i < 2900; i++) {
+      index.remove(i);
+    }
+    assertEquals(100, index.size());
+    assertEquals(2950, index.search("plugin 2950", 1).get(0).getKey());
+  }
+
+}
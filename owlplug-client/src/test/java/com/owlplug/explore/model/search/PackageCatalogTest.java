@@ -0,0 +1,88 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.explore.model.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.owlplug.plugin.model.PluginType;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class PackageCatalogTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testWriteAndRead() throws IOException {
+    PackageIndexEntry vital = new PackageIndexEntry(12L, "Vital", "Matt Tytel", PluginType.INSTRUMENT);
+    vital.getTags().add("Synth");
+    vital.getTargets().addAll(List.of("win-x64", "mac-x64"));
+    vital.getFormats().add("vst3");
+    PackageIndexEntry unnamed = new PackageIndexEntry(40L, null, "Matt Tytel", null);
+    unnamed.getTargets().add("win-x64");
+
+    Path path = tempDir.resolve(PackageCatalog.FILE_NAME);
+    PackageCatalog.write(path, List.of(vital, unnamed));
+
+    PackageCatalog catalog = PackageCatalog.read(path);
+    assertEquals(2, catalog.size());
+    assertEquals(12L, catalog.getId(0));
+    assertEquals("Vital", catalog.getName(0));
+    assertEquals("Matt Tytel", catalog.getCreator(0));
+    assertEquals(PluginType.INSTRUMENT, catalog.getType(0));
+    assertEquals(List.of("Synth"), catalog.getTags(0));
+    assertEquals(List.of("win-x64", "mac-x64"), catalog.getTargets(0));
+    assertEquals(List.of("vst3"), catalog.getFormats(0));
+
+    assertEquals(40L, catalog.getId(1));
+    assertNull(catalog.getName(1));
+    assertNull(catalog.getType(1));
+    assertEquals(List.of(), catalog.getTags(1));
+    assertEquals(List.of("win-x64"), catalog.getTargets(1));
+
+    List<PackageIndexEntry> entries = catalog.getEntries();
+    assertEquals(List.of("win-x64", "mac-x64"), entries.get(0).getTargets());
+    assertEquals("Matt Tytel", entries.get(1).getCreator());
+  }
+
+  @Test
+  void testInvalidFileIsRejected() throws IOException {
+    Path path = tempDir.resolve(PackageCatalog.FILE_NAME);
+    Files.write(path, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20});
+    assertThrows(IOException.class, () -> PackageCatalog.read(path));
+  }
+
+  @Test
+  void testTruncatedFileIsRejected() throws IOException {
+    Path path = tempDir.resolve(PackageCatalog.FILE_NAME);
+    PackageCatalog.write(path, List.of(new PackageIndexEntry(1L, "Vital", null, null)));
+    byte[] content = Files.readAllBytes(path);
+    Files.write(path, Arrays.copyOf(content, content.length - 2));
+    assertThrows(IOException.class, () -> PackageCatalog.read(path));
+  }
+
+}
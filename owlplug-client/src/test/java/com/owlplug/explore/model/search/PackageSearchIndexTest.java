@@ -0,0 +1,131 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.explore.model.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.owlplug.plugin.model.PluginType;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class PackageSearchIndexTest {
+
+  private PackageSearchIndex index;
+
+  private final Map<Long, String> names = new HashMap<>();
+
+  private PackageIndexEntry createEntry(String name, String creator, PluginType type, List<String> targets,
+      List<String> formats, String... tags) {
+    long id = names.size() + 1;
+    names.put(id, name);
+    PackageIndexEntry entry = new PackageIndexEntry(id, name, creator, type);
+    entry.getTargets().addAll(targets);
+    entry.getFormats().addAll(formats);
+    entry.getTags().addAll(List.of(tags));
+    return entry;
+  }
+
+  @BeforeEach
+  public void setUp() {
+    index = new PackageSearchIndex(List.of(
+        createEntry("Vital Synth", "Matt Tytel", PluginType.INSTRUMENT,
+            List.of("win-x64", "mac-x64"), List.of("vst3"), "Synth"),
+        createEntry("Dragonfly Room Reverb", "Michael Willis", PluginType.EFFECT,
+            List.of("linux-x64"), List.of("lv2", "vst2"), "Reverb"),
+        createEntry("Surge XT", "Surge Synth Team", PluginType.INSTRUMENT,
+            List.of("win-x64", "linux-x64"), List.of("vst3", "lv2"), "Synth", "Wavetable")));
+  }
+
+  private List<String> search(ExploreFilterCriteria... criteria) {
+    return index.getIds(ExploreCriteriaAdapter.toBitSet(List.of(criteria), index))
+        .stream().map(names::get).toList();
+  }
+
+  private List<String> names(List<Long> ids) {
+    return ids.stream().map(names::get).toList();
+  }
+
+  @Test
+  public void testNameContainsMatchesSubstrings() {
+    assertEquals(List.of("Dragonfly Room Reverb"), names(index.getIds(index.nameContains("verb"))));
+    assertEquals(List.of("Dragonfly Room Reverb"), names(index.getIds(index.nameContains("ROOM REV"))));
+    assertTrue(index.nameContains("room surge").isEmpty());
+    assertEquals(3, index.nameContains(" ").cardinality());
+  }
+
+  @Test
+  public void testNameCriteriaTolerateTypos() {
+    assertEquals(List.of("Dragonfly Room Reverb"), search(
+        new ExploreFilterCriteria("dragonfyl", ExploreFilterCriteriaType.NAME)));
+    assertEquals(List.of("Vital Synth"), search(
+        new ExploreFilterCriteria("vitall", ExploreFilterCriteriaType.NAME)));
+    assertTrue(search(new ExploreFilterCriteria("granular", ExploreFilterCriteriaType.NAME)).isEmpty());
+  }
+
+  @Test
+  public void testNameCriteriaMatchCreators() {
+    assertEquals(List.of("Dragonfly Room Reverb"), search(
+        new ExploreFilterCriteria("michael willis", ExploreFilterCriteriaType.NAME)));
+  }
+
+  @Test
+  public void testIdsAreRankedByQuery() {
+    List<String> ranked = names(index.getIds(index.nameMatches("surge"), "surge"));
+    assertEquals("Surge XT", ranked.get(0));
+
+    // Packages not matching the query keep their index order
+    assertEquals(List.of("Surge XT", "Vital Synth", "Dragonfly Room Reverb"),
+        names(index.getIds(index.all(), "surge")));
+    assertEquals(List.of("Vital Synth", "Dragonfly Room Reverb", "Surge XT"),
+        names(index.getIds(index.all(), "")));
+  }
+
+  @Test
+  public void testCriteriaAreIntersected() {
+    assertEquals(List.of("Surge XT"), search(
+        new ExploreFilterCriteria("synth", ExploreFilterCriteriaType.TAG),
+        new ExploreFilterCriteria(List.of("linux-x64"), ExploreFilterCriteriaType.PLATFORM_LIST)));
+    assertEquals(List.of("Vital Synth", "Surge XT"), search(
+        new ExploreFilterCriteria(PluginType.INSTRUMENT, ExploreFilterCriteriaType.TYPE),
+        new ExploreFilterCriteria(List.of("vst3"), ExploreFilterCriteriaType.FORMAT_LIST)));
+  }
+
+  @Test
+  public void testListCriteriaMatchAnyValue() {
+    assertEquals(3, search(new ExploreFilterCriteria(List.of("mac-x64", "linux-x64"),
+        ExploreFilterCriteriaType.PLATFORM_LIST)).size());
+  }
+
+  @Test
+  public void testUnknownValuesMatchNothing() {
+    assertTrue(search(new ExploreFilterCriteria("Nobody", ExploreFilterCriteriaType.CREATOR)).isEmpty());
+    assertTrue(search(new ExploreFilterCriteria("au", ExploreFilterCriteriaType.FORMAT)).isEmpty());
+  }
+
+  @Test
+  public void testTokenize() {
+    assertEquals(List.of("dragonfly", "room", "reverb2"), PackageSearchIndex.tokenize("dragonfly-room reverb2!"));
+    assertTrue(PackageSearchIndex.tokenize(" - ").isEmpty());
+  }
+
+}
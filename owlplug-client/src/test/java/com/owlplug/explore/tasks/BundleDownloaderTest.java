@@ -0,0 +1,266 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.explore.tasks;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.owlplug.core.utils.nio.BandwidthLimiter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class BundleDownloaderTest {
+
+  private static final int SEGMENT_SIZE = 64 * 1024;
+  private static final byte[] CONTENT = new byte[SEGMENT_SIZE * 4 + 123];
+
+  @TempDir
+  File downloadDirectory;
+
+  private HttpServer server;
+  private final AtomicInteger rangeRequests = new AtomicInteger();
+  private final AtomicLong servedBytes = new AtomicLong();
+  private final AtomicBoolean interruptResponses = new AtomicBoolean(false);
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    new Random(42).nextBytes(CONTENT);
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/ranged.owlpack", exchange -> serve(exchange, true, true));
+    server.createContext("/plain.owlpack", exchange -> serve(exchange, false, false));
+    server.createContext("/ignored-ranges.owlpack", exchange -> serve(exchange, true, false));
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    server.stop(0);
+    ((ExecutorService) server.getExecutor()).shutdownNow();
+  }
+
+  private void serve(HttpExchange exchange, boolean acceptRanges, boolean honorRanges) throws IOException {
+    if (acceptRanges) {
+      exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+    }
+    exchange.getResponseHeaders().add("ETag", "\"v1\"");
+    if ("HEAD".equals(exchange.getRequestMethod())) {
+      exchange.getResponseHeaders().add("Content-Length", String.valueOf(CONTENT.length));
+      exchange.sendResponseHeaders(200, -1);
+      exchange.close();
+      return;
+    }
+
+    int start = 0;
+    int end = CONTENT.length - 1;
+    String range = exchange.getRequestHeaders().getFirst("Range");
+    if (range != null) {
+      rangeRequests.incrementAndGet();
+    }
+    if (honorRanges && range != null) {
+      String[] bounds = range.substring("bytes=".length()).split("-");
+      start = Integer.parseInt(bounds[0]);
+      if (bounds.length > 1 && !bounds[1].isEmpty()) {
+        end = Integer.parseInt(bounds[1]);
+      }
+      exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + CONTENT.length);
+      exchange.sendResponseHeaders(206, end - start + 1);
+    } else {
+      exchange.sendResponseHeaders(200, CONTENT.length);
+    }
+
+    int length = end - start + 1;
+    // Interrupted responses stop in the middle of the requested range
+    int sent = interruptResponses.get() ? length / 2 : length;
+    try (OutputStream body = exchange.getResponseBody()) {
+      // Counted before writing, the client may complete before the write returns
+      servedBytes.addAndGet(sent);
+      body.write(CONTENT, start, sent);
+      body.flush();
+      if (sent < length) {
+        throw new IOException("Interrupted response");
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private URL url(String path) throws IOException {
+    return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path).toURL();
+  }
+
+  @Test
+  public void testRangedDownloadIsSplitInSegments() throws IOException {
+    File target = new File(downloadDirectory, "bundle.owlpack");
+    AtomicLong lastProgress = new AtomicLong();
+    BundleDownloader downloader = new BundleDownloader(4, SEGMENT_SIZE, BandwidthLimiter.unlimited());
+
+    downloader.download(url("/ranged.owlpack"), target, p -> lastProgress.set(Math.round(p)));
+
+    assertArrayEquals(CONTENT, Files.readAllBytes(target.toPath()));
+    assertEquals(4, rangeRequests.get());
+    assertEquals(100, lastProgress.get());
+    assertEquals(1, downloadDirectory.listFiles().length);
+  }
+
+  @Test
+  public void testServerWithoutRangesIsDownloadedInOneRequest() throws IOException {
+    File target = new File(downloadDirectory, "bundle.owlpack");
+    BundleDownloader downloader = new BundleDownloader(4, SEGMENT_SIZE, BandwidthLimiter.unlimited());
+
+    downloader.download(url("/plain.owlpack"), target, p -> { });
+
+    assertArrayEquals(CONTENT, Files.readAllBytes(target.toPath()));
+    assertEquals(0, rangeRequests.get());
+  }
+
+  @Test
+  public void testIgnoredRangesFallBackToOneRequest() throws IOException {
+    File target = new File(downloadDirectory, "bundle.owlpack");
+    ByteArrayOutputStream sink = new ByteArrayOutputStream();
+    BundleDownloader downloader = new BundleDownloader(4, SEGMENT_SIZE, BandwidthLimiter.unlimited());
+
+    downloader.download(url("/ignored-ranges.owlpack"), target, p -> { }, sink);
+
+    assertArrayEquals(CONTENT, Files.readAllBytes(target.toPath()));
+    assertArrayEquals(CONTENT, sink.toByteArray());
+    // Segments not started when the range is found ignored are cancelled
+    assertTrue(rangeRequests.get() > 0);
+    assertEquals(1, downloadDirectory.listFiles().length);
+  }
+
+  @Test
+  public void testInterruptedDownloadIsResumed() throws IOException {
+    File target = new File(downloadDirectory, "bundle.owlpack");
+    BundleDownloader downloader = new BundleDownloader(4, SEGMENT_SIZE, BandwidthLimiter.unlimited());
+
+    interruptResponses.set(true);
+    assertThrows(IOException.class, () -> downloader.download(url("/ranged.owlpack"), target, p -> { }));
+    assertFalse(target.exists());
+    long partBytes = downloader.getResumableBytes(target);
+    assertTrue(partBytes > 0);
+
+    interruptResponses.set(false);
+    servedBytes.set(0);
+    downloader.download(url("/ranged.owlpack"), target, p -> { });
+
+    assertArrayEquals(CONTENT, Files.readAllBytes(target.toPath()));
+    // Only missing bytes are downloaded again
+    assertEquals(CONTENT.length - partBytes, servedBytes.get());
+  }
+
+  @Test
+  public void testSinkReceivesSegmentsInOrder() throws IOException {
+    File target = new File(downloadDirectory, "bundle.owlpack");
+    BundleDownloader downloader = new BundleDownloader(4, SEGMENT_SIZE, BandwidthLimiter.unlimited());
+    ByteArrayOutputStream sink = new ByteArrayOutputStream();
+
+    downloader.download(url("/ranged.owlpack"), target, p -> { }, sink);
+
+    assertArrayEquals(CONTENT, sink.toByteArray());
+  }
+
+  @Test
+  public void testSinkReceivesResumedBytes() throws IOException {
+    File target = new File(downloadDirectory, "bundle.owlpack");
+    BundleDownloader downloader = new BundleDownloader(1, SEGMENT_SIZE, BandwidthLimiter.unlimited());
+
+    interruptResponses.set(true);
+    assertThrows(IOException.class, () -> downloader.download(url("/ranged.owlpack"), target, p -> { },
+        new ByteArrayOutputStream()));
+
+    long partBytes = downloader.getResumableBytes(target);
+    assertTrue(partBytes > 0);
+
+    interruptResponses.set(false);
+    servedBytes.set(0);
+    ByteArrayOutputStream sink = new ByteArrayOutputStream();
+    downloader.download(url("/ranged.owlpack"), target, p -> { }, sink);
+
+    assertArrayEquals(CONTENT, sink.toByteArray());
+    assertEquals(CONTENT.length - partBytes, servedBytes.get());
+  }
+
+  @Test
+  public void testSinkReceivesResumedSegmentsInOrder() throws IOException {
+    File target = new File(downloadDirectory, "bundle.owlpack");
+    BundleDownloader downloader = new BundleDownloader(4, SEGMENT_SIZE, BandwidthLimiter.unlimited());
+
+    interruptResponses.set(true);
+    assertThrows(IOException.class, () -> downloader.download(url("/ranged.owlpack"), target, p -> { },
+        new ByteArrayOutputStream()));
+
+    interruptResponses.set(false);
+    ByteArrayOutputStream sink = new ByteArrayOutputStream();
+    downloader.download(url("/ranged.owlpack"), target, p -> { }, sink);
+
+    assertArrayEquals(CONTENT, sink.toByteArray());
+    assertArrayEquals(CONTENT, Files.readAllBytes(target.toPath()));
+  }
+
+  @Test
+  public void testDiscardedDownloadStartsOver() throws IOException {
+    File target = new File(downloadDirectory, "bundle.owlpack");
+    BundleDownloader downloader = new BundleDownloader(4, SEGMENT_SIZE, BandwidthLimiter.unlimited());
+
+    interruptResponses.set(true);
+    assertThrows(IOException.class, () -> downloader.download(url("/ranged.owlpack"), target, p -> { }));
+    downloader.discard(target);
+    assertEquals(0, downloadDirectory.listFiles().length);
+
+    interruptResponses.set(false);
+    servedBytes.set(0);
+    downloader.download(url("/ranged.owlpack"), target, p -> { });
+    assertEquals(CONTENT.length, servedBytes.get());
+  }
+
+  @Test
+  public void testBandwidthIsLimited() throws IOException {
+    File target = new File(downloadDirectory, "bundle.owlpack");
+    BundleDownloader downloader = new BundleDownloader(2, SEGMENT_SIZE, new BandwidthLimiter(CONTENT.length * 2L));
+
+    long start = System.nanoTime();
+    downloader.download(url("/ranged.owlpack"), target, p -> { });
+
+    assertArrayEquals(CONTENT, Files.readAllBytes(target.toPath()));
+    assertTrue((System.nanoTime() - start) / 1_000_000 >= 300);
+  }
+
+}
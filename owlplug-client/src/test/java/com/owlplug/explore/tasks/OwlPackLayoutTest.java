@@ -0,0 +1,94 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.explore.tasks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.owlplug.explore.tasks.OwlPackLayout.OwlPackStructureType;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+public class OwlPackLayoutTest {
+
+  private static final Set<String> PLATFORMS = Set.of("win", "win-x64", "win64", "win-x32", "win32",
+      "mac", "mac-x64", "mac-arm64", "linux", "linux-x64", "linux64");
+
+  private static OwlPackLayout layout() {
+    return new OwlPackLayout(Set.of("win", "win-x64", "win64"), PLATFORMS);
+  }
+
+  @Test
+  public void testDirectStructure() {
+    OwlPackLayout layout = layout();
+    assertTrue(layout.accept("plugin.dll"));
+    assertTrue(layout.accept("presets/default.fxp"));
+
+    assertEquals(OwlPackStructureType.DIRECT, layout.getStructureType());
+    assertEquals("", layout.getSourcePath());
+    assertFalse(layout.requiresFullExtraction());
+  }
+
+  @Test
+  public void testNestedStructure() {
+    OwlPackLayout layout = layout();
+    assertTrue(layout.accept("plugin/"));
+    assertTrue(layout.accept("plugin/plugin.dll"));
+
+    assertEquals(OwlPackStructureType.NESTED, layout.getStructureType());
+    assertEquals("plugin", layout.getSourcePath());
+  }
+
+  @Test
+  public void testEnvStructureOnlyExtractsCompatiblePlatform() {
+    OwlPackLayout layout = layout();
+    assertFalse(layout.accept("mac-x64/plugin.vst3/Contents/MacOS/plugin"));
+    assertTrue(layout.accept("win-x64/plugin.vst3"));
+    assertFalse(layout.accept("linux-x64/plugin.so"));
+
+    assertEquals(OwlPackStructureType.ENV, layout.getStructureType());
+    assertEquals("win-x64", layout.getSourcePath());
+    assertEquals(2, layout.getSkippedEntries().size());
+    assertFalse(layout.requiresFullExtraction());
+  }
+
+  @Test
+  public void testNestedEnvStructureOnlyExtractsCompatiblePlatform() {
+    OwlPackLayout layout = layout();
+    assertTrue(layout.accept("./plugin/"));
+    assertFalse(layout.accept("plugin/mac/plugin.component"));
+    assertTrue(layout.accept("plugin/win/plugin.dll"));
+
+    assertEquals(OwlPackStructureType.NESTED_ENV, layout.getStructureType());
+    assertEquals("plugin/win", layout.getSourcePath());
+    assertFalse(layout.requiresFullExtraction());
+  }
+
+  @Test
+  public void testSkippedEntriesInInstalledFolderRequireFullExtraction() {
+    OwlPackLayout layout = layout();
+    assertTrue(layout.accept("plugin/plugin.dll"));
+    assertFalse(layout.accept("plugin/linux/readme.txt"));
+
+    assertEquals(OwlPackStructureType.NESTED, layout.getStructureType());
+    assertTrue(layout.requiresFullExtraction());
+  }
+
+}
@@ -0,0 +1,222 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.explore.tasks;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.owlplug.explore.model.RemoteSource;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class RegistryFetcherTest {
+
+  private static final String ETAG = "\"v1\"";
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+  private static final byte[] REGISTRY = "{\"packages\":{}}".getBytes(StandardCharsets.UTF_8);
+
+  @TempDir
+  File snapshotDirectory;
+
+  private HttpServer server;
+  private CloseableHttpAsyncClient httpClient;
+  private final AtomicInteger status = new AtomicInteger(200);
+  private final AtomicReference<String> receivedEtag = new AtomicReference<>();
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/registry.json", exchange -> {
+      receivedEtag.set(exchange.getRequestHeaders().getFirst("If-None-Match"));
+      if (status.get() == 200 && ETAG.equals(receivedEtag.get())) {
+        exchange.sendResponseHeaders(304, -1);
+      } else if (status.get() == 200) {
+        exchange.getResponseHeaders().add("ETag", ETAG);
+        exchange.getResponseHeaders().add("Last-Modified", "Mon, 19 Oct 2026 10:00:00 GMT");
+        exchange.sendResponseHeaders(200, REGISTRY.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+          body.write(REGISTRY);
+        }
+      } else {
+        exchange.sendResponseHeaders(status.get(), -1);
+      }
+      exchange.close();
+    });
+    server.createContext("/compressed.json", exchange -> {
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+      try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+        out.write(REGISTRY);
+      }
+      exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+      exchange.sendResponseHeaders(200, compressed.size());
+      try (OutputStream body = exchange.getResponseBody()) {
+        compressed.writeTo(body);
+      }
+      exchange.close();
+    });
+    server.createContext("/slow.json", exchange -> {
+      try {
+        Thread.sleep(2000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      exchange.sendResponseHeaders(200, -1);
+      exchange.close();
+    });
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+    httpClient = HttpAsyncClients.createDefault();
+    httpClient.start();
+  }
+
+  @AfterEach
+  public void tearDown() throws IOException {
+    httpClient.close();
+    server.stop(0);
+    ((ExecutorService) server.getExecutor()).shutdownNow();
+  }
+
+  private RemoteSource createSource() {
+    RemoteSource remoteSource = new RemoteSource();
+    remoteSource.setId(1L);
+    remoteSource.setName("Local");
+    remoteSource.setUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/registry.json");
+    return remoteSource;
+  }
+
+  private static byte[] content(RegistryFetcher.FetchResult result) throws IOException {
+    try (InputStream content = result.openContent()) {
+      return content.readAllBytes();
+    }
+  }
+
+  @Test
+  public void testFirstFetchDownloadsRegistry() throws IOException {
+    RegistryFetcher fetcher = new RegistryFetcher(httpClient, snapshotDirectory);
+    RemoteSource remoteSource = createSource();
+
+    RegistryFetcher.FetchResult result = fetcher.fetch(remoteSource, TIMEOUT).join();
+
+    assertEquals(RegistryFetcher.FetchResult.Status.UPDATED, result.getStatus());
+    assertArrayEquals(REGISTRY, content(result));
+    assertEquals(ETAG, result.getEtag());
+    assertNull(receivedEtag.get());
+  }
+
+  @Test
+  public void testUnchangedRegistryIsNotDownloadedAgain() throws IOException {
+    RegistryFetcher fetcher = new RegistryFetcher(httpClient, snapshotDirectory);
+    RemoteSource remoteSource = createSource();
+    fetcher.saveSnapshot(remoteSource, fetcher.fetch(remoteSource, TIMEOUT).join());
+
+    RegistryFetcher.FetchResult result = fetcher.fetch(remoteSource, TIMEOUT).join();
+
+    assertEquals(ETAG, receivedEtag.get());
+    assertEquals(RegistryFetcher.FetchResult.Status.NOT_MODIFIED, result.getStatus());
+  }
+
+  @Test
+  public void testValidatorsAreNotSentWithoutSnapshot() throws IOException {
+    RegistryFetcher fetcher = new RegistryFetcher(httpClient, snapshotDirectory);
+    RemoteSource remoteSource = createSource();
+    remoteSource.setEtag(ETAG);
+
+    RegistryFetcher.FetchResult result = fetcher.fetch(remoteSource, TIMEOUT).join();
+
+    assertNull(receivedEtag.get());
+    assertEquals(RegistryFetcher.FetchResult.Status.UPDATED, result.getStatus());
+  }
+
+  @Test
+  public void testFailedFetchFallsBackToSnapshot() throws IOException {
+    RegistryFetcher fetcher = new RegistryFetcher(httpClient, snapshotDirectory);
+    RemoteSource remoteSource = createSource();
+    fetcher.saveSnapshot(remoteSource, fetcher.fetch(remoteSource, TIMEOUT).join());
+    assertTrue(new File(snapshotDirectory, "1.json.gz").exists());
+
+    status.set(500);
+    RegistryFetcher.FetchResult result = fetcher.fetch(remoteSource, TIMEOUT).join();
+
+    assertEquals(RegistryFetcher.FetchResult.Status.SNAPSHOT, result.getStatus());
+    assertArrayEquals(REGISTRY, content(result));
+  }
+
+  @Test
+  public void testDiscardedContentIsDeleted() throws IOException {
+    RegistryFetcher fetcher = new RegistryFetcher(httpClient, snapshotDirectory);
+
+    fetcher.fetch(createSource(), TIMEOUT).join().discard();
+
+    assertArrayEquals(new String[0], snapshotDirectory.list());
+  }
+
+  @Test
+  public void testCompressedRegistryIsDecoded() throws IOException {
+    RegistryFetcher fetcher = new RegistryFetcher(httpClient, snapshotDirectory);
+    RemoteSource remoteSource = createSource();
+    remoteSource.setUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/compressed.json");
+
+    RegistryFetcher.FetchResult result = fetcher.fetch(remoteSource, TIMEOUT).join();
+
+    assertArrayEquals(REGISTRY, content(result));
+  }
+
+  @Test
+  public void testSlowSourceTimesOut() {
+    RegistryFetcher fetcher = new RegistryFetcher(httpClient, snapshotDirectory);
+    RemoteSource remoteSource = createSource();
+    remoteSource.setUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/slow.json");
+
+    assertThrows(CompletionException.class,
+        () -> fetcher.fetch(remoteSource, Duration.ofMillis(200)).join());
+  }
+
+  @Test
+  public void testFailedFetchWithoutSnapshot() {
+    RegistryFetcher fetcher = new RegistryFetcher(httpClient, snapshotDirectory);
+    status.set(500);
+
+    CompletionException exception = assertThrows(CompletionException.class,
+        () -> fetcher.fetch(createSource(), TIMEOUT).join());
+    assertTrue(exception.getCause() instanceof IOException);
+  }
+
+}
@@ -0,0 +1,100 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.explore.tasks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.owlplug.explore.model.PackageBundle;
+import com.owlplug.explore.model.PackageTag;
+import com.owlplug.explore.model.RemotePackage;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class RemotePackageMergerTest {
+
+  private RemotePackage createPackage(String slug, String version, String downloadUrl, String... tags) {
+    RemotePackage remotePackage = new RemotePackage();
+    remotePackage.setSlug(slug);
+    remotePackage.setName(slug);
+    remotePackage.setVersion(version);
+
+    PackageBundle bundle = new PackageBundle();
+    bundle.setDownloadUrl(downloadUrl);
+    bundle.setTargets(new ArrayList<>(List.of("win-x64")));
+    bundle.setFormats(new ArrayList<>(List.of("vst3")));
+    bundle.setRemotePackage(remotePackage);
+    remotePackage.getBundles().add(bundle);
+
+    for (String tag : tags) {
+      remotePackage.getTags().add(new PackageTag(tag, remotePackage));
+    }
+    return remotePackage;
+  }
+
+  @Test
+  public void testIdenticalPackagesAreNotModified() {
+    RemotePackage persisted = createPackage("synth", "1.0.0", "http://localhost/synth.zip", "Synth");
+    RemotePackage incoming = createPackage("synth", "1.0.0", "http://localhost/synth.zip", "Synth");
+
+    assertFalse(RemotePackageMerger.isModified(persisted, incoming));
+  }
+
+  @Test
+  public void testChangesAreDetected() {
+    RemotePackage persisted = createPackage("synth", "1.0.0", "http://localhost/synth.zip", "Synth");
+
+    assertTrue(RemotePackageMerger.isModified(persisted,
+        createPackage("synth", "1.1.0", "http://localhost/synth.zip", "Synth")));
+    assertTrue(RemotePackageMerger.isModified(persisted,
+        createPackage("synth", "1.0.0", "http://localhost/synth-1.zip", "Synth")));
+    assertTrue(RemotePackageMerger.isModified(persisted,
+        createPackage("synth", "1.0.0", "http://localhost/synth.zip", "Synth", "Bass")));
+  }
+
+  @Test
+  public void testMergeKeepsPersistedIdentity() {
+    RemotePackage persisted = createPackage("synth", "1.0.0", "http://localhost/synth.zip", "Synth");
+    persisted.setId(42L);
+    RemotePackage incoming = createPackage("synth", "2.0.0", "http://localhost/synth-2.zip", "Synth");
+
+    RemotePackageMerger.merge(persisted, incoming);
+
+    assertEquals(42L, persisted.getId());
+    assertEquals("2.0.0", persisted.getVersion());
+    assertEquals(1, persisted.getBundles().size());
+    PackageBundle bundle = persisted.getBundles().iterator().next();
+    assertEquals("http://localhost/synth-2.zip", bundle.getDownloadUrl());
+    assertSame(persisted, bundle.getRemotePackage());
+    assertFalse(RemotePackageMerger.isModified(persisted, incoming));
+  }
+
+  @Test
+  public void testKeyFallsBackToName() {
+    RemotePackage remotePackage = new RemotePackage();
+    remotePackage.setName("Synth");
+    assertEquals("Synth", RemotePackageMerger.key(remotePackage));
+    remotePackage.setSlug("synth");
+    assertEquals("synth", RemotePackageMerger.key(remotePackage));
+  }
+
+}
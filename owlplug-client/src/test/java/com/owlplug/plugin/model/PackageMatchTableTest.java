@@ -0,0 +1,153 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.plugin.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.owlplug.plugin.model.PackageMatchTable.PackageMatch;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class PackageMatchTableTest {
+
+  private PluginSummary plugin(long id, String name, String descriptiveName) {
+    return plugin(id, name, descriptiveName, null);
+  }
+
+  private PluginSummary plugin(long id, String name, String descriptiveName, String bundleId) {
+    return plugin(id, name, descriptiveName, bundleId, null);
+  }
+
+  private PluginSummary plugin(long id, String name, String descriptiveName, String bundleId, String manufacturer) {
+    return new PluginSummary(id, name, descriptiveName, PluginFormat.VST3, "1.0", bundleId, manufacturer, null,
+        "/plugins/" + name, "/plugins", true, false, true, null);
+  }
+
+  private PackageMatch remotePackage(long id, String name, String screenshotUrl) {
+    return new PackageMatch(id, name, null, null, "1.0", screenshotUrl);
+  }
+
+  @Test
+  void testPluginNamesAreNormalized() {
+    PackageMatchTable table = PackageMatchTable.build(
+        List.of(plugin(1, "Dragonfly_Room-Reverb_x64", null), plugin(2, "vital", null)),
+        List.of(remotePackage(10L, "Dragonfly Room Reverb", "room.png"),
+            remotePackage(11L, "Vital", "vital.png")));
+
+    assertEquals(10L, table.get(1L).get().getPackageId());
+    assertEquals("vital.png", table.get(2L).get().getScreenshotUrl());
+  }
+
+  @Test
+  void testDescriptiveNameIsUsedAsFallback() {
+    PackageMatchTable table = PackageMatchTable.build(
+        List.of(plugin(1, "SurgeXT_Effects", "Surge XT")),
+        List.of(remotePackage(10L, "Surge XT", "surge.png")));
+
+    assertEquals(10L, table.get(1L).get().getPackageId());
+  }
+
+  @Test
+  void testPackagesWithScreenshotArePreferred() {
+    PackageMatchTable table = PackageMatchTable.build(
+        List.of(plugin(1, "Vital", null)),
+        List.of(remotePackage(10L, "Vital", null), remotePackage(11L, "vital", "vital.png"),
+            remotePackage(12L, "VITAL", "other.png")));
+
+    assertEquals(11L, table.get(1L).get().getPackageId());
+  }
+
+  @Test
+  void testBundleIdIsMatchedOnSlugFirst() {
+    PackageMatchTable table = PackageMatchTable.build(
+        List.of(plugin(1, "OTT", null, "com.xferrecords.OTT-Free"), plugin(2, "Vital", null, "audio.vital.Synth")),
+        List.of(remotePackage(10L, "OTT", "ott.png"),
+            new PackageMatch(11L, "Xfer OTT", "ott-free", "Xfer Records", "1.3.7", null),
+            remotePackage(12L, "Vital", "vital.png")));
+
+    assertEquals(11L, table.get(1L).get().getPackageId());
+    assertEquals("1.3.7", table.get(1L).get().getVersion());
+    assertEquals(12L, table.get(2L).get().getPackageId());
+  }
+
+  @Test
+  void testSlugMatchRequiresSameVendor() {
+    PackageMatchTable table = PackageMatchTable.build(
+        List.of(plugin(1, "Reverb", null, "com.valhalladsp.Reverb"),
+            plugin(2, "Compressor", null, "Compressor", "TDR"),
+            plugin(3, "Delay", null, "com.example.Delay")),
+        List.of(new PackageMatch(10L, "Other Reverb", "reverb", "Another Vendor", "1.0", "reverb.png"),
+            new PackageMatch(11L, "Valhalla Reverb", "reverb", "Valhalla DSP", "1.0", null),
+            new PackageMatch(12L, "TDR Compressor", "compressor", "Tokyo Dawn Records (TDR)", "1.0", null),
+            new PackageMatch(13L, "Other Delay", "delay", "Another Vendor", "1.0", null),
+            remotePackage(14L, "Delay", null)));
+
+    assertEquals(11L, table.get(1L).get().getPackageId());
+    assertEquals(12L, table.get(2L).get().getPackageId());
+    // Slug of another vendor, the plugin is matched on its name instead
+    assertEquals(14L, table.get(3L).get().getPackageId());
+  }
+
+  @Test
+  void testNameMatchRequiresSameVendorForUpdates() {
+    PackageMatchTable table = PackageMatchTable.build(
+        List.of(plugin(1, "Supermassive", null, null, "Valhalla DSP"),
+            plugin(2, "Supermassive", null, "com.otherdsp.Supermassive"),
+            plugin(3, "Supermassive", null)),
+        List.of(new PackageMatch(10L, "Supermassive", null, "Other DSP", "3.0", "other.png"),
+            new PackageMatch(11L, "Supermassive", null, "Valhalla DSP", "2.0", null)));
+
+    // Packages of the plugin vendor are preferred, even without screenshot
+    assertEquals(11L, table.get(1L).get().getPackageId());
+    assertEquals(11L, table.getSameVendor(1L).get().getPackageId());
+    assertEquals(10L, table.get(2L).get().getPackageId());
+    assertEquals(10L, table.getSameVendor(2L).get().getPackageId());
+    // Without a known vendor, the package is matched for display but not for updates
+    assertEquals(10L, table.get(3L).get().getPackageId());
+    assertTrue(table.getSameVendor(3L).isEmpty());
+  }
+
+  @Test
+  void testBundleName() {
+    assertEquals("Diva", PackageMatchTable.bundleName("com.u-he.Diva"));
+    assertEquals("Diva", PackageMatchTable.bundleName("Diva"));
+  }
+
+  @Test
+  void testBundleVendor() {
+    assertEquals("u-he", PackageMatchTable.bundleVendor("com.u-he.Diva"));
+    assertEquals("vital", PackageMatchTable.bundleVendor("vital.Synth"));
+    assertNull(PackageMatchTable.bundleVendor("Diva"));
+    assertNull(PackageMatchTable.bundleVendor(null));
+  }
+
+  @Test
+  void testUnmatchedPlugins() {
+    PackageMatchTable table = PackageMatchTable.build(
+        List.of(plugin(1, "Unknown", null), plugin(2, "", null)),
+        List.of(remotePackage(10L, "Vital", "vital.png"), remotePackage(11L, null, null)));
+
+    assertTrue(table.get(1L).isEmpty());
+    assertTrue(table.get(2L).isEmpty());
+    assertEquals(0, table.size());
+  }
+
+}
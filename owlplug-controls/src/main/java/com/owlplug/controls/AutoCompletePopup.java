@@ -19,10 +19,10 @@
 package com.owlplug.controls;
 
 import com.owlplug.controls.skins.AutoCompletePopupSkin;
+import javafx.beans.InvalidationListener;
 import javafx.beans.property.*;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
 import javafx.css.CssMetaData;
 import javafx.css.Styleable;
 import javafx.event.Event;
@@ -38,6 +38,7 @@ import javafx.stage.Window;
 import javafx.util.Callback;
 
 import java.util.List;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 /**
@@ -51,7 +52,16 @@ public class AutoCompletePopup<T> extends PopupControl {
 
   private final ObservableList<T> suggestions = FXCollections.observableArrayList();
   private final ObjectProperty<EventHandler<AutoCompleteEvent<T>>> selectionHandler = new SimpleObjectProperty<>();
-  private final FilteredList<T> filteredData = new FilteredList<T>(suggestions, s -> true);
+  private final ObservableList<T> filteredData = FXCollections.observableArrayList();
+
+  /**
+   * Current filter, either a predicate or a prefix looked up in the suggestion index.
+   */
+  private Predicate<T> filterPredicate = s -> true;
+  private String filterPrefix = null;
+  private SuggestionIndex<T> suggestionIndex = null;
+  private Function<T, String> suggestionConverter = Object::toString;
+  private int maxSuggestions = 100;
   private final ObjectProperty<Callback<ListView<T>, ListCell<T>>> suggestionsCellFactory = new SimpleObjectProperty<Callback<ListView<T>, ListCell<T>>>();
 
   /**
@@ -71,6 +81,10 @@ public class AutoCompletePopup<T> extends PopupControl {
     setAutoHide(true);
     setHideOnEscape(true);
     getStyleClass().add(DEFAULT_STYLE_CLASS);
+    suggestions.addListener((InvalidationListener) observable -> {
+      suggestionIndex = null;
+      applyFilter();
+    });
   }
 
   @Override
@@ -97,7 +111,50 @@ public class AutoCompletePopup<T> extends PopupControl {
   }
 
   public void filter(Predicate<T> predicate) {
-    filteredData.setPredicate(predicate);
+    filterPredicate = predicate != null ? predicate : s -> true;
+    filterPrefix = null;
+    applyFilter();
+  }
+
+  /**
+   * Filters suggestions having a word starting with the given text, using a sorted
+   * index instead of testing every suggestion. At most {@link #getMaxSuggestions()}
+   * suggestions are kept.
+   *
+   * @param prefix typed text
+   */
+  public void filter(String prefix) {
+    filterPrefix = prefix != null ? prefix : "";
+    applyFilter();
+  }
+
+  private void applyFilter() {
+    if (filterPrefix != null) {
+      if (suggestionIndex == null) {
+        suggestionIndex = new SuggestionIndex<>(suggestions, suggestionConverter);
+      }
+      filteredData.setAll(suggestionIndex.search(filterPrefix, maxSuggestions));
+    } else {
+      filteredData.setAll(suggestions.filtered(filterPredicate));
+    }
+  }
+
+  /**
+   * Sets the function returning the text of a suggestion, used by prefix filtering.
+   *
+   * @param suggestionConverter suggestion text function
+   */
+  public void setSuggestionConverter(Function<T, String> suggestionConverter) {
+    this.suggestionConverter = suggestionConverter;
+    this.suggestionIndex = null;
+  }
+
+  public int getMaxSuggestions() {
+    return maxSuggestions;
+  }
+
+  public void setMaxSuggestions(int maxSuggestions) {
+    this.maxSuggestions = maxSuggestions;
   }
 
   public ObservableList<T> getFilteredSuggestions() {
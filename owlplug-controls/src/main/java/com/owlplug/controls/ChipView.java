@@ -129,13 +129,17 @@ public class ChipView<T> extends Control {
     autoCompletePopup.setSuggestionsCellFactory(factory);
   }
 
-  private ObjectProperty<BiPredicate<T, String>> predicate = new SimpleObjectProperty<>(
-      (item, text) -> {
-        StringConverter<T> converter = getConverter();
-        String itemString = converter != null ? converter.toString(item) : item.toString();
-        return itemString.toLowerCase().contains(text.toLowerCase());
-      }
-  );
+  /**
+   * Default suggestion filtering predicate, matching suggestions having a word starting
+   * with the typed text. While it is set, matches are looked up in a sorted index
+   * instead of testing every suggestion.
+   */
+  private final BiPredicate<T, String> defaultPredicate = (item, text) -> {
+    StringConverter<T> converter = getConverter();
+    return SuggestionIndex.matches(converter != null ? converter.toString(item) : item.toString(), text);
+  };
+
+  private ObjectProperty<BiPredicate<T, String>> predicate = new SimpleObjectProperty<>(defaultPredicate);
 
   public BiPredicate<T, String> getPredicate() {
     return predicate.get();
@@ -148,6 +152,15 @@ public class ChipView<T> extends Control {
   public void setPredicate(BiPredicate<T, String> predicate) {
     this.predicate.set(predicate);
   }
+
+  /**
+   * Returns true if suggestions are filtered with the default predicate.
+   * @return true if the predicate hasn't been replaced
+   */
+  public boolean hasDefaultPredicate() {
+    return getPredicate() == defaultPredicate;
+  }
+
   private ObservableList<T> chips = FXCollections.observableArrayList();
 
   public ObservableList<T> getChips() {
@@ -0,0 +1,170 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.controls;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Sorted prefix index of suggestions. Each word of a suggestion text is indexed, so
+ * a suggestion matches when one of its words starts with the typed text. Results of
+ * the previous lookup are kept, and when the typed text grows, the next lookup only
+ * searches in the previous range.
+ *
+ * @param <T> suggestion type
+ */
+public class SuggestionIndex<T> {
+
+  private final List<T> suggestions;
+  private final String[] keys;
+  private final int[] positions;
+
+  private String lastPrefix = null;
+  private int lastFrom = 0;
+  private int lastTo = 0;
+
+  /**
+   * Creates a new index.
+   * @param suggestions - suggestions to index
+   * @param textConverter - returns the text of a suggestion
+   */
+  public SuggestionIndex(List<T> suggestions, Function<T, String> textConverter) {
+    this.suggestions = List.copyOf(suggestions);
+
+    List<Entry> entries = new ArrayList<>();
+    for (int i = 0; i < this.suggestions.size(); i++) {
+      String text = textConverter.apply(this.suggestions.get(i));
+      if (text == null) {
+        continue;
+      }
+      text = text.toLowerCase(Locale.ROOT);
+      for (int start = 0; start < text.length(); start++) {
+        if (isWordStart(text, start)) {
+          entries.add(new Entry(text.substring(start), i));
+        }
+      }
+    }
+    entries.sort(Comparator.comparing((Entry e) -> e.key).thenComparingInt(e -> e.position));
+
+    keys = new String[entries.size()];
+    positions = new int[entries.size()];
+    for (int i = 0; i < entries.size(); i++) {
+      keys[i] = entries.get(i).key;
+      positions[i] = entries.get(i).position;
+    }
+  }
+
+  /**
+   * Returns suggestions with a word starting with the given text, ignoring case.
+   * @param text - typed text
+   * @param limit - maximum number of suggestions returned
+   * @return matching suggestions, ordered by matching word
+   */
+  public synchronized List<T> search(String text, int limit) {
+    String prefix = text.strip().toLowerCase(Locale.ROOT);
+    if (prefix.isEmpty()) {
+      return suggestions.subList(0, Math.min(limit, suggestions.size()));
+    }
+
+    // Narrows the previous range when the prefix grows
+    int from = 0;
+    int to = keys.length;
+    if (lastPrefix != null && prefix.startsWith(lastPrefix)) {
+      from = lastFrom;
+      to = lastTo;
+    }
+    from = lowerBound(prefix, from, to);
+    to = lowerBound(prefix + Character.MAX_VALUE, from, to);
+    lastPrefix = prefix;
+    lastFrom = from;
+    lastTo = to;
+
+    Set<Integer> matches = new LinkedHashSet<>();
+    for (int i = from; i < to && matches.size() < limit; i++) {
+      matches.add(positions[i]);
+    }
+    List<T> result = new ArrayList<>(matches.size());
+    for (int position : matches) {
+      result.add(suggestions.get(position));
+    }
+    return result;
+  }
+
+  public int size() {
+    return suggestions.size();
+  }
+
+  /**
+   * Returns true if a word of the text starts with the typed text, ignoring case.
+   * This is the match performed by {@link #search(String, int)}, for a single suggestion.
+   * @param text - suggestion text
+   * @param typedText - typed text
+   * @return true if the suggestion matches
+   */
+  public static boolean matches(String text, String typedText) {
+    String prefix = typedText.strip().toLowerCase(Locale.ROOT);
+    if (prefix.isEmpty()) {
+      return true;
+    }
+    if (text == null) {
+      return false;
+    }
+    String lowerCaseText = text.toLowerCase(Locale.ROOT);
+    for (int start = 0; start < lowerCaseText.length(); start++) {
+      if (isWordStart(lowerCaseText, start) && lowerCaseText.startsWith(prefix, start)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isWordStart(String text, int index) {
+    return Character.isLetterOrDigit(text.charAt(index))
+        && (index == 0 || !Character.isLetterOrDigit(text.charAt(index - 1)));
+  }
+
+  private int lowerBound(String key, int from, int to) {
+    int index = Arrays.binarySearch(keys, from, to, key);
+    if (index >= 0) {
+      // Moves to the first of equal keys
+      while (index > from && keys[index - 1].equals(key)) {
+        index--;
+      }
+      return index;
+    }
+    return -index - 1;
+  }
+
+  private static class Entry {
+    private final String key;
+    private final int position;
+
+    Entry(String key, int position) {
+      this.key = key;
+      this.position = position;
+    }
+  }
+
+}
@@ -24,6 +24,7 @@ import com.owlplug.controls.Chip;
 import com.owlplug.controls.ChipView;
 import com.owlplug.controls.DefaultChip;
 import java.util.List;
+import java.util.function.Predicate;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.collections.WeakListChangeListener;
@@ -106,6 +107,10 @@ public class ChipViewSkin<T> implements Skin<ChipView> {
 
     // init auto complete
     autoCompletePopup = (ChipsAutoComplete<T>) getSkinnable().getAutoCompletePopup();
+    autoCompletePopup.setSuggestionConverter(item -> {
+      StringConverter<T> converter = getSkinnable().getConverter();
+      return converter != null ? converter.toString(item) : item.toString();
+    });
     autoCompletePopup.setSelectionHandler(event -> {
       T selectedItem = event.getObject();
       if (getSkinnable().getSelectionHandler() != null) {
@@ -196,7 +201,13 @@ public class ChipViewSkin<T> implements Skin<ChipView> {
         root.requestLayout();
       }
       // show popup
-      autoCompletePopup.filter(item -> getSkinnable().getPredicate().test(item, editor.getText()));
+      if (getSkinnable().hasDefaultPredicate()) {
+        autoCompletePopup.filter(editor.getText());
+      } else if (getSkinnable().getPredicate() != null) {
+        autoCompletePopup.filter(item -> getSkinnable().getPredicate().test(item, editor.getText()));
+      } else {
+        autoCompletePopup.filter((Predicate<T>) null);
+      }
       if (autoCompletePopup.getFilteredSuggestions().isEmpty()) {
         autoCompletePopup.hide();
       } else {
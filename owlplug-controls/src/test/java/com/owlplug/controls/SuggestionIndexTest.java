@@ -0,0 +1,106 @@
+/* OwlPlug
+ * Copyright (C) 2021 Arthur <dropsnorz@gmail.com>
+ *
+ * This file is part of OwlPlug.
+ *
+ * OwlPlug is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3
+ * as published by the Free Software Foundation.
+ *
+ * OwlPlug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OwlPlug.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owlplug.controls;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+public class SuggestionIndexTest {
+
+  private static SuggestionIndex<String> index(String... suggestions) {
+    return new SuggestionIndex<>(List.of(suggestions), Function.identity());
+  }
+
+  @Test
+  public void testWordPrefixesMatch() {
+    SuggestionIndex<String> index = index("Vital", "Surge XT", "Dragonfly Room-Reverb");
+
+    assertEquals(List.of("Vital"), index.search("vit", 10));
+    assertEquals(List.of("Surge XT"), index.search("XT", 10));
+    assertEquals(List.of("Dragonfly Room-Reverb"), index.search("reverb", 10));
+    // Matches must start at a word boundary
+    assertTrue(index.search("ital", 10).isEmpty());
+    assertTrue(index.search("verb", 10).isEmpty());
+  }
+
+  @Test
+  public void testPrefixBoundaries() {
+    SuggestionIndex<String> index = index("a", "ab", "abc", "b");
+
+    assertEquals(List.of("a", "ab", "abc"), index.search("a", 10));
+    assertEquals(List.of("ab", "abc"), index.search("ab", 10));
+    assertEquals(List.of("abc"), index.search("abc", 10));
+    assertTrue(index.search("abcd", 10).isEmpty());
+    assertEquals(List.of("b"), index.search("b", 10));
+    assertTrue(index.search("c", 10).isEmpty());
+  }
+
+  @Test
+  public void testMultiWordTextMatches() {
+    SuggestionIndex<String> index = index("Dragonfly Room Reverb", "Room Tone");
+
+    assertEquals(List.of("Dragonfly Room Reverb"), index.search("room rev", 10));
+    assertEquals(List.of("Dragonfly Room Reverb", "Room Tone"), index.search("  ROOM ", 10));
+    assertTrue(index.search("room tone reverb", 10).isEmpty());
+  }
+
+  @Test
+  public void testNarrowingThenWideningQuery() {
+    SuggestionIndex<String> index = index("Surge XT", "Surround", "Sunrise", "Vital");
+
+    assertEquals(List.of("Sunrise", "Surge XT", "Surround"), index.search("s", 10));
+    assertEquals(List.of("Surge XT", "Surround"), index.search("sur", 10));
+    assertEquals(List.of("Surge XT"), index.search("surg", 10));
+    // Shorter and unrelated queries search the whole index again
+    assertEquals(List.of("Sunrise", "Surge XT", "Surround"), index.search("s", 10));
+    assertEquals(List.of("Vital"), index.search("v", 10));
+    assertEquals(List.of("Surround"), index.search("surr", 10));
+  }
+
+  @Test
+  public void testDuplicateWordsAreReturnedOnce() {
+    SuggestionIndex<String> index = index("Synth Synth", "Synthesizer", "Synth Synth");
+
+    assertEquals(List.of("Synth Synth", "Synth Synth", "Synthesizer"), index.search("synth", 10));
+    assertEquals(List.of("Synth Synth"), index.search("synth", 1));
+  }
+
+  @Test
+  public void testEmptyQueryReturnsFirstSuggestions() {
+    SuggestionIndex<String> index = index("Vital", "Surge XT", "Dexed");
+
+    assertEquals(List.of("Vital", "Surge XT"), index.search(" ", 2));
+    assertEquals(3, index.size());
+  }
+
+  @Test
+  public void testMatchesAgreesWithSearch() {
+    assertTrue(SuggestionIndex.matches("Dragonfly Room-Reverb", "room-rev"));
+    assertTrue(SuggestionIndex.matches("Dragonfly Room-Reverb", "REVERB"));
+    assertTrue(SuggestionIndex.matches("Vital", ""));
+    assertFalse(SuggestionIndex.matches("Vital", "ital"));
+    assertFalse(SuggestionIndex.matches(null, "vital"));
+  }
+
+}